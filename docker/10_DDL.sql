@@ -13,3 +13,5 @@ CREATE TABLE customer (
     phone character varying(24),
     fax character varying(24)
 );
+
+CREATE INDEX customer_country_city_idx ON customer (country NULLS FIRST, city NULLS FIRST, customer_id);
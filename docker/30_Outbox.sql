@@ -0,0 +1,44 @@
+DROP TABLE IF EXISTS customer_change_offset;
+DROP TABLE IF EXISTS customer_change;
+
+-- Filled by trigger in the same transaction as the change; read by CustomerChangeFeed in change_id order
+CREATE TABLE customer_change (
+    change_id bigserial NOT NULL PRIMARY KEY,
+    customer_id bpchar NOT NULL,
+    company_name character varying(40),
+    contact_name character varying(30),
+    contact_title character varying(30),
+    address character varying(60),
+    city character varying(15),
+    region character varying(15),
+    postal_code character varying(10),
+    country character varying(15),
+    phone character varying(24),
+    fax character varying(24),
+    operation character(1) NOT NULL,
+    changed_at timestamp NOT NULL DEFAULT now()
+);
+
+CREATE TABLE customer_change_offset (
+    consumer character varying(64) NOT NULL PRIMARY KEY,
+    change_id bigint NOT NULL
+);
+
+CREATE OR REPLACE FUNCTION customer_change_capture() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        INSERT INTO customer_change (customer_id, company_name, contact_name, contact_title, address, city, region,
+                                     postal_code, country, phone, fax, operation)
+        SELECT OLD.*, 'D';
+        RETURN OLD;
+    END IF;
+    INSERT INTO customer_change (customer_id, company_name, contact_name, contact_title, address, city, region,
+                                 postal_code, country, phone, fax, operation)
+    SELECT NEW.*, left(TG_OP, 1);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER customer_change_capture
+    AFTER INSERT OR UPDATE OR DELETE ON customer
+    FOR EACH ROW EXECUTE PROCEDURE customer_change_capture();
@@ -0,0 +1,93 @@
+package persistence.benchmark;
+
+import org.h2.jdbcx.JdbcDataSource;
+import persistence.dao.CustomerDAO;
+import persistence.datasource.PoolConfig;
+import persistence.datasource.PooledDataSource;
+import persistence.dto.CustomerDTO;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.UUID;
+
+final class BenchmarkDatabase {
+
+    private static final String DB_URL = "jdbc:h2:mem:%s;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private static final String CUSTOMER_DDL = "create table customer (" +
+            "customer_id character(5) not null primary key, " +
+            "company_name character varying(40) not null, " +
+            "contact_name character varying(30), " +
+            "contact_title character varying(30), " +
+            "address character varying(60), " +
+            "city character varying(15), " +
+            "region character varying(15), " +
+            "postal_code character varying(10), " +
+            "country character varying(15), " +
+            "phone character varying(24), " +
+            "fax character varying(24))";
+
+    private static final String CUSTOMER_INDEX_DDL =
+            "create index customer_country_city_idx on customer (country nulls first, city nulls first, customer_id)";
+
+    private static final String[] COUNTRIES = {"Argentina", "Brazil", "Germany", "France", "Mexico", "Spain", "UK", "USA"};
+    private static final String[] CITIES = {"Buenos Aires", "Sao Paulo", "Berlin", "Paris", "Mexico D.F.", "Madrid",
+            "London", "Seattle"};
+    private static final String[] TITLES = {"Owner", "Sales Representative", "Marketing Manager", "Accounting Manager"};
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Creates a fresh, uniquely named H2 database in PostgreSQL mode seeded with {@code customers} rows whose ids
+     * are {@code customerId(0)} to {@code customerId(customers - 1)}.
+     */
+    static PooledDataSource create(int customers, int maximumPoolSize) throws SQLException {
+        return create(customers, maximumPoolSize, 0);
+    }
+
+    static PooledDataSource create(int customers, int maximumPoolSize, int statementCacheSize) throws SQLException {
+        final var h2 = new JdbcDataSource();
+        h2.setUrl(String.format(DB_URL, "bench-" + UUID.randomUUID()));
+        try (final var conn = h2.getConnection(); final var stmt = conn.createStatement()) {
+            stmt.execute(CUSTOMER_DDL);
+            stmt.execute(CUSTOMER_INDEX_DDL);
+        }
+
+        final var config = new PoolConfig();
+        config.setPoolName("benchmark");
+        config.setMinimumIdle(maximumPoolSize);
+        config.setMaximumPoolSize(maximumPoolSize);
+        config.setStatementCacheSize(statementCacheSize);
+        final var pool = new PooledDataSource(h2, config);
+
+        final var dao = new CustomerDAO(pool);
+        final var batch = new ArrayList<CustomerDTO>();
+        for (int i = 0; i < customers; i++) {
+            batch.add(customer(customerId(i), i));
+            if (batch.size() == 1_000) {
+                dao.createAll(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) dao.createAll(batch);
+        return pool;
+    }
+
+    static CustomerDTO customer(String id, long seed) {
+        final int i = (int) (seed & Integer.MAX_VALUE);
+        return new CustomerDTO(id, "Company " + id, "Contact " + id, TITLES[i % TITLES.length],
+                "Street " + i, CITIES[i % CITIES.length], null, String.valueOf(10000 + i % 90000),
+                COUNTRIES[i % COUNTRIES.length], "555-" + i, null);
+    }
+
+    /**
+     * Maps a sequence number onto the 5 character customer_id space (36^5 ids).
+     */
+    static String customerId(long n) {
+        final var id = Long.toString(n, Character.MAX_RADIX).toUpperCase();
+        if (id.length() > 5) throw new IllegalArgumentException("Customer id space exhausted: " + n);
+        return "00000".substring(id.length()) + id;
+    }
+
+}
@@ -0,0 +1,112 @@
+package persistence.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import persistence.codec.CustomerCodec;
+import persistence.dto.CustomerDTO;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes and decodes {@value #CUSTOMERS} customers per invocation with {@link CustomerCodec} and with Jackson.
+ * The average encoded size of each format is logged on setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CustomerCodecBenchmark {
+
+    private static final int CUSTOMERS = 1_000;
+
+    private final ObjectMapper mapper = new ObjectMapper().addMixIn(CustomerDTO.class, CustomerDTOMixIn.class);
+    private final List<CustomerDTO> customers = new ArrayList<>(CUSTOMERS);
+    private final List<byte[]> binary = new ArrayList<>(CUSTOMERS);
+    private final List<byte[]> json = new ArrayList<>(CUSTOMERS);
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setUp() throws IOException {
+        long binaryBytes = 0;
+        long jsonBytes = 0;
+        int maxSize = 0;
+        for (int i = 0; i < CUSTOMERS; i++) {
+            final var customer = BenchmarkDatabase.customer(BenchmarkDatabase.customerId(i), i);
+            customers.add(customer);
+            binary.add(CustomerCodec.encode(customer));
+            json.add(mapper.writeValueAsBytes(customer));
+            binaryBytes += binary.get(i).length;
+            jsonBytes += json.get(i).length;
+            maxSize = Math.max(maxSize, CustomerCodec.encodedSize(customer));
+        }
+        buffer = ByteBuffer.allocateDirect(maxSize);
+        logger.info("Average encoded size: binary {} bytes, JSON {} bytes", binaryBytes / CUSTOMERS,
+                jsonBytes / CUSTOMERS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CUSTOMERS)
+    public void binaryEncode(Blackhole blackhole) {
+        for (CustomerDTO customer : customers) {
+            buffer.clear();
+            CustomerCodec.encode(customer, buffer);
+            blackhole.consume(buffer.position());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CUSTOMERS)
+    public void binaryDecode(Blackhole blackhole) {
+        for (byte[] bytes : binary) blackhole.consume(CustomerCodec.decode(bytes));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CUSTOMERS)
+    public void jsonEncode(Blackhole blackhole) throws IOException {
+        for (CustomerDTO customer : customers) blackhole.consume(mapper.writeValueAsBytes(customer));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CUSTOMERS)
+    public void jsonDecode(Blackhole blackhole) throws IOException {
+        for (byte[] bytes : json) blackhole.consume(mapper.readValue(bytes, CustomerDTO.class));
+    }
+
+    // CustomerDTO has no default constructor, so Jackson is told to use the full one
+    abstract static class CustomerDTOMixIn {
+
+        @JsonCreator
+        CustomerDTOMixIn(
+                @JsonProperty("id") String id,
+                @JsonProperty("companyName") String companyName,
+                @JsonProperty("contactName") String contactName,
+                @JsonProperty("contactTitle") String contactTitle,
+                @JsonProperty("address") String address,
+                @JsonProperty("city") String city,
+                @JsonProperty("region") String region,
+                @JsonProperty("postalCode") String postalCode,
+                @JsonProperty("country") String country,
+                @JsonProperty("phone") String phone,
+                @JsonProperty("fax") String fax
+        ) {
+        }
+
+    }
+
+}
@@ -0,0 +1,80 @@
+package persistence.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import persistence.dao.CustomerDAO;
+import persistence.datasource.PooledDataSource;
+import persistence.dto.CustomerDTO;
+
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CustomerDAOBenchmark {
+
+    @Param({"10000"})
+    public int customers;
+
+    private PooledDataSource dataSource;
+    private CustomerDAO dao;
+    private AtomicLong nextId;
+
+    @Setup
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkDatabase.create(customers, 8);
+        dao = new CustomerDAO(dataSource);
+        nextId = new AtomicLong(customers);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public Optional<CustomerDTO> getById() {
+        return dao.getById(randomExistingId());
+    }
+
+    @Benchmark
+    public Optional<CustomerDTO> getByIdMissing() {
+        return dao.getById("-----");
+    }
+
+    @Benchmark
+    public CustomerDTO create() {
+        final long n = nextId.getAndIncrement();
+        return dao.create(BenchmarkDatabase.customer(BenchmarkDatabase.customerId(n), n));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Optional<CustomerDTO> getByIdContended() {
+        return dao.getById(randomExistingId());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public CustomerDTO createContended() {
+        final long n = nextId.getAndIncrement();
+        return dao.create(BenchmarkDatabase.customer(BenchmarkDatabase.customerId(n), n));
+    }
+
+    private String randomExistingId() {
+        return BenchmarkDatabase.customerId(ThreadLocalRandom.current().nextInt(customers));
+    }
+
+}
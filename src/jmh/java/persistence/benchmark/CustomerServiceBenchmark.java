@@ -0,0 +1,50 @@
+package persistence.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import persistence.dao.CustomerDAO;
+import persistence.datasource.PooledDataSource;
+import persistence.service.CustomerService;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CustomerServiceBenchmark {
+
+    private PooledDataSource dataSource;
+    private CustomerService service;
+
+    @Setup
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkDatabase.create(1_000, 8);
+        service = new CustomerService(new CustomerDAO(dataSource));
+        service.createIfNotExists();
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void createIfNotExists() {
+        service.createIfNotExists();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void createIfNotExistsContended() {
+        service.createIfNotExists();
+    }
+
+}
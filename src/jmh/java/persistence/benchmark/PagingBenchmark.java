@@ -0,0 +1,95 @@
+package persistence.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import persistence.dao.CustomerDAO;
+import persistence.dao.CustomerFilter;
+import persistence.dao.Page;
+import persistence.datasource.PooledDataSource;
+import persistence.dto.CustomerDTO;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads one page at increasing depths. The keyset page should cost the same at every depth while the OFFSET
+ * baseline grows linearly with it. This runs on H2, where {@link CustomerDAO#page} seeks with three index ranges
+ * rather than the row value comparison it sends to PostgreSQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PagingBenchmark {
+
+    private static final String OFFSET_SQL = "select customer_id, company_name, contact_name, contact_title, " +
+            "address, city, region, postal_code, country, phone, fax from customer " +
+            "order by country nulls first, city nulls first, customer_id limit ? offset ?";
+
+    @Param({"100000"})
+    public int customers;
+
+    @Param({"50"})
+    public int pageSize;
+
+    @Param({"0", "1000", "10000", "90000"})
+    public int depth;
+
+    private PooledDataSource dataSource;
+    private CustomerDAO dao;
+    private String token;
+
+    @Setup
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkDatabase.create(customers, 1, 8);
+        dao = new CustomerDAO(dataSource);
+        token = tokenAt(depth);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public Page<CustomerDTO> keyset() {
+        return dao.page(CustomerFilter.ALL, token, pageSize);
+    }
+
+    @Benchmark
+    public void offset(Blackhole blackhole) throws SQLException {
+        try (
+                final var conn = dataSource.getConnection();
+                final var stmt = conn.prepareStatement(OFFSET_SQL)
+        ) {
+            stmt.setInt(1, pageSize);
+            stmt.setInt(2, depth);
+            try (final var rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    for (int i = 1; i <= 11; i++) blackhole.consume(rs.getString(i));
+                }
+            }
+        }
+    }
+
+    // Walks the listing once so the keyset benchmark starts right after the first `depth` rows
+    private String tokenAt(int depth) {
+        String after = null;
+        int skipped = 0;
+        while (skipped < depth) {
+            final int limit = Math.min(1_000, depth - skipped);
+            final var page = dao.page(CustomerFilter.ALL, after, limit);
+            after = page.getNextToken().orElseThrow(() -> new IllegalStateException("Depth beyond the table"));
+            skipped += limit;
+        }
+        return after;
+    }
+
+}
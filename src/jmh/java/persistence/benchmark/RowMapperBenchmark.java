@@ -0,0 +1,101 @@
+package persistence.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import persistence.dao.CustomerColumn;
+import persistence.dao.CustomerRowMapper;
+import persistence.dao.RowMapper;
+import persistence.datasource.PooledDataSource;
+import persistence.dto.CustomerDTO;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps {@value #ROWS} rows per invocation into a retained list. Run with {@code -PjmhProfilers=gc} to compare
+ * {@code gc.alloc.rate.norm} (bytes per row) between mappers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RowMapperBenchmark {
+
+    private static final int ROWS = 10_000;
+    private static final String SELECT_SQL = "select " + CustomerRowMapper.ALL.getSelectList() + " from customer";
+
+    private static final RowMapper<CustomerDTO> BY_LABEL = rs -> new CustomerDTO(
+            rs.getString("customer_id"),
+            rs.getString("company_name"),
+            rs.getString("contact_name"),
+            rs.getString("contact_title"),
+            rs.getString("address"),
+            rs.getString("city"),
+            rs.getString("region"),
+            rs.getString("postal_code"),
+            rs.getString("country"),
+            rs.getString("phone"),
+            rs.getString("fax")
+    );
+
+    private PooledDataSource dataSource;
+    private CustomerRowMapper projection;
+
+    @Setup
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkDatabase.create(ROWS, 1);
+        projection = CustomerRowMapper.of(EnumSet.of(CustomerColumn.CITY, CustomerColumn.COUNTRY));
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<CustomerDTO> byLabel() throws SQLException {
+        return mapAll(SELECT_SQL, BY_LABEL);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<CustomerDTO> byPrecompiledIndex() throws SQLException {
+        return mapAll(SELECT_SQL, CustomerRowMapper.ALL);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<CustomerDTO> byPrecompiledIndexDeduplicating() throws SQLException {
+        return mapAll(SELECT_SQL, CustomerRowMapper.ALL.deduplicating());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<CustomerDTO> projected() throws SQLException {
+        return mapAll("select " + projection.getSelectList() + " from customer", projection.deduplicating());
+    }
+
+    private List<CustomerDTO> mapAll(String sql, RowMapper<CustomerDTO> mapper) throws SQLException {
+        final var customers = new ArrayList<CustomerDTO>(ROWS);
+        try (
+                final var conn = dataSource.getConnection();
+                final var stmt = conn.prepareStatement(sql);
+                final ResultSet rs = stmt.executeQuery()
+        ) {
+            while (rs.next()) customers.add(mapper.map(rs));
+        }
+        return customers;
+    }
+
+}
@@ -0,0 +1,68 @@
+package persistence.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import persistence.dao.CustomerDAO;
+import persistence.datasource.PooledDataSource;
+import persistence.dto.CustomerDTO;
+
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the DAO's constant statements prepared on every call ({@code statementCacheSize=0}) against statements
+ * kept open per pooled connection. Run with {@code -PjmhInclude=StatementCache}.
+ * <p>
+ * Like the other benchmarks it runs on embedded H2, so it measures the JDBC round trip of preparing a statement,
+ * not PostgreSQL's parse and plan work; pgjdbc also switches to server-side prepared statements on its own after
+ * a few executions of the same statement object, which only a cached statement reaches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StatementCacheBenchmark {
+
+    @Param({"10000"})
+    public int customers;
+
+    @Param({"0", "32"})
+    public int statementCacheSize;
+
+    private PooledDataSource dataSource;
+    private CustomerDAO dao;
+    private AtomicLong nextId;
+
+    @Setup
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkDatabase.create(customers, 1, statementCacheSize);
+        dao = new CustomerDAO(dataSource);
+        nextId = new AtomicLong(customers);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public Optional<CustomerDTO> getById() {
+        return dao.getById(BenchmarkDatabase.customerId(ThreadLocalRandom.current().nextInt(customers)));
+    }
+
+    @Benchmark
+    public CustomerDTO create() {
+        final long n = nextId.getAndIncrement();
+        return dao.create(BenchmarkDatabase.customer(BenchmarkDatabase.customerId(n), n));
+    }
+
+}
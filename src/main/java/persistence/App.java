@@ -4,37 +4,86 @@ import org.postgresql.ds.PGSimpleDataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import persistence.dao.CustomerDAO;
+import persistence.datasource.PoolConfig;
+import persistence.datasource.PooledDataSource;
+import persistence.datasource.ReplicaRoutingDataSource;
+import persistence.loadgen.LoadGenerator;
+import persistence.metrics.StatementInstrumentation;
+import persistence.resilience.ResilienceConfig;
+import persistence.resilience.ResilientCustomerDAO;
 import persistence.service.CustomerService;
+import persistence.writebehind.WriteBehindCustomerDAO;
 
-import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class App {
 
+    // Comma separated replica hosts; without it reads go to the primary too
+    private static final String REPLICA_HOSTS_ENV = "REPLICA_HOSTS";
+
+    private static final int POOL_SIZE = 10;
+
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
     public static void main(String[] args) {
+        if (args.length > 0 && "loadtest".equals(args[0])) {
+            LoadGenerator.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         new App().execute();
     }
 
     public void execute() {
-        DataSource dataSource;
-        try {
-            dataSource = buildSource();
-            final var customerDAO = new CustomerDAO(dataSource);
-            final var customerService = new CustomerService(customerDAO);
+        try (
+                ReplicaRoutingDataSource dataSource = buildRoutingSource();
+                // Closed before the pools, so customers still queued are written while connections are available.
+                // The flusher thread takes the primary connections, so callers are marked sticky themselves.
+                WriteBehindCustomerDAO customerDAO = new WriteBehindCustomerDAO(
+                        new CustomerDAO(dataSource, dataSource.readOnly(), StatementInstrumentation.DISABLED),
+                        10_000, 500, Duration.ofMillis(5), dataSource::markWritten)
+        ) {
+            final var resilienceConfig = new ResilienceConfig();
+            resilienceConfig.setMaxLimit(POOL_SIZE);
+            final var customerService = new CustomerService(new ResilientCustomerDAO(customerDAO, resilienceConfig));
             customerService.createIfNotExists();
         } catch (Throwable ex) {
             logger.error("Error running application", ex);
         }
     }
 
-    private DataSource buildSource() {
+    private ReplicaRoutingDataSource buildRoutingSource() {
+        final List<PooledDataSource> replicas = new ArrayList<>();
+        final var replicaHosts = System.getenv(REPLICA_HOSTS_ENV);
+        if (replicaHosts != null && !replicaHosts.isBlank()) {
+            for (String host : replicaHosts.split(",")) {
+                replicas.add(buildSource(host.strip(), "persistence-testing-replica-" + replicas.size()));
+            }
+        }
+        // Stickiness covers the replication lag after a write made by the same thread
+        return new ReplicaRoutingDataSource(
+                buildSource("localhost", "persistence-testing"), replicas, Duration.ofSeconds(1), Duration.ofSeconds(5));
+    }
+
+    private PooledDataSource buildSource(String serverName, String poolName) {
         PGSimpleDataSource source = new PGSimpleDataSource();
+        source.setServerNames(new String[]{serverName});
         source.setDatabaseName("postgres");
         source.setUser("postgres");
         source.setPassword("academy");
         source.setApplicationName("persistence-testing");
-        return source;
+        source.setReWriteBatchedInserts(true);
+        // Cached statements are reused on every call, so switch them to server-side prepared right away
+        source.setPrepareThreshold(1);
+
+        PoolConfig poolConfig = new PoolConfig();
+        poolConfig.setPoolName(poolName);
+        poolConfig.setMinimumIdle(1);
+        poolConfig.setMaximumPoolSize(POOL_SIZE);
+        poolConfig.setStatementCacheSize(32);
+        return new PooledDataSource(source, poolConfig);
     }
 
 }
@@ -0,0 +1,194 @@
+package persistence.async;
+
+import persistence.dao.CustomerRepository;
+import persistence.dto.CustomerDTO;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking facade over a {@link CustomerRepository}. At most {@code maxInFlight} calls (usually the connection
+ * pool size) run at once; the rest wait in a queue without holding a thread.
+ * <p>
+ * Cancelling a returned future, or exceeding its deadline, completes it right away. A call that has not started
+ * yet is dropped, and a running one has its thread interrupted. The in-flight slot is only freed once the JDBC
+ * call actually returns.
+ */
+public class AsyncCustomerDAO implements AutoCloseable {
+
+    private final CustomerRepository delegate;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final int maxInFlight;
+    private final Semaphore permits;
+    private final ConcurrentLinkedQueue<Task<?>> queue = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    public AsyncCustomerDAO(CustomerRepository delegate, int maxInFlight) {
+        this(delegate, maxInFlight, newDefaultExecutor(), true);
+    }
+
+    public AsyncCustomerDAO(CustomerRepository delegate, int maxInFlight, ExecutorService executor) {
+        this(delegate, maxInFlight, executor, false);
+    }
+
+    private AsyncCustomerDAO(CustomerRepository delegate, int maxInFlight, ExecutorService executor, boolean owned) {
+        if (maxInFlight < 1) throw new IllegalArgumentException("maxInFlight must be at least 1");
+        this.delegate = delegate;
+        this.executor = executor;
+        this.ownsExecutor = owned;
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    public CompletableFuture<Optional<CustomerDTO>> getByIdAsync(String id) {
+        return submit(() -> delegate.getById(id), null);
+    }
+
+    public CompletableFuture<Optional<CustomerDTO>> getByIdAsync(String id, Duration deadline) {
+        return submit(() -> delegate.getById(id), deadline);
+    }
+
+    public CompletableFuture<Map<String, CustomerDTO>> getByIdsAsync(Collection<String> ids) {
+        return submit(() -> delegate.getByIds(ids), null);
+    }
+
+    public CompletableFuture<Map<String, CustomerDTO>> getByIdsAsync(Collection<String> ids, Duration deadline) {
+        return submit(() -> delegate.getByIds(ids), deadline);
+    }
+
+    public CompletableFuture<CustomerDTO> createAsync(CustomerDTO customer) {
+        return submit(() -> delegate.create(customer), null);
+    }
+
+    public CompletableFuture<CustomerDTO> createAsync(CustomerDTO customer, Duration deadline) {
+        return submit(() -> delegate.create(customer), deadline);
+    }
+
+    public CompletableFuture<Boolean> createIfAbsentAsync(CustomerDTO customer) {
+        return submit(() -> delegate.createIfAbsent(customer), null);
+    }
+
+    public CompletableFuture<Boolean> createIfAbsentAsync(CustomerDTO customer, Duration deadline) {
+        return submit(() -> delegate.createIfAbsent(customer), deadline);
+    }
+
+    public int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    public int getQueued() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Task<?> task;
+        while ((task = queue.poll()) != null) {
+            task.future.completeExceptionally(new RejectedExecutionException("AsyncCustomerDAO is closed"));
+        }
+        if (ownsExecutor) executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> call, Duration deadline) {
+        final var task = new Task<>(call);
+        if (closed) {
+            task.future.completeExceptionally(new RejectedExecutionException("AsyncCustomerDAO is closed"));
+            return task.future;
+        }
+        if (deadline != null) task.future.orTimeout(deadline.toNanos(), TimeUnit.NANOSECONDS);
+        task.future.whenComplete((result, ex) -> {
+            if (ex != null) task.interruptIfRunning();
+        });
+        queue.add(task);
+        dispatch();
+        return task.future;
+    }
+
+    // Called after every enqueue and every completion, so a queued task can never miss a freed permit
+    private void dispatch() {
+        while (!queue.isEmpty() && permits.tryAcquire()) {
+            final var task = queue.poll();
+            if (task == null || task.future.isDone()) {
+                permits.release();
+                continue;
+            }
+            try {
+                executor.execute(() -> run(task));
+            } catch (RejectedExecutionException ex) {
+                permits.release();
+                task.future.completeExceptionally(ex);
+            }
+        }
+    }
+
+    private void run(Task<?> task) {
+        try {
+            task.run();
+        } finally {
+            permits.release();
+            dispatch();
+        }
+    }
+
+    private static ExecutorService newDefaultExecutor() {
+        try {
+            // Virtual threads when running on Java 21+, without requiring it to build
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            final var counter = new AtomicInteger();
+            return Executors.newCachedThreadPool(runnable -> {
+                final var thread = new Thread(runnable, "customer-dao-async-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private static final class Task<T> {
+
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final Supplier<T> call;
+        private Thread runner;
+
+        private Task(Supplier<T> call) {
+            this.call = call;
+        }
+
+        private void run() {
+            synchronized (this) {
+                if (future.isDone()) return;
+                runner = Thread.currentThread();
+            }
+            try {
+                future.complete(call.get());
+            } catch (Throwable ex) {
+                future.completeExceptionally(ex);
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                }
+                // Drop an interrupt aimed at this task so it does not leak into the next one on this thread
+                Thread.interrupted();
+            }
+        }
+
+        private synchronized void interruptIfRunning() {
+            if (runner != null) runner.interrupt();
+        }
+
+    }
+
+}
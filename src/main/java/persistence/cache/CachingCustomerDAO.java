@@ -0,0 +1,279 @@
+package persistence.cache;
+
+import persistence.dao.CustomerRepository;
+import persistence.dto.CustomerDTO;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+public class CachingCustomerDAO implements CustomerRepository {
+
+    private final CustomerRepository delegate;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final LongSupplier ticker;
+    private final LinkedHashMap<String, Entry> entries;
+    // When ids were last invalidated, guarded by entries: a load that started earlier must not bring back what it
+    // read. Bounded like the cache; a stamp only matters while a load older than it is still running.
+    private final LinkedHashMap<String, Long> invalidatedAt;
+    private long allInvalidatedAt;
+    private final ConcurrentHashMap<String, CompletableFuture<Optional<CustomerDTO>>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public CachingCustomerDAO(CustomerRepository delegate, int maximumSize, Duration ttl, Duration negativeTtl) {
+        this(delegate, maximumSize, ttl, negativeTtl, System::nanoTime);
+    }
+
+    CachingCustomerDAO(
+            CustomerRepository delegate,
+            int maximumSize,
+            Duration ttl,
+            Duration negativeTtl,
+            LongSupplier ticker
+    ) {
+        if (maximumSize < 1) throw new IllegalArgumentException("maximumSize must be at least 1");
+        this.delegate = delegate;
+        this.ttlNanos = ttl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.ticker = ticker;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= maximumSize) return false;
+                evictions.increment();
+                return true;
+            }
+        };
+        this.invalidatedAt = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maximumSize;
+            }
+        };
+        this.allInvalidatedAt = ticker.getAsLong();
+    }
+
+    @Override
+    public Optional<CustomerDTO> getById(String id) {
+        final var cached = lookup(id);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        final var future = new CompletableFuture<Optional<CustomerDTO>>();
+        final var inFlight = loading.putIfAbsent(id, future);
+        if (inFlight != null) return await(inFlight);
+
+        try {
+            final long startedAt = ticker.getAsLong();
+            final var loaded = load(id);
+            store(id, loaded, startedAt);
+            future.complete(loaded);
+            return loaded;
+        } catch (RuntimeException ex) {
+            future.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            loading.remove(id, future);
+        }
+    }
+
+    @Override
+    public Map<String, CustomerDTO> getByIds(Collection<String> ids) {
+        final var found = new LinkedHashMap<String, CustomerDTO>();
+        final var missing = new LinkedHashSet<String>();
+        for (String id : new LinkedHashSet<>(ids)) {
+            final var cached = lookup(id);
+            if (cached == null) {
+                misses.increment();
+                missing.add(id);
+            } else {
+                hits.increment();
+                cached.ifPresent(customer -> found.put(id, customer));
+            }
+        }
+        if (missing.isEmpty()) return found;
+
+        final long startedAt = ticker.getAsLong();
+        final Map<String, CustomerDTO> loaded;
+        try {
+            loaded = delegate.getByIds(missing);
+            loads.increment();
+        } catch (RuntimeException ex) {
+            loadFailures.increment();
+            throw ex;
+        }
+        for (String id : missing) {
+            final var customer = Optional.ofNullable(loaded.get(id));
+            store(id, customer, startedAt);
+            customer.ifPresent(c -> found.put(id, c));
+        }
+        return found;
+    }
+
+    @Override
+    public CustomerDTO create(CustomerDTO customer) {
+        final var created = delegate.create(customer);
+        store(created.getId(), Optional.of(created), ticker.getAsLong());
+        return created;
+    }
+
+    @Override
+    public boolean createIfAbsent(CustomerDTO customer) {
+        final long startedAt = ticker.getAsLong();
+        final boolean created = delegate.createIfAbsent(customer);
+        if (created) {
+            store(customer.getId(), Optional.of(customer), startedAt);
+        } else {
+            // Someone else created it first, so a cached empty result is now wrong
+            invalidate(customer.getId());
+        }
+        return created;
+    }
+
+    /**
+     * Applies a change made elsewhere, for instance one published by a
+     * {@link persistence.changefeed.CustomerChangeFeed}: an id that is cached or being loaded gets the new value
+     * (empty once deleted) so it stays warm, other ids are left out so the cache does not fill up with ids nobody
+     * reads.
+     */
+    public void apply(String id, Optional<CustomerDTO> value) {
+        final long ttl = value.isPresent() ? ttlNanos : negativeTtlNanos;
+        final long now = ticker.getAsLong();
+        synchronized (entries) {
+            if (!entries.containsKey(id) && !loading.containsKey(id)) return;
+            if (ttl <= 0) {
+                entries.remove(id);
+                markInvalidated(id, now);
+            } else {
+                // Written after any load in flight started, so store() will not replace it with an older value
+                entries.put(id, new Entry(value, now, now + ttl));
+            }
+        }
+    }
+
+    /**
+     * Drops the cached value; a load of the id already in flight will not store what it read either.
+     */
+    public void invalidate(String id) {
+        final long now = ticker.getAsLong();
+        synchronized (entries) {
+            entries.remove(id);
+            markInvalidated(id, now);
+        }
+    }
+
+    public void invalidateAll() {
+        final long now = ticker.getAsLong();
+        synchronized (entries) {
+            entries.clear();
+            invalidatedAt.clear();
+            allInvalidatedAt = now;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(
+                hits.sum(),
+                misses.sum(),
+                loads.sum(),
+                loadFailures.sum(),
+                evictions.sum(),
+                expirations.sum()
+        );
+    }
+
+    private Optional<CustomerDTO> load(String id) {
+        try {
+            final var loaded = delegate.getById(id);
+            loads.increment();
+            return loaded;
+        } catch (RuntimeException ex) {
+            loadFailures.increment();
+            throw ex;
+        }
+    }
+
+    private Optional<CustomerDTO> lookup(String id) {
+        final long now = ticker.getAsLong();
+        synchronized (entries) {
+            final var entry = entries.get(id);
+            if (entry == null) return null;
+            if (now - entry.expiresAt >= 0) {
+                entries.remove(id);
+                expirations.increment();
+                return null;
+            }
+            return entry.value;
+        }
+    }
+
+    private void store(String id, Optional<CustomerDTO> value, long startedAt) {
+        final long ttl = value.isPresent() ? ttlNanos : negativeTtlNanos;
+        if (ttl <= 0) return;
+        final long now = ticker.getAsLong();
+        synchronized (entries) {
+            // A create() that landed while this value was being loaded is newer than the loaded value
+            final var current = entries.get(id);
+            if (current != null && current.writtenAt - startedAt > 0) return;
+            // So is an invalidation, e.g. createIfAbsent() finding the id a load in flight found missing
+            final var invalidated = invalidatedAt.get(id);
+            if (invalidated != null && invalidated - startedAt > 0) return;
+            if (allInvalidatedAt - startedAt > 0) return;
+            entries.put(id, new Entry(value, now, now + ttl));
+        }
+    }
+
+    // Removed first so a renewed stamp moves to the newest end and is evicted last
+    private void markInvalidated(String id, long now) {
+        invalidatedAt.remove(id);
+        invalidatedAt.put(id, now);
+    }
+
+    private static Optional<CustomerDTO> await(CompletableFuture<Optional<CustomerDTO>> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) throw (RuntimeException) ex.getCause();
+            throw ex;
+        }
+    }
+
+    private static class Entry {
+
+        private final Optional<CustomerDTO> value;
+        private final long writtenAt;
+        private final long expiresAt;
+
+        private Entry(Optional<CustomerDTO> value, long writtenAt, long expiresAt) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+            this.expiresAt = expiresAt;
+        }
+
+    }
+
+}
@@ -0,0 +1,14 @@
+package persistence.changefeed;
+
+import java.util.OptionalLong;
+
+/**
+ * Last change id processed by each consumer of a {@link CustomerChangeFeed}.
+ */
+public interface ChangeOffsetStore {
+
+    OptionalLong load(String consumer);
+
+    void save(String consumer, long changeId);
+
+}
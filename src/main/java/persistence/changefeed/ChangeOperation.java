@@ -0,0 +1,27 @@
+package persistence.changefeed;
+
+public enum ChangeOperation {
+    INSERT('I'),
+    UPDATE('U'),
+    DELETE('D');
+
+    private final char code;
+
+    ChangeOperation(char code) {
+        this.code = code;
+    }
+
+    /**
+     * Code stored in {@code customer_change.operation}, the first letter of the trigger operation.
+     */
+    public char getCode() {
+        return code;
+    }
+
+    public static ChangeOperation of(char code) {
+        for (ChangeOperation operation : values()) {
+            if (operation.code == code) return operation;
+        }
+        throw new IllegalArgumentException("Unknown change operation " + code);
+    }
+}
@@ -0,0 +1,59 @@
+package persistence.changefeed;
+
+import persistence.dto.CustomerDTO;
+
+import java.util.Optional;
+
+/**
+ * One row of the {@code customer_change} outbox.
+ */
+public final class CustomerChange {
+
+    private final long changeId;
+    private final ChangeOperation operation;
+    private final CustomerDTO customer;
+
+    public CustomerChange(long changeId, ChangeOperation operation, CustomerDTO customer) {
+        this.changeId = changeId;
+        this.operation = operation;
+        this.customer = customer;
+    }
+
+    /**
+     * Offset of the change; increases with every change but may skip values.
+     */
+    public long getChangeId() {
+        return changeId;
+    }
+
+    public ChangeOperation getOperation() {
+        return operation;
+    }
+
+    public String getCustomerId() {
+        return customer.getId();
+    }
+
+    /**
+     * The row after the change, or before it for a delete.
+     */
+    public CustomerDTO getCustomer() {
+        return customer;
+    }
+
+    /**
+     * What a lookup by id returns once the change is applied: empty after a delete.
+     */
+    public Optional<CustomerDTO> getCurrent() {
+        return operation == ChangeOperation.DELETE ? Optional.empty() : Optional.of(customer);
+    }
+
+    @Override
+    public String toString() {
+        return "CustomerChange{" +
+                "changeId=" + changeId +
+                ", operation=" + operation +
+                ", customerId='" + customer.getId() + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,198 @@
+package persistence.changefeed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import persistence.dao.CustomerRowMapper;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Publishes the changes recorded by the {@code customer_change} outbox, which triggers on {@code customer} fill in
+ * the same transaction as the change, to in-process subscribers.
+ * <p>
+ * The outbox is read in {@code change_id} order after the consumer's last offset. Ids come from a sequence, so a
+ * transaction that took a lower id can commit after a higher one is already visible; a missing id is therefore
+ * waited for up to {@code gapTimeout} before it is taken as rolled back and skipped. The offset is saved after each
+ * batch, so a restarted consumer resumes there. A consumer without a saved offset starts at the newest change.
+ */
+public class CustomerChangeFeed implements AutoCloseable {
+
+    private static final String SELECT_SQL = "select " + CustomerRowMapper.ALL.getSelectList() +
+            ", change_id, operation from customer_change where change_id > ? order by change_id limit ?;";
+
+    private static final String LATEST_SQL = "select max(change_id) from customer_change;";
+
+    private static final int CHANGE_ID_INDEX = 12;
+    private static final int OPERATION_INDEX = 13;
+
+    private final DataSource dataSource;
+    private final ChangeOffsetStore offsets;
+    private final String consumer;
+    private final int batchSize;
+    private final long gapTimeoutNanos;
+    private final LongSupplier ticker;
+    private final List<CustomerChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private ScheduledExecutorService poller;
+    private long position = -1;
+    private long gapAt = -1;
+    private long gapSince;
+
+    public CustomerChangeFeed(
+            DataSource dataSource,
+            ChangeOffsetStore offsets,
+            String consumer,
+            int batchSize,
+            Duration gapTimeout
+    ) {
+        this(dataSource, offsets, consumer, batchSize, gapTimeout, System::nanoTime);
+    }
+
+    CustomerChangeFeed(
+            DataSource dataSource,
+            ChangeOffsetStore offsets,
+            String consumer,
+            int batchSize,
+            Duration gapTimeout,
+            LongSupplier ticker
+    ) {
+        if (batchSize < 1) throw new IllegalArgumentException("batchSize must be at least 1");
+        this.dataSource = dataSource;
+        this.offsets = offsets;
+        this.consumer = consumer;
+        this.batchSize = batchSize;
+        this.gapTimeoutNanos = gapTimeout.toNanos();
+        this.ticker = ticker;
+    }
+
+    public void subscribe(CustomerChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void unsubscribe(CustomerChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Polls every {@code interval} on a background thread until closed; a full batch is followed by another poll
+     * right away.
+     */
+    public synchronized void start(Duration interval) {
+        if (poller != null) throw new IllegalStateException("Change feed " + consumer + " already started");
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, "customer-change-feed-" + consumer);
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long period = interval.toMillis();
+        poller.scheduleWithFixedDelay(() -> {
+            try {
+                while (poll() == batchSize) {
+                    if (Thread.currentThread().isInterrupted()) return;
+                }
+            } catch (RuntimeException ex) {
+                // Keeps the schedule alive; undelivered changes are retried on the next poll
+                logger.error("Change feed {} failed at {}", consumer, getPosition(), ex);
+            }
+        }, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Delivers the next batch of changes to the subscribers and saves the offset.
+     *
+     * @return the number of changes delivered
+     */
+    public synchronized int poll() {
+        if (position < 0) position = offsets.load(consumer).orElseGet(this::latestChangeId);
+
+        final var changes = read();
+        final long start = position;
+        int delivered = 0;
+        try {
+            for (CustomerChange change : changes) {
+                if (change.getChangeId() != position + 1 && !gapExpired()) break;
+                for (CustomerChangeListener listener : listeners) listener.onChange(change);
+                position = change.getChangeId();
+                delivered++;
+            }
+        } finally {
+            if (position != start) {
+                gapAt = -1;
+                offsets.save(consumer, position);
+            }
+        }
+        return delivered;
+    }
+
+    /**
+     * Last change id delivered, or -1 before the first poll.
+     */
+    public synchronized long getPosition() {
+        return position;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (poller != null) poller.shutdownNow();
+    }
+
+    private boolean gapExpired() {
+        final long now = ticker.getAsLong();
+        if (gapAt != position) {
+            gapAt = position;
+            gapSince = now;
+        }
+        if (now - gapSince < gapTimeoutNanos) return false;
+        logger.warn("Change feed {} skipping missing changes after {}", consumer, position);
+        return true;
+    }
+
+    private List<CustomerChange> read() {
+        try (
+                final Connection conn = dataSource.getConnection();
+                final var stmt = conn.prepareStatement(SELECT_SQL)
+        ) {
+            stmt.setLong(1, position);
+            stmt.setInt(2, batchSize);
+            final var changes = new ArrayList<CustomerChange>();
+            try (final var rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    changes.add(new CustomerChange(
+                            rs.getLong(CHANGE_ID_INDEX),
+                            ChangeOperation.of(rs.getString(OPERATION_INDEX).charAt(0)),
+                            CustomerRowMapper.ALL.map(rs)
+                    ));
+                }
+            }
+            return changes;
+        } catch (SQLException ex) {
+            logger.error("Error reading customer changes after {} for {}", position, consumer, ex);
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private long latestChangeId() {
+        try (
+                final Connection conn = dataSource.getConnection();
+                final var stmt = conn.prepareStatement(LATEST_SQL);
+                final var rs = stmt.executeQuery()
+        ) {
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException ex) {
+            logger.error("Error reading the latest customer change", ex);
+            throw new RuntimeException(ex);
+        }
+    }
+
+}
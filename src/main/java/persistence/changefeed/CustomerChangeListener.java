@@ -0,0 +1,12 @@
+package persistence.changefeed;
+
+@FunctionalInterface
+public interface CustomerChangeListener {
+
+    /**
+     * Called from the feed thread, in change order. Delivery is at least once: after a failure or a restart the
+     * changes since the last saved offset are delivered again, so applying a change must be idempotent.
+     */
+    void onChange(CustomerChange change);
+
+}
@@ -0,0 +1,24 @@
+package persistence.changefeed;
+
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Offsets that only live as long as the process, for consumers that rebuild their state on start anyway.
+ */
+public class InMemoryChangeOffsetStore implements ChangeOffsetStore {
+
+    private final ConcurrentHashMap<String, Long> offsets = new ConcurrentHashMap<>();
+
+    @Override
+    public OptionalLong load(String consumer) {
+        final var offset = offsets.get(consumer);
+        return offset == null ? OptionalLong.empty() : OptionalLong.of(offset);
+    }
+
+    @Override
+    public void save(String consumer, long changeId) {
+        offsets.put(consumer, changeId);
+    }
+
+}
@@ -0,0 +1,65 @@
+package persistence.changefeed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.OptionalLong;
+
+/**
+ * Offsets kept in the {@code customer_change_offset} table, so a consumer resumes where it stopped after a restart.
+ * Each consumer name is expected to be used by a single feed at a time.
+ */
+public class JdbcChangeOffsetStore implements ChangeOffsetStore {
+
+    private static final String SELECT_SQL = "select change_id from customer_change_offset where consumer = ?;";
+
+    private static final String UPDATE_SQL = "update customer_change_offset set change_id = ? where consumer = ?;";
+
+    private static final String INSERT_SQL = "insert into customer_change_offset (consumer, change_id) values (?, ?);";
+
+    private final DataSource dataSource;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    public JdbcChangeOffsetStore(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public OptionalLong load(String consumer) {
+        try (
+                final Connection conn = dataSource.getConnection();
+                final var stmt = conn.prepareStatement(SELECT_SQL)
+        ) {
+            stmt.setString(1, consumer);
+            try (final var rs = stmt.executeQuery()) {
+                return rs.next() ? OptionalLong.of(rs.getLong(1)) : OptionalLong.empty();
+            }
+        } catch (SQLException ex) {
+            logger.error("Error loading change offset of {}", consumer, ex);
+            throw new RuntimeException(ex);
+        }
+    }
+
+    @Override
+    public void save(String consumer, long changeId) {
+        try (final Connection conn = dataSource.getConnection()) {
+            try (final var update = conn.prepareStatement(UPDATE_SQL)) {
+                update.setLong(1, changeId);
+                update.setString(2, consumer);
+                if (update.executeUpdate() > 0) return;
+            }
+            try (final var insert = conn.prepareStatement(INSERT_SQL)) {
+                insert.setString(1, consumer);
+                insert.setLong(2, changeId);
+                insert.executeUpdate();
+            }
+        } catch (SQLException ex) {
+            logger.error("Error saving change offset {} of {}", changeId, consumer, ex);
+            throw new RuntimeException(ex);
+        }
+    }
+
+}
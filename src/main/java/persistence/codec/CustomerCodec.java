@@ -0,0 +1,226 @@
+package persistence.codec;
+
+import persistence.dto.CustomerDTO;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary form of a {@link CustomerDTO}, read and written straight from and to a {@link ByteBuffer}:
+ * <pre>
+ * version      1 byte
+ * field count  varint
+ * present      bitmap, one bit per field (bit i of byte i / 8), clear for null
+ * fields       for each present field: varint byte length, UTF-8 bytes
+ * </pre>
+ * Fields are in {@link persistence.dao.CustomerColumn} order. New fields can be appended within a version: readers
+ * skip fields they do not know and take missing ones as null. An incompatible layout needs a new version byte.
+ * Varints are unsigned LEB128.
+ */
+public final class CustomerCodec {
+
+    public static final byte VERSION = 1;
+
+    private static final int FIELD_COUNT = 11;
+
+    private CustomerCodec() {
+    }
+
+    /**
+     * Exact number of bytes {@link #encode(CustomerDTO, ByteBuffer)} writes for the customer.
+     */
+    public static int encodedSize(CustomerDTO customer) {
+        int size = 1 + varintSize(FIELD_COUNT) + bitmapSize(FIELD_COUNT);
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            final var value = field(customer, i);
+            if (value == null) continue;
+            final int length = utf8Length(value);
+            size += varintSize(length) + length;
+        }
+        return size;
+    }
+
+    public static byte[] encode(CustomerDTO customer) {
+        final var bytes = new byte[encodedSize(customer)];
+        encode(customer, ByteBuffer.wrap(bytes));
+        return bytes;
+    }
+
+    /**
+     * Writes the customer at the buffer's position and advances it.
+     *
+     * @throws BufferOverflowException if there are fewer than {@link #encodedSize(CustomerDTO)} bytes remaining
+     */
+    public static void encode(CustomerDTO customer, ByteBuffer out) {
+        out.put(VERSION);
+        putVarint(out, FIELD_COUNT);
+        final int bitmap = out.position();
+        for (int i = 0; i < bitmapSize(FIELD_COUNT); i++) out.put((byte) 0);
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            final var value = field(customer, i);
+            if (value == null) continue;
+            out.put(bitmap + i / 8, (byte) (out.get(bitmap + i / 8) | 1 << (i % 8)));
+            putVarint(out, utf8Length(value));
+            putUtf8(out, value);
+        }
+    }
+
+    public static CustomerDTO decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Reads a customer at the buffer's position and advances it past the customer.
+     *
+     * @throws IllegalArgumentException if the version is unknown or the data is truncated or malformed
+     */
+    public static CustomerDTO decode(ByteBuffer in) {
+        try {
+            final byte version = in.get();
+            if (version != VERSION) throw new IllegalArgumentException("Unsupported customer codec version " + version);
+            final int fieldCount = getVarint(in);
+            final int bitmap = in.position();
+            in.position(bitmap + bitmapSize(fieldCount));
+
+            final var fields = new String[FIELD_COUNT];
+            for (int i = 0; i < fieldCount; i++) {
+                if ((in.get(bitmap + i / 8) & 1 << (i % 8)) == 0) continue;
+                final int length = getVarint(in);
+                if (i < FIELD_COUNT) {
+                    fields[i] = getUtf8(in, length);
+                } else {
+                    in.position(in.position() + length);
+                }
+            }
+            return new CustomerDTO(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5], fields[6],
+                    fields[7], fields[8], fields[9], fields[10]);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException ex) {
+            throw new IllegalArgumentException("Truncated customer", ex);
+        }
+    }
+
+    private static String field(CustomerDTO customer, int index) {
+        switch (index) {
+            case 0:
+                return customer.getId();
+            case 1:
+                return customer.getCompanyName();
+            case 2:
+                return customer.getContactName();
+            case 3:
+                return customer.getContactTitle();
+            case 4:
+                return customer.getAddress();
+            case 5:
+                return customer.getCity();
+            case 6:
+                return customer.getRegion();
+            case 7:
+                return customer.getPostalCode();
+            case 8:
+                return customer.getCountry();
+            case 9:
+                return customer.getPhone();
+            default:
+                return customer.getFax();
+        }
+    }
+
+    private static int bitmapSize(int fieldCount) {
+        return (fieldCount + 7) / 8;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) size++;
+        return size;
+    }
+
+    private static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static int getVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (value < 0) break;
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in customer");
+    }
+
+    // Same bytes as String.getBytes(UTF_8), which replaces unpaired surrogates with '?'
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    length += 4;
+                    i++;
+                } else {
+                    length++;
+                }
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static void putUtf8(ByteBuffer out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | c >> 6));
+                out.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    out.put((byte) (0xF0 | codePoint >> 18));
+                    out.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                    out.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                    out.put((byte) (0x80 | codePoint & 0x3F));
+                } else {
+                    out.put((byte) '?');
+                }
+            } else {
+                out.put((byte) (0xE0 | c >> 12));
+                out.put((byte) (0x80 | c >> 6 & 0x3F));
+                out.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    private static String getUtf8(ByteBuffer in, int length) {
+        if (length > in.remaining()) throw new BufferUnderflowException();
+        final String value;
+        if (in.hasArray()) {
+            // Decoded straight from the backing array
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        } else {
+            value = StandardCharsets.UTF_8.decode(in.slice().limit(length)).toString();
+        }
+        in.position(in.position() + length);
+        return value;
+    }
+
+}
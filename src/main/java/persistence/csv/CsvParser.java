@@ -0,0 +1,145 @@
+package persistence.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Streaming RFC 4180 parser using PostgreSQL's {@code COPY ... (FORMAT csv)} conventions: an unquoted empty field
+ * is {@code null} while a quoted one ({@code ""}) is an empty string.
+ * <p>
+ * A malformed record makes {@link #hasNext()} throw an {@link IllegalArgumentException} after skipping the rest of
+ * it, so parsing can go on with the following record.
+ */
+public class CsvParser implements Iterator<String[]> {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private long lineNumber = 1;
+    private long recordLineNumber;
+    private String[] next;
+    private boolean finished;
+
+    public CsvParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) next = readRecord();
+        return next != null;
+    }
+
+    @Override
+    public String[] next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        final var record = next;
+        next = null;
+        return record;
+    }
+
+    /**
+     * Line on which the last record returned by {@link #next()} started.
+     */
+    public long getRecordLineNumber() {
+        return recordLineNumber;
+    }
+
+    private String[] readRecord() {
+        int c = read();
+        while (c == '\n' || c == '\r') {
+            if (c == '\n') lineNumber++;
+            c = read();
+        }
+        if (c == -1) {
+            finished = true;
+            return null;
+        }
+
+        recordLineNumber = lineNumber;
+        final var fields = new ArrayList<String>();
+        final var field = new StringBuilder();
+        while (true) {
+            boolean quoted = false;
+            field.setLength(0);
+            if (c == '"') {
+                quoted = true;
+                while (true) {
+                    c = read();
+                    if (c == -1) throw new IllegalArgumentException("Unterminated quoted field at line " + recordLineNumber);
+                    if (c == '"') {
+                        c = read();
+                        if (c != '"') break;
+                    } else if (c == '\n') {
+                        lineNumber++;
+                    }
+                    field.append((char) c);
+                }
+            }
+            while (c != ',' && c != '\n' && c != '\r' && c != -1) {
+                if (quoted) {
+                    final var error = new IllegalArgumentException("Unexpected character after quoted field at line " +
+                            lineNumber);
+                    skipRecord(c);
+                    throw error;
+                }
+                field.append((char) c);
+                c = read();
+            }
+            fields.add(quoted || field.length() > 0 ? field.toString() : null);
+
+            if (c == ',') {
+                c = read();
+                continue;
+            }
+            if (c == '\r') {
+                c = read();
+                if (c != '\n') unread();
+            }
+            if (c == '\n') lineNumber++;
+            return fields.toArray(new String[0]);
+        }
+    }
+
+    // Moves past the rest of a malformed record: to the next line break outside quotes, as ChunkSplitter sees it
+    private void skipRecord(int c) {
+        boolean quoted = false;
+        while (c != -1 && (quoted || c != '\n')) {
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == '\n') {
+                lineNumber++;
+            }
+            c = read();
+        }
+        if (c == '\n') lineNumber++;
+    }
+
+    private int read() {
+        if (position == limit) {
+            try {
+                limit = reader.read(buffer, 0, buffer.length);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private void unread() {
+        if (limit > 0) position--;
+    }
+
+}
@@ -0,0 +1,57 @@
+package persistence.csv;
+
+import persistence.dto.CustomerDTO;
+
+public final class CustomerCsv {
+
+    public static final int COLUMN_COUNT = 11;
+
+    private CustomerCsv() {
+    }
+
+    public static CustomerDTO toCustomer(String[] record) {
+        if (record.length != COLUMN_COUNT) {
+            throw new IllegalArgumentException("Expected " + COLUMN_COUNT + " columns but got " + record.length);
+        }
+        return new CustomerDTO(
+                record[0],
+                record[1],
+                record[2],
+                record[3],
+                record[4],
+                record[5],
+                record[6],
+                record[7],
+                record[8],
+                record[9],
+                record[10]
+        );
+    }
+
+    public static void appendRow(StringBuilder sb, CustomerDTO customer) {
+        appendField(sb, customer.getId()).append(',');
+        appendField(sb, customer.getCompanyName()).append(',');
+        appendField(sb, customer.getContactName()).append(',');
+        appendField(sb, customer.getContactTitle()).append(',');
+        appendField(sb, customer.getAddress()).append(',');
+        appendField(sb, customer.getCity()).append(',');
+        appendField(sb, customer.getRegion()).append(',');
+        appendField(sb, customer.getPostalCode()).append(',');
+        appendField(sb, customer.getCountry()).append(',');
+        appendField(sb, customer.getPhone()).append(',');
+        appendField(sb, customer.getFax()).append('\n');
+    }
+
+    // NULL is written as an unquoted empty field, so every value (even an empty one) is quoted
+    private static StringBuilder appendField(StringBuilder sb, String value) {
+        if (value == null) return sb;
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"') sb.append('"');
+            sb.append(c);
+        }
+        return sb.append('"');
+    }
+
+}
@@ -0,0 +1,60 @@
+package persistence.dao;
+
+import persistence.dto.CustomerDTO;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+public class BatchInsertResult {
+
+    private final List<CustomerDTO> customers;
+    private final List<InsertOutcome> outcomes;
+
+    public BatchInsertResult(List<CustomerDTO> customers, List<InsertOutcome> outcomes) {
+        if (customers.size() != outcomes.size()) {
+            throw new IllegalArgumentException("There must be exactly one outcome per customer");
+        }
+        this.customers = Collections.unmodifiableList(customers);
+        this.outcomes = Collections.unmodifiableList(outcomes);
+    }
+
+    public List<InsertOutcome> getOutcomes() {
+        return outcomes;
+    }
+
+    public InsertOutcome getOutcome(int index) {
+        return outcomes.get(index);
+    }
+
+    public List<CustomerDTO> getCreated() {
+        final var created = new ArrayList<CustomerDTO>();
+        for (int i = 0; i < customers.size(); i++) {
+            if (outcomes.get(i) == InsertOutcome.CREATED) created.add(customers.get(i));
+        }
+        return created;
+    }
+
+    public Set<String> getDuplicateIds() {
+        final var duplicated = new LinkedHashSet<String>();
+        for (int i = 0; i < customers.size(); i++) {
+            if (outcomes.get(i) == InsertOutcome.DUPLICATE) duplicated.add(customers.get(i).getId());
+        }
+        return duplicated;
+    }
+
+    public int getCreatedCount() {
+        return (int) outcomes.stream().filter(InsertOutcome.CREATED::equals).count();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchInsertResult{" +
+                "created=" + getCreatedCount() +
+                ", duplicateIds=" + getDuplicateIds() +
+                '}';
+    }
+
+}
@@ -0,0 +1,124 @@
+package persistence.dao;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import persistence.csv.CsvParser;
+import persistence.csv.CustomerCsv;
+import persistence.dto.CustomerDTO;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+public class CustomerBulkLoader {
+
+    private static final String COPY_SQL = "copy customer (customer_id, company_name, contact_name, contact_title, " +
+            "address, city, region, postal_code, country, phone, fax) from stdin with (format csv)";
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private static final int FALLBACK_BATCH_SIZE = 500;
+
+    private final DataSource dataSource;
+    private final CustomerDAO customerDAO;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    public CustomerBulkLoader(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.customerDAO = new CustomerDAO(dataSource);
+    }
+
+    public long load(Stream<CustomerDTO> customers) {
+        return load(customers.iterator());
+    }
+
+    /**
+     * Loads the customers with {@code COPY FROM STDIN} on PostgreSQL, in a single transaction that fails as a whole
+     * on a duplicated id. Other databases fall back to {@link CustomerDAO#createAll} batches, which skip duplicates.
+     *
+     * @return the number of customers loaded
+     */
+    public long load(Iterator<CustomerDTO> customers) {
+        try (final Connection conn = dataSource.getConnection()) {
+            if (Dialect.of(conn) == Dialect.POSTGRESQL) return copy(conn, customers);
+        } catch (SQLException ex) {
+            logger.error("Error bulk loading customers", ex);
+            throw new RuntimeException(ex);
+        }
+        return insertInBatches(customers);
+    }
+
+    /**
+     * Loads a headerless CSV file whose columns follow the customer table order. Unquoted empty fields are NULL.
+     *
+     * @return the number of customers loaded
+     */
+    public long loadCsv(Reader csv) {
+        try (final Connection conn = dataSource.getConnection()) {
+            if (Dialect.of(conn) == Dialect.POSTGRESQL) {
+                return conn.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL, csv, COPY_BUFFER_SIZE);
+            }
+        } catch (SQLException | IOException ex) {
+            logger.error("Error bulk loading customers from CSV", ex);
+            throw new RuntimeException(ex);
+        }
+
+        final var parser = new CsvParser(csv);
+        return insertInBatches(new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return parser.hasNext();
+            }
+
+            @Override
+            public CustomerDTO next() {
+                return CustomerCsv.toCustomer(parser.next());
+            }
+        });
+    }
+
+    private long copy(Connection conn, Iterator<CustomerDTO> customers) throws SQLException {
+        final CopyIn copyIn = conn.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+        try {
+            final var rows = new StringBuilder(COPY_BUFFER_SIZE + 1024);
+            while (customers.hasNext()) {
+                CustomerCsv.appendRow(rows, customers.next());
+                if (rows.length() >= COPY_BUFFER_SIZE) flush(copyIn, rows);
+            }
+            flush(copyIn, rows);
+            return copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) copyIn.cancelCopy();
+        }
+    }
+
+    private static void flush(CopyIn copyIn, StringBuilder rows) throws SQLException {
+        if (rows.length() == 0) return;
+        final var bytes = rows.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        rows.setLength(0);
+    }
+
+    private long insertInBatches(Iterator<CustomerDTO> customers) {
+        long created = 0;
+        final var batch = new ArrayList<CustomerDTO>(FALLBACK_BATCH_SIZE);
+        while (customers.hasNext()) {
+            batch.add(customers.next());
+            if (batch.size() == FALLBACK_BATCH_SIZE) {
+                created += customerDAO.createAll(batch).getCreatedCount();
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) created += customerDAO.createAll(batch).getCreatedCount();
+        return created;
+    }
+
+}
@@ -0,0 +1,55 @@
+package persistence.dao;
+
+/**
+ * Customer table columns in DDL order, with the limits declared in {@code docker/10_DDL.sql}, except for
+ * {@code customer_id}: see {@link #CUSTOMER_ID}.
+ */
+public enum CustomerColumn {
+    /**
+     * Declared as an unbounded {@code bpchar} in {@code docker/10_DDL.sql}; the limit of 5 is the Northwind customer
+     * code, which the importer enforces on purpose. It matches the {@code character(5)} column of the test schema and
+     * of the load generator's table.
+     */
+    CUSTOMER_ID("customer_id", false, false, 5),
+    COMPANY_NAME("company_name", false, false, 40),
+    CONTACT_NAME("contact_name", false, true, 30),
+    CONTACT_TITLE("contact_title", true, true, 30),
+    ADDRESS("address", false, true, 60),
+    CITY("city", true, true, 15),
+    REGION("region", true, true, 15),
+    POSTAL_CODE("postal_code", false, true, 10),
+    COUNTRY("country", true, true, 15),
+    PHONE("phone", false, true, 24),
+    FAX("fax", false, true, 24);
+
+    private final String columnName;
+    private final boolean lowCardinality;
+    private final boolean nullable;
+    private final int maxLength;
+
+    CustomerColumn(String columnName, boolean lowCardinality, boolean nullable, int maxLength) {
+        this.columnName = columnName;
+        this.lowCardinality = lowCardinality;
+        this.nullable = nullable;
+        this.maxLength = maxLength;
+    }
+
+    public String getColumnName() {
+        return columnName;
+    }
+
+    public boolean isLowCardinality() {
+        return lowCardinality;
+    }
+
+    public boolean isNullable() {
+        return nullable;
+    }
+
+    /**
+     * Maximum length in characters, as counted by PostgreSQL for {@code character varying(n)}.
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+}
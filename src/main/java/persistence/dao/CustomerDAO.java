@@ -3,80 +3,729 @@ package persistence.dao;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import persistence.dto.CustomerDTO;
+import persistence.metrics.Phase;
+import persistence.metrics.StatementInstrumentation;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class CustomerDAO {
+public class CustomerDAO implements CustomerRepository {
 
-    private static final String GET_BY_ID_SQL = "select customer_id, company_name, contact_name, contact_title, " +
-            "address, city, region, postal_code, country, phone, fax from customer where customer_id = ?;";
+    private static final String SELECT_SQL = "select " + CustomerRowMapper.ALL.getSelectList() + " from customer";
+
+    private static final String PROJECTED_STREAM_SQL = "select %s from customer;";
+
+    private static final String GET_BY_ID_SQL = SELECT_SQL + " where customer_id = ?;";
+
+    private static final String GET_BY_ID_ARRAY_SQL = SELECT_SQL + " where customer_id = any(?::bpchar[]);";
+
+    private static final String GET_BY_IDS_SQL = SELECT_SQL + " where customer_id in (%s);";
+
+    private static final String STREAM_ALL_SQL = SELECT_SQL + ";";
+
+    private static final String STREAM_BY_COUNTRY_SQL = SELECT_SQL + " where country = ?;";
+    // Matches the customer_country_city_idx index so pages are read straight off it
+    private static final String PAGE_ORDER_SQL = " order by country nulls first, city nulls first, customer_id limit ?";
 
     private static final String INSERT_SQL = "insert into customer (customer_id, company_name, contact_name," +
             "contact_title, address, city, region, postal_code, country, phone, fax) VALUES( ?, ?, ?, ?, ?, ?, ?," +
             "?, ?, ?, ?);";
 
+    private static final String INSERT_IF_ABSENT_SQL = "insert into customer (customer_id, company_name, " +
+            "contact_name, contact_title, address, city, region, postal_code, country, phone, fax) VALUES( ?, ?, ?, " +
+            "?, ?, ?, ?, ?, ?, ?, ?) on conflict (customer_id) do nothing returning customer_id;";
+
+    private static final String INSERT_ROWS_IGNORE_SQL = "insert into customer (customer_id, company_name, " +
+            "contact_name, contact_title, address, city, region, postal_code, country, phone, fax) VALUES %s " +
+            "on conflict (customer_id) do nothing returning customer_id;";
+
+    private static final String MERGE_IF_ABSENT_SQL = "merge into customer t using (select " +
+            "cast(? as varchar) as customer_id, cast(? as varchar) as company_name, " +
+            "cast(? as varchar) as contact_name, cast(? as varchar) as contact_title, cast(? as varchar) as address, " +
+            "cast(? as varchar) as city, cast(? as varchar) as region, cast(? as varchar) as postal_code, " +
+            "cast(? as varchar) as country, cast(? as varchar) as phone, cast(? as varchar) as fax) s " +
+            "on (t.customer_id = s.customer_id) when not matched then insert (customer_id, company_name, " +
+            "contact_name, contact_title, address, city, region, postal_code, country, phone, fax) values (" +
+            "s.customer_id, s.company_name, s.contact_name, s.contact_title, s.address, s.city, s.region, " +
+            "s.postal_code, s.country, s.phone, s.fax);";
+
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private static final String DELETE_BY_IDS_SQL = "delete from customer where customer_id in (%s);";
+
+    private static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static final int MERGE_ATTEMPTS = 3;
+
+    private static final int INSERT_COLUMNS = 11;
+
+    // PostgreSQL takes at most 65535 binds per statement
+    private static final int MAX_ROWS_PER_INSERT = 65_535 / INSERT_COLUMNS;
+
+    private static final int IN_LIST_SIZE = 100;
+
+    private static final int ARRAY_SIZE = 10_000;
+
+    private static final int STREAM_FETCH_SIZE = 1_000;
+
     private final DataSource dataSource;
+    private final DataSource readDataSource;
+    private final StatementInstrumentation instrumentation;
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private volatile Dialect dialect;
 
     public CustomerDAO(DataSource dataSource) {
+        this(dataSource, StatementInstrumentation.DISABLED);
+    }
+
+    public CustomerDAO(DataSource dataSource, StatementInstrumentation instrumentation) {
+        this(dataSource, dataSource, instrumentation);
+    }
+
+    /**
+     * Reads (lookups, streams and pages) use {@code readDataSource}, for instance
+     * {@link persistence.datasource.ReplicaRoutingDataSource#readOnly()}; inserts use {@code dataSource}.
+     */
+    public CustomerDAO(DataSource dataSource, DataSource readDataSource, StatementInstrumentation instrumentation) {
         this.dataSource = dataSource;
+        this.readDataSource = readDataSource;
+        this.instrumentation = instrumentation;
     }
 
+    @Override
     public Optional<CustomerDTO> getById(String id) {
-        try (
-                final Connection conn = dataSource.getConnection();
-                final var stmt = conn.prepareStatement(GET_BY_ID_SQL)
-        ) {
-            stmt.setString(1, id);
-            final var rs = stmt.executeQuery();
-            if (!rs.next()) return Optional.empty();
-            return Optional.of(
-                    new CustomerDTO(
-                            rs.getString(1),
-                            rs.getString(2),
-                            rs.getString(3),
-                            rs.getString(4),
-                            rs.getString(5),
-                            rs.getString(6),
-                            rs.getString(7),
-                            rs.getString(8),
-                            rs.getString(9),
-                            rs.getString(10),
-                            rs.getString(11)
-                    )
-            );
+        final var op = instrumentation.start("getById");
+        try (final Connection conn = readDataSource.getConnection()) {
+            op.lap(Phase.ACQUIRE);
+            try (final var stmt = conn.prepareStatement(GET_BY_ID_SQL)) {
+                op.lap(Phase.PREPARE);
+                stmt.setString(1, id);
+                try (final var rs = stmt.executeQuery()) {
+                    op.lap(Phase.EXECUTE);
+                    if (!rs.next()) return Optional.empty();
+                    final var customer = CustomerRowMapper.ALL.map(rs);
+                    op.rows(1);
+                    op.lap(Phase.MAP);
+                    return Optional.of(customer);
+                }
+            }
         } catch (SQLException ex) {
+            op.failed(ex);
             logger.error("Error getting customer by id {}", id, ex);
             throw new RuntimeException(ex);
+        } finally {
+            op.finish();
+        }
+    }
+
+    @Override
+    public Map<String, CustomerDTO> getByIds(Collection<String> ids) {
+        // Keys are matched blank-insensitively but reported back exactly as the caller passed them
+        final var requestedIds = new LinkedHashMap<String, String>();
+        for (String id : ids) requestedIds.putIfAbsent(normalizeId(id), id);
+        final var found = new LinkedHashMap<String, CustomerDTO>();
+        if (requestedIds.isEmpty()) return found;
+
+        final var keys = List.copyOf(requestedIds.values());
+        final var mapper = CustomerRowMapper.ALL.deduplicating();
+        final var op = instrumentation.start("getByIds");
+        try (final Connection conn = readDataSource.getConnection()) {
+            op.lap(Phase.ACQUIRE);
+            if (dialect(conn) == Dialect.POSTGRESQL) {
+                try (final var stmt = conn.prepareStatement(GET_BY_ID_ARRAY_SQL)) {
+                    op.lap(Phase.PREPARE);
+                    for (int from = 0; from < keys.size(); from += ARRAY_SIZE) {
+                        final var chunk = keys.subList(from, Math.min(from + ARRAY_SIZE, keys.size()));
+                        final var array = conn.createArrayOf("varchar", chunk.toArray());
+                        try {
+                            stmt.setArray(1, array);
+                            collect(stmt, mapper, requestedIds, found, op);
+                        } finally {
+                            array.free();
+                        }
+                    }
+                }
+            } else {
+                try (final var stmt = conn.prepareStatement(String.format(GET_BY_IDS_SQL, placeholders(IN_LIST_SIZE)))) {
+                    op.lap(Phase.PREPARE);
+                    for (int from = 0; from < keys.size(); from += IN_LIST_SIZE) {
+                        final var chunk = keys.subList(from, Math.min(from + IN_LIST_SIZE, keys.size()));
+                        bindPadded(stmt, chunk, IN_LIST_SIZE);
+                        collect(stmt, mapper, requestedIds, found, op);
+                    }
+                }
+            }
+            return found;
+        } catch (SQLException ex) {
+            op.failed(ex);
+            logger.error("Error getting {} customers by id", keys.size(), ex);
+            throw new RuntimeException(ex);
+        } finally {
+            op.finish();
+        }
+    }
+
+    private static void collect(
+            PreparedStatement stmt,
+            RowMapper<CustomerDTO> mapper,
+            Map<String, String> requestedIds,
+            Map<String, CustomerDTO> found,
+            StatementInstrumentation.Operation op
+    ) throws SQLException {
+        try (final var rs = stmt.executeQuery()) {
+            op.lap(Phase.EXECUTE);
+            var rows = 0;
+            while (rs.next()) {
+                final var customer = mapper.map(rs);
+                found.put(requestedIds.get(normalizeId(customer.getId())), customer);
+                rows++;
+            }
+            op.rows(rows);
+            op.lap(Phase.MAP);
+        }
+    }
+
+    /**
+     * Lazily streams every customer through a server-side cursor. The stream holds a connection until it is
+     * closed, so it must be consumed inside a try-with-resources block.
+     */
+    public Stream<CustomerDTO> streamAll() {
+        return stream(STREAM_ALL_SQL, CustomerRowMapper.ALL, stmt -> {
+        });
+    }
+
+    /**
+     * Like {@link #streamAll()} but only reads the given columns; the others are null in the returned customers.
+     */
+    public Stream<CustomerDTO> streamAll(Set<CustomerColumn> columns) {
+        final var mapper = CustomerRowMapper.of(columns);
+        return stream(String.format(PROJECTED_STREAM_SQL, mapper.getSelectList()), mapper, stmt -> {
+        });
+    }
+
+    public Stream<CustomerDTO> streamByCountry(String country) {
+        return stream(STREAM_BY_COUNTRY_SQL, CustomerRowMapper.ALL, stmt -> stmt.setString(1, country));
+    }
+
+    /**
+     * Keyset pagination ordered by country, city (nulls first) and customer_id. Pass null as {@code afterKey} for
+     * the first page and the previous {@link Page#getNextToken()} afterwards; each page costs the same regardless
+     * of how deep it is.
+     */
+    public Page<CustomerDTO> page(CustomerFilter filter, String afterKey, int limit) {
+        if (limit < 1) throw new IllegalArgumentException("limit must be at least 1");
+        final var after = afterKey == null ? null : PageKey.decode(afterKey);
+
+        final var op = instrumentation.start("page");
+        try (final Connection conn = readDataSource.getConnection()) {
+            op.lap(Phase.ACQUIRE);
+            final var binds = new ArrayList<Object>();
+            // One extra row tells whether there is a next page without a count query
+            final var sql = pageSql(filter, after, limit + 1, dialect(conn), binds);
+            final var items = new ArrayList<CustomerDTO>(limit + 1);
+            try (final var stmt = conn.prepareStatement(sql)) {
+                op.lap(Phase.PREPARE);
+                for (int i = 0; i < binds.size(); i++) stmt.setObject(i + 1, binds.get(i));
+                try (final var rs = stmt.executeQuery()) {
+                    op.lap(Phase.EXECUTE);
+                    final var mapper = CustomerRowMapper.ALL.deduplicating();
+                    while (rs.next()) items.add(mapper.map(rs));
+                    op.rows(items.size());
+                    op.lap(Phase.MAP);
+                }
+            }
+            if (items.size() <= limit) return new Page<>(items, null);
+            final var pageItems = items.subList(0, limit);
+            return new Page<>(pageItems, PageKey.of(pageItems.get(limit - 1)).encode());
+        } catch (SQLException ex) {
+            op.failed(ex);
+            logger.error("Error getting page of customers with {} after {}", filter, afterKey, ex);
+            throw new RuntimeException(ex);
+        } finally {
+            op.finish();
+        }
+    }
+
+    // Package-private so tests can look at the plan of a page query
+    static String pageSql(CustomerFilter filter, PageKey after, int limit, Dialect dialect, List<Object> binds) {
+        final var filterConditions = new ArrayList<String>();
+        final var filterBinds = new ArrayList<Object>();
+        if (filter.getCountry() != null) {
+            filterConditions.add("country = ?");
+            filterBinds.add(filter.getCountry());
+        }
+        if (filter.getCity() != null) {
+            filterConditions.add("city = ?");
+            filterBinds.add(filter.getCity());
+        }
+        if (after != null && dialect == Dialect.H2) return seekRangesSql(filterConditions, filterBinds, after, limit, binds);
+
+        final var where = new StringJoiner(" and ", " where ", "").setEmptyValue("");
+        filterConditions.forEach(where::add);
+        binds.addAll(filterBinds);
+        if (after != null) where.add(seekPredicate(after, dialect, binds));
+        binds.add(limit);
+        return SELECT_SQL + where + PAGE_ORDER_SQL;
+    }
+
+    // H2 only narrows its index scan with plain comparisons ANDed together, and starts a `>` range at the first equal
+    // key, so an OR-expanded or row value seek reads every row before the key. The rows after the key are read
+    // instead as three ranges that each seek straight to their first row: same country and city with a greater id,
+    // same country with a greater city, and a greater country. The string right after x is x followed by '\0'.
+    private static String seekRangesSql(
+            List<String> filterConditions,
+            List<Object> filterBinds,
+            PageKey after,
+            int limit,
+            List<Object> binds
+    ) {
+        final String[][] keyColumns = {{"country", after.getCountry()}, {"city", after.getCity()}};
+        final var ranges = new StringJoiner(" union all ");
+        for (int equal = keyColumns.length; equal >= 0; equal--) {
+            final var where = new StringJoiner(" and ", " where ", "");
+            filterConditions.forEach(where::add);
+            binds.addAll(filterBinds);
+            for (int i = 0; i < equal; i++) {
+                if (keyColumns[i][1] == null) {
+                    where.add(keyColumns[i][0] + " is null");
+                } else {
+                    where.add(keyColumns[i][0] + " = ?");
+                    binds.add(keyColumns[i][1]);
+                }
+            }
+            if (equal == keyColumns.length) {
+                where.add("customer_id > ?");
+                binds.add(after.getCustomerId());
+            } else if (keyColumns[equal][1] == null) {
+                where.add(keyColumns[equal][0] + " is not null");
+            } else {
+                where.add(keyColumns[equal][0] + " >= ?");
+                binds.add(keyColumns[equal][1] + '\0');
+            }
+            binds.add(limit);
+            ranges.add("select * from (" + SELECT_SQL + where + PAGE_ORDER_SQL + ") range_" + equal);
+        }
+        binds.add(limit);
+        return "select * from (" + ranges + ") ranges" + PAGE_ORDER_SQL;
+    }
+
+    // Rows strictly after the key in PAGE_ORDER_SQL order
+    private static String seekPredicate(PageKey after, Dialect dialect, List<Object> binds) {
+        final var idBind = dialect == Dialect.POSTGRESQL ? "?::bpchar" : "?";
+        if (dialect == Dialect.POSTGRESQL && after.getCountry() != null && after.getCity() != null) {
+            // A row value comparison becomes a single index range condition; it is only exact without nulls
+            binds.add(after.getCountry());
+            binds.add(after.getCity());
+            binds.add(after.getCustomerId());
+            return "(country, city, customer_id) > (?, ?, " + idBind + ")";
+        }
+
+        final var sql = new StringBuilder("(");
+        int open = 1;
+        for (String[] column : new String[][]{{"country", after.getCountry()}, {"city", after.getCity()}}) {
+            final var name = column[0];
+            final var value = column[1];
+            if (value == null) {
+                sql.append(name).append(" is not null or (").append(name).append(" is null and (");
+            } else {
+                sql.append(name).append(" > ? or (").append(name).append(" = ? and (");
+                binds.add(value);
+                binds.add(value);
+            }
+            open += 2;
+        }
+        sql.append("customer_id > ").append(idBind);
+        binds.add(after.getCustomerId());
+        return sql.append(")".repeat(open)).toString();
+    }
+
+    private Stream<CustomerDTO> stream(String sql, CustomerRowMapper mapper, StatementBinder binder) {
+        final var op = instrumentation.start("stream");
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        try {
+            conn = readDataSource.getConnection();
+            op.lap(Phase.ACQUIRE);
+            // pgjdbc only fetches in chunks (server-side cursor) inside a transaction
+            conn.setAutoCommit(false);
+            stmt = conn.prepareStatement(sql);
+            op.lap(Phase.PREPARE);
+            stmt.setFetchSize(STREAM_FETCH_SIZE);
+            binder.bind(stmt);
+            final var rs = stmt.executeQuery();
+            op.lap(Phase.EXECUTE);
+            final var cursor = new CustomerCursor(conn, stmt, rs, mapper.deduplicating(), op);
+            return StreamSupport.stream(cursor, false).onClose(cursor::close);
+        } catch (SQLException ex) {
+            op.failed(ex);
+            new CustomerCursor(conn, stmt, null, null, op).close();
+            logger.error("Error opening customer stream", ex);
+            throw new RuntimeException(ex);
         }
     }
 
+    @Override
     public CustomerDTO create(CustomerDTO customer) {
-        try (
-                final Connection conn = dataSource.getConnection();
-                final var stmt = conn.prepareStatement(INSERT_SQL)
-        ) {
-            stmt.setString(1, customer.getId());
-            stmt.setString(2, customer.getCompanyName());
-            stmt.setString(3, customer.getContactName());
-            stmt.setString(4, customer.getContactTitle());
-            stmt.setString(5, customer.getAddress());
-            stmt.setString(6, customer.getCity());
-            stmt.setString(7, customer.getRegion());
-            stmt.setString(8, customer.getPostalCode());
-            stmt.setString(9, customer.getCountry());
-            stmt.setString(10, customer.getPhone());
-            stmt.setString(11, customer.getFax());
-            final int insertedRows = stmt.executeUpdate();
-            if (insertedRows != 1) throw new RuntimeException("Inconsistency creating customer");
-            return customer;
+        final var op = instrumentation.start("create");
+        try (final Connection conn = dataSource.getConnection()) {
+            op.lap(Phase.ACQUIRE);
+            try (final var stmt = conn.prepareStatement(INSERT_SQL)) {
+                op.lap(Phase.PREPARE);
+                bindInsert(stmt, customer);
+                final int insertedRows = stmt.executeUpdate();
+                op.lap(Phase.EXECUTE);
+                if (insertedRows != 1) throw new RuntimeException("Inconsistency creating customer");
+                op.rows(insertedRows);
+                return customer;
+            }
         } catch (SQLException ex) {
+            op.failed(ex);
             logger.error("Error creating customer {}", customer, ex);
             throw new RuntimeException(ex);
+        } finally {
+            op.finish();
+        }
+    }
+
+    /**
+     * Inserts the customer unless one with the same id already exists, in a single statement: {@code INSERT ...
+     * ON CONFLICT DO NOTHING} on PostgreSQL and {@code MERGE} elsewhere.
+     *
+     * @return true if the customer was created by this call
+     */
+    @Override
+    public boolean createIfAbsent(CustomerDTO customer) {
+        final var op = instrumentation.start("createIfAbsent");
+        try (final Connection conn = dataSource.getConnection()) {
+            op.lap(Phase.ACQUIRE);
+            final boolean created;
+            if (dialect(conn) == Dialect.POSTGRESQL) {
+                try (final var stmt = conn.prepareStatement(INSERT_IF_ABSENT_SQL)) {
+                    op.lap(Phase.PREPARE);
+                    bindInsert(stmt, customer);
+                    try (final var rs = stmt.executeQuery()) {
+                        created = rs.next();
+                    }
+                }
+            } else {
+                try (final var stmt = conn.prepareStatement(MERGE_IF_ABSENT_SQL)) {
+                    op.lap(Phase.PREPARE);
+                    bindInsert(stmt, customer);
+                    created = stmt.executeUpdate() == 1;
+                }
+            }
+            op.lap(Phase.EXECUTE);
+            if (created) op.rows(1);
+            return created;
+        } catch (SQLException ex) {
+            // MERGE can still lose a race against a concurrent insert of the same id
+            if (UNIQUE_VIOLATION.equals(ex.getSQLState())) return false;
+            op.failed(ex);
+            logger.error("Error creating customer {} if absent", customer, ex);
+            throw new RuntimeException(ex);
+        } finally {
+            op.finish();
         }
     }
 
+    public BatchInsertResult createAll(Collection<CustomerDTO> customers) {
+        return createAll(customers, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Inserts the customers in one transaction, {@code batchSize} rows per round trip: a multi-row insert on
+     * PostgreSQL, whatever the driver's {@code reWriteBatchedInserts}, and a JDBC batch elsewhere. Rows whose id
+     * already exists, including ids inserted concurrently by someone else, are skipped by the database ({@code ON
+     * CONFLICT DO NOTHING} on PostgreSQL, {@code MERGE} elsewhere) and reported as {@link InsertOutcome#DUPLICATE}.
+     */
+    public BatchInsertResult createAll(Collection<CustomerDTO> customers, int batchSize) {
+        if (batchSize < 1) throw new IllegalArgumentException("batchSize must be at least 1");
+
+        final var toCreate = List.copyOf(customers);
+        if (toCreate.isEmpty()) return new BatchInsertResult(toCreate, new ArrayList<>());
+
+        final var op = instrumentation.start("createAll");
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    return new BatchInsertResult(toCreate, insertAll(toCreate, batchSize, op));
+                } catch (SQLException ex) {
+                    // MERGE can still lose a race against a concurrent insert of the same id; the retry sees it
+                    if (!UNIQUE_VIOLATION.equals(ex.getSQLState()) || attempt >= MERGE_ATTEMPTS) throw ex;
+                }
+            }
+        } catch (SQLException ex) {
+            op.failed(ex);
+            logger.error("Error creating {} customers", toCreate.size(), ex);
+            throw new RuntimeException(ex);
+        } finally {
+            op.finish();
+        }
+    }
+
+    private List<InsertOutcome> insertAll(
+            List<CustomerDTO> toCreate,
+            int batchSize,
+            StatementInstrumentation.Operation op
+    ) throws SQLException {
+        final var outcomes = new ArrayList<InsertOutcome>(toCreate.size());
+        try (final Connection conn = dataSource.getConnection()) {
+            op.lap(Phase.ACQUIRE);
+            final boolean postgres = dialect(conn) == Dialect.POSTGRESQL;
+            final int chunkSize = postgres ? Math.min(batchSize, MAX_ROWS_PER_INSERT) : batchSize;
+            conn.setAutoCommit(false);
+            try {
+                final var seenIds = new HashSet<String>();
+                for (int from = 0; from < toCreate.size(); from += chunkSize) {
+                    final var chunk = toCreate.subList(from, Math.min(from + chunkSize, toCreate.size()));
+                    // Position in outcomes of each customer sent in this chunk, keyed by id, in chunk order
+                    final var positions = new LinkedHashMap<String, Integer>();
+                    final var rows = new ArrayList<CustomerDTO>(chunk.size());
+                    for (CustomerDTO customer : chunk) {
+                        final var id = normalizeId(customer.getId());
+                        if (seenIds.add(id)) {
+                            positions.put(id, outcomes.size());
+                            rows.add(customer);
+                        }
+                        outcomes.add(InsertOutcome.DUPLICATE);
+                    }
+                    if (rows.isEmpty()) continue;
+                    final var created = postgres ? insertIgnoring(conn, rows, op) : mergeIfAbsent(conn, rows, op);
+                    for (String id : created) outcomes.set(positions.get(id), InsertOutcome.CREATED);
+                    op.rows(created.size());
+                }
+                conn.commit();
+                op.lap(Phase.EXECUTE);
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        return outcomes;
+    }
+
+    // One multi-row statement instead of a JDBC batch: the ids it returns are the rows created, whereas a batch
+    // rewritten by the driver (reWriteBatchedInserts) only reports SUCCESS_NO_INFO per row
+    private static List<String> insertIgnoring(
+            Connection conn,
+            List<CustomerDTO> rows,
+            StatementInstrumentation.Operation op
+    ) throws SQLException {
+        final var sql = String.format(INSERT_ROWS_IGNORE_SQL,
+                String.join(", ", Collections.nCopies(rows.size(), "(" + placeholders(INSERT_COLUMNS) + ")")));
+        try (final var stmt = conn.prepareStatement(sql)) {
+            op.lap(Phase.PREPARE);
+            for (int i = 0; i < rows.size(); i++) bindInsert(stmt, rows.get(i), i * INSERT_COLUMNS);
+            final var created = new ArrayList<String>(rows.size());
+            try (final ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) created.add(normalizeId(rs.getString(1)));
+            }
+            op.lap(Phase.EXECUTE);
+            return created;
+        }
+    }
+
+    private static List<String> mergeIfAbsent(
+            Connection conn,
+            List<CustomerDTO> rows,
+            StatementInstrumentation.Operation op
+    ) throws SQLException {
+        try (final var stmt = conn.prepareStatement(MERGE_IF_ABSENT_SQL)) {
+            op.lap(Phase.PREPARE);
+            for (CustomerDTO customer : rows) {
+                bindInsert(stmt, customer);
+                stmt.addBatch();
+            }
+            final int[] counts = stmt.executeBatch();
+            op.lap(Phase.EXECUTE);
+            final var created = new ArrayList<String>(rows.size());
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                    throw new SQLException("createAll needs a row count per customer from the driver");
+                }
+                if (counts[i] > 0) created.add(normalizeId(rows.get(i).getId()));
+            }
+            return created;
+        }
+    }
+
+    /**
+     * Deletes the customers with the given ids in a single transaction; unknown ids are ignored.
+     *
+     * @return the number of customers deleted
+     */
+    public int deleteAll(Collection<String> ids) {
+        final var keys = List.copyOf(new LinkedHashSet<>(ids));
+        if (keys.isEmpty()) return 0;
+
+        final var op = instrumentation.start("deleteAll");
+        try (final Connection conn = dataSource.getConnection()) {
+            op.lap(Phase.ACQUIRE);
+            conn.setAutoCommit(false);
+            try (final var stmt = conn.prepareStatement(String.format(DELETE_BY_IDS_SQL, placeholders(IN_LIST_SIZE)))) {
+                op.lap(Phase.PREPARE);
+                var deleted = 0;
+                for (int from = 0; from < keys.size(); from += IN_LIST_SIZE) {
+                    bindPadded(stmt, keys.subList(from, Math.min(from + IN_LIST_SIZE, keys.size())), IN_LIST_SIZE);
+                    deleted += stmt.executeUpdate();
+                }
+                conn.commit();
+                op.lap(Phase.EXECUTE);
+                op.rows(deleted);
+                return deleted;
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException ex) {
+            op.failed(ex);
+            logger.error("Error deleting {} customers", keys.size(), ex);
+            throw new RuntimeException(ex);
+        } finally {
+            op.finish();
+        }
+    }
+
+    @FunctionalInterface
+    private interface StatementBinder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    private class CustomerCursor extends Spliterators.AbstractSpliterator<CustomerDTO> {
+
+        private final Connection conn;
+        private final PreparedStatement stmt;
+        private final ResultSet rs;
+        private final RowMapper<CustomerDTO> mapper;
+        private final StatementInstrumentation.Operation op;
+        private boolean closed;
+
+        private CustomerCursor(
+                Connection conn,
+                PreparedStatement stmt,
+                ResultSet rs,
+                RowMapper<CustomerDTO> mapper,
+                StatementInstrumentation.Operation op
+        ) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.conn = conn;
+            this.stmt = stmt;
+            this.rs = rs;
+            this.mapper = mapper;
+            this.op = op;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super CustomerDTO> action) {
+            if (closed) return false;
+            try {
+                if (!rs.next()) {
+                    close();
+                    return false;
+                }
+                op.rows(1);
+                action.accept(mapper.map(rs));
+                return true;
+            } catch (SQLException ex) {
+                op.failed(ex);
+                close();
+                logger.error("Error reading customer stream", ex);
+                throw new RuntimeException(ex);
+            }
+        }
+
+        private void close() {
+            if (closed) return;
+            closed = true;
+            // Fetching and consuming are interleaved, so the whole read is charged to the map phase
+            op.lap(Phase.MAP);
+            try {
+                if (rs != null) rs.close();
+                if (stmt != null) stmt.close();
+                if (conn != null) {
+                    conn.commit();
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException ex) {
+                logger.warn("Error releasing customer stream", ex);
+            } finally {
+                closeConnection();
+                op.finish();
+            }
+        }
+
+        private void closeConnection() {
+            if (conn == null) return;
+            try {
+                conn.close();
+            } catch (SQLException ex) {
+                logger.warn("Error closing customer stream connection", ex);
+            }
+        }
+
+    }
+
+    // IN lists always carry the same number of binds so one prepared statement serves every chunk
+    private static void bindPadded(PreparedStatement stmt, List<String> ids, int size) throws SQLException {
+        for (int i = 0; i < size; i++) {
+            stmt.setString(i + 1, ids.get(Math.min(i, ids.size() - 1)));
+        }
+    }
+
+    private static void bindInsert(PreparedStatement stmt, CustomerDTO customer) throws SQLException {
+        bindInsert(stmt, customer, 0);
+    }
+
+    private static void bindInsert(PreparedStatement stmt, CustomerDTO customer, int offset) throws SQLException {
+        stmt.setString(offset + 1, customer.getId());
+        stmt.setString(offset + 2, customer.getCompanyName());
+        stmt.setString(offset + 3, customer.getContactName());
+        stmt.setString(offset + 4, customer.getContactTitle());
+        stmt.setString(offset + 5, customer.getAddress());
+        stmt.setString(offset + 6, customer.getCity());
+        stmt.setString(offset + 7, customer.getRegion());
+        stmt.setString(offset + 8, customer.getPostalCode());
+        stmt.setString(offset + 9, customer.getCountry());
+        stmt.setString(offset + 10, customer.getPhone());
+        stmt.setString(offset + 11, customer.getFax());
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private Dialect dialect(Connection conn) throws SQLException {
+        if (dialect == null) dialect = Dialect.of(conn);
+        return dialect;
+    }
+
+    // customer_id is a bpchar column, so PostgreSQL hands it back blank-padded
+    private static String normalizeId(String id) {
+        return id.stripTrailing();
+    }
+
 }
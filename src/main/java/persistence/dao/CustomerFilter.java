@@ -0,0 +1,53 @@
+package persistence.dao;
+
+import java.util.Objects;
+
+/**
+ * Equality filter for customer listings. A null country or city matches any value.
+ */
+public final class CustomerFilter {
+
+    public static final CustomerFilter ALL = new CustomerFilter(null, null);
+
+    private final String country;
+    private final String city;
+
+    public CustomerFilter(String country, String city) {
+        this.country = country;
+        this.city = city;
+    }
+
+    public static CustomerFilter byCountry(String country) {
+        return new CustomerFilter(country, null);
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CustomerFilter that = (CustomerFilter) o;
+        return Objects.equals(country, that.country) && Objects.equals(city, that.city);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(country, city);
+    }
+
+    @Override
+    public String toString() {
+        return "CustomerFilter{" +
+                "country='" + country + '\'' +
+                ", city='" + city + '\'' +
+                '}';
+    }
+
+}
@@ -0,0 +1,19 @@
+package persistence.dao;
+
+import persistence.dto.CustomerDTO;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+public interface CustomerRepository {
+
+    Optional<CustomerDTO> getById(String id);
+
+    Map<String, CustomerDTO> getByIds(Collection<String> ids);
+
+    CustomerDTO create(CustomerDTO customer);
+
+    boolean createIfAbsent(CustomerDTO customer);
+
+}
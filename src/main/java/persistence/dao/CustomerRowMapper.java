@@ -0,0 +1,86 @@
+package persistence.dao;
+
+import persistence.dto.CustomerDTO;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Maps customer rows by position. The positions are resolved once from the projected columns, which must be
+ * selected in {@link #getSelectList()} order.
+ */
+public final class CustomerRowMapper implements RowMapper<CustomerDTO> {
+
+    public static final CustomerRowMapper ALL = of(EnumSet.allOf(CustomerColumn.class));
+
+    private static final int DEDUPLICATION_LIMIT = 4_096;
+
+    private final int[] indexes = new int[CustomerColumn.values().length];
+    private final String selectList;
+
+    private CustomerRowMapper(EnumSet<CustomerColumn> columns) {
+        var index = 1;
+        for (CustomerColumn column : columns) indexes[column.ordinal()] = index++;
+        this.selectList = columns.stream().map(CustomerColumn::getColumnName).collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Projection of the given columns; {@code customer_id} is always included and the rest are mapped to null.
+     */
+    public static CustomerRowMapper of(Set<CustomerColumn> columns) {
+        final var projected = EnumSet.of(CustomerColumn.CUSTOMER_ID);
+        projected.addAll(columns);
+        return new CustomerRowMapper(projected);
+    }
+
+    public String getSelectList() {
+        return selectList;
+    }
+
+    @Override
+    public CustomerDTO map(ResultSet rs) throws SQLException {
+        return map(rs, null);
+    }
+
+    /**
+     * Mapper for a single result set that shares one instance of each repeated low-cardinality value (country,
+     * city, region, contact title) so large result sets retain far fewer strings. Not thread-safe.
+     */
+    public RowMapper<CustomerDTO> deduplicating() {
+        final var pool = new HashMap<String, String>();
+        return rs -> map(rs, pool);
+    }
+
+    private CustomerDTO map(ResultSet rs, HashMap<String, String> pool) throws SQLException {
+        return new CustomerDTO(
+                get(rs, CustomerColumn.CUSTOMER_ID, pool),
+                get(rs, CustomerColumn.COMPANY_NAME, pool),
+                get(rs, CustomerColumn.CONTACT_NAME, pool),
+                get(rs, CustomerColumn.CONTACT_TITLE, pool),
+                get(rs, CustomerColumn.ADDRESS, pool),
+                get(rs, CustomerColumn.CITY, pool),
+                get(rs, CustomerColumn.REGION, pool),
+                get(rs, CustomerColumn.POSTAL_CODE, pool),
+                get(rs, CustomerColumn.COUNTRY, pool),
+                get(rs, CustomerColumn.PHONE, pool),
+                get(rs, CustomerColumn.FAX, pool)
+        );
+    }
+
+    private String get(ResultSet rs, CustomerColumn column, HashMap<String, String> pool) throws SQLException {
+        final int index = indexes[column.ordinal()];
+        if (index == 0) return null;
+        final var value = rs.getString(index);
+        if (value == null || pool == null || !column.isLowCardinality()) return value;
+
+        final var shared = pool.get(value);
+        if (shared != null) return shared;
+        if (pool.size() < DEDUPLICATION_LIMIT) pool.put(value, value);
+        return value;
+    }
+
+}
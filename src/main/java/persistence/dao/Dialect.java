@@ -0,0 +1,17 @@
+package persistence.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public enum Dialect {
+    POSTGRESQL,
+    H2,
+    GENERIC;
+
+    public static Dialect of(Connection conn) throws SQLException {
+        final var productName = conn.getMetaData().getDatabaseProductName();
+        if ("PostgreSQL".equalsIgnoreCase(productName)) return POSTGRESQL;
+        if ("H2".equalsIgnoreCase(productName)) return H2;
+        return GENERIC;
+    }
+}
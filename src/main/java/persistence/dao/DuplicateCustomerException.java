@@ -0,0 +1,18 @@
+package persistence.dao;
+
+public class DuplicateCustomerException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String customerId;
+
+    public DuplicateCustomerException(String customerId) {
+        super("Customer " + customerId + " already exists");
+        this.customerId = customerId;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+}
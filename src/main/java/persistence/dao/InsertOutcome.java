@@ -0,0 +1,6 @@
+package persistence.dao;
+
+public enum InsertOutcome {
+    CREATED,
+    DUPLICATE
+}
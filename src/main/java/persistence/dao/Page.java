@@ -0,0 +1,40 @@
+package persistence.dao;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+public class Page<T> {
+
+    private final List<T> items;
+    private final String nextToken;
+
+    public Page(List<T> items, String nextToken) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextToken = nextToken;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Opaque token to pass as {@code afterKey} to read the following page; empty on the last page.
+     */
+    public Optional<String> getNextToken() {
+        return Optional.ofNullable(nextToken);
+    }
+
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+
+    @Override
+    public String toString() {
+        return "Page{" +
+                "items=" + items.size() +
+                ", hasNext=" + hasNext() +
+                '}';
+    }
+
+}
@@ -0,0 +1,98 @@
+package persistence.dao;
+
+import persistence.dto.CustomerDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of a row in the {@code (country, city, customer_id)} listing order, serialized as a URL safe token.
+ * Each field is written as its length, a colon and its value, or as {@code -} when null.
+ */
+final class PageKey {
+
+    private static final char VERSION = '1';
+    private static final char NULL = '-';
+
+    private final String country;
+    private final String city;
+    private final String customerId;
+
+    PageKey(String country, String city, String customerId) {
+        this.country = country;
+        this.city = city;
+        this.customerId = customerId;
+    }
+
+    static PageKey of(CustomerDTO customer) {
+        return new PageKey(customer.getCountry(), customer.getCity(), customer.getId());
+    }
+
+    String getCountry() {
+        return country;
+    }
+
+    String getCity() {
+        return city;
+    }
+
+    String getCustomerId() {
+        return customerId;
+    }
+
+    String encode() {
+        final var sb = new StringBuilder().append(VERSION);
+        append(sb, country);
+        append(sb, city);
+        append(sb, customerId);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static PageKey decode(String token) {
+        try {
+            final var raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (raw.isEmpty() || raw.charAt(0) != VERSION) throw new IllegalArgumentException("Unsupported page token");
+            final var reader = new Reader(raw);
+            final var key = new PageKey(reader.next(), reader.next(), reader.next());
+            if (key.customerId == null || !reader.atEnd()) throw new IllegalArgumentException("Malformed page token");
+            return key;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException ex) {
+            throw new IllegalArgumentException("Invalid page token: " + token, ex);
+        }
+    }
+
+    private static void append(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append(NULL);
+        } else {
+            sb.append(value.length()).append(':').append(value);
+        }
+    }
+
+    private static class Reader {
+
+        private final String raw;
+        private int position = 1;
+
+        private Reader(String raw) {
+            this.raw = raw;
+        }
+
+        private String next() {
+            if (raw.charAt(position) == NULL) {
+                position++;
+                return null;
+            }
+            final int colon = raw.indexOf(':', position);
+            final int length = Integer.parseInt(raw.substring(position, colon));
+            position = colon + 1 + length;
+            return raw.substring(colon + 1, position);
+        }
+
+        private boolean atEnd() {
+            return position == raw.length();
+        }
+
+    }
+
+}
@@ -0,0 +1,66 @@
+package persistence.datasource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+class ConnectionHandle implements InvocationHandler {
+
+    private static final String CONNECTION_EXCEPTION_CLASS = "08";
+
+    private final PooledConnection pooled;
+    private boolean closed;
+
+    ConnectionHandle(PooledConnection pooled) {
+        this.pooled = pooled;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "close":
+                if (!closed) {
+                    closed = true;
+                    pooled.giveBack();
+                }
+                return null;
+            case "isClosed":
+                return closed;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "PooledConnection{" + pooled.physical() + ", closed=" + closed + '}';
+            default:
+                break;
+        }
+
+        if (closed) throw new SQLException("Connection is closed", "08003");
+
+        final var statementCache = pooled.statementCache();
+        if (statementCache != null && "prepareStatement".equals(method.getName()) && args.length == 1) {
+            try {
+                return statementCache.prepare((Connection) proxy, (String) args[0]);
+            } catch (SQLException ex) {
+                if (isConnectionError(ex)) pooled.markBroken();
+                throw ex;
+            }
+        }
+
+        try {
+            return method.invoke(pooled.physical(), args);
+        } catch (InvocationTargetException ex) {
+            final var cause = ex.getCause();
+            if (cause instanceof SQLException && isConnectionError((SQLException) cause)) pooled.markBroken();
+            throw cause;
+        }
+    }
+
+    private static boolean isConnectionError(SQLException ex) {
+        return ex.getSQLState() != null && ex.getSQLState().startsWith(CONNECTION_EXCEPTION_CLASS);
+    }
+
+}
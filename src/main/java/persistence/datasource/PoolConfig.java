@@ -0,0 +1,144 @@
+package persistence.datasource;
+
+import java.time.Duration;
+
+public class PoolConfig {
+
+    private String poolName = "persistence-pool";
+    private int minimumIdle = 2;
+    private int maximumPoolSize = 10;
+    private Duration connectionTimeout = Duration.ofSeconds(30);
+    private Duration idleTimeout = Duration.ofMinutes(10);
+    private Duration maxLifetime = Duration.ofMinutes(30);
+    private boolean validateOnBorrow = true;
+    private Duration validationTimeout = Duration.ofSeconds(5);
+    private Duration leakDetectionThreshold = Duration.ZERO;
+    private Duration housekeepingPeriod = Duration.ofSeconds(30);
+    private int statementCacheSize = 0;
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    public void setPoolName(String poolName) {
+        this.poolName = poolName;
+    }
+
+    public int getMinimumIdle() {
+        return minimumIdle;
+    }
+
+    public void setMinimumIdle(int minimumIdle) {
+        this.minimumIdle = minimumIdle;
+    }
+
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    public void setMaximumPoolSize(int maximumPoolSize) {
+        this.maximumPoolSize = maximumPoolSize;
+    }
+
+    public Duration getConnectionTimeout() {
+        return connectionTimeout;
+    }
+
+    public void setConnectionTimeout(Duration connectionTimeout) {
+        this.connectionTimeout = connectionTimeout;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public Duration getMaxLifetime() {
+        return maxLifetime;
+    }
+
+    public void setMaxLifetime(Duration maxLifetime) {
+        this.maxLifetime = maxLifetime;
+    }
+
+    public boolean isValidateOnBorrow() {
+        return validateOnBorrow;
+    }
+
+    public void setValidateOnBorrow(boolean validateOnBorrow) {
+        this.validateOnBorrow = validateOnBorrow;
+    }
+
+    public Duration getValidationTimeout() {
+        return validationTimeout;
+    }
+
+    public void setValidationTimeout(Duration validationTimeout) {
+        this.validationTimeout = validationTimeout;
+    }
+
+    public Duration getLeakDetectionThreshold() {
+        return leakDetectionThreshold;
+    }
+
+    /**
+     * Connections borrowed for longer than this are reported once with the stack trace of the borrower.
+     * {@link Duration#ZERO} disables leak detection.
+     */
+    public void setLeakDetectionThreshold(Duration leakDetectionThreshold) {
+        this.leakDetectionThreshold = leakDetectionThreshold;
+    }
+
+    public Duration getHousekeepingPeriod() {
+        return housekeepingPeriod;
+    }
+
+    public void setHousekeepingPeriod(Duration housekeepingPeriod) {
+        this.housekeepingPeriod = housekeepingPeriod;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /**
+     * Number of prepared statements kept open per physical connection, keyed by SQL, so repeated
+     * {@code prepareStatement(sql)} calls reuse the same statement. 0 disables the cache.
+     */
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    void validate() {
+        if (maximumPoolSize < 1) throw new IllegalArgumentException("maximumPoolSize must be at least 1");
+        if (minimumIdle < 0 || minimumIdle > maximumPoolSize) {
+            throw new IllegalArgumentException("minimumIdle must be between 0 and maximumPoolSize");
+        }
+        if (connectionTimeout.isNegative()) throw new IllegalArgumentException("connectionTimeout must not be negative");
+        if (statementCacheSize < 0) throw new IllegalArgumentException("statementCacheSize must not be negative");
+        if (housekeepingPeriod.isZero() || housekeepingPeriod.isNegative()) {
+            throw new IllegalArgumentException("housekeepingPeriod must be positive");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PoolConfig{" +
+                "poolName='" + poolName + '\'' +
+                ", minimumIdle=" + minimumIdle +
+                ", maximumPoolSize=" + maximumPoolSize +
+                ", connectionTimeout=" + connectionTimeout +
+                ", idleTimeout=" + idleTimeout +
+                ", maxLifetime=" + maxLifetime +
+                ", validateOnBorrow=" + validateOnBorrow +
+                ", validationTimeout=" + validationTimeout +
+                ", leakDetectionThreshold=" + leakDetectionThreshold +
+                ", housekeepingPeriod=" + housekeepingPeriod +
+                ", statementCacheSize=" + statementCacheSize +
+                '}';
+    }
+
+}
@@ -0,0 +1,101 @@
+package persistence.datasource;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+class PooledConnection {
+
+    private final PooledDataSource pool;
+    private final Connection physical;
+    private final long createdAt;
+    private final StatementCache statementCache;
+    private volatile long lastReturnedAt;
+    private volatile long borrowedAt;
+    private volatile Throwable borrowTrace;
+    private volatile boolean leakReported;
+    private volatile boolean broken;
+
+    PooledConnection(PooledDataSource pool, Connection physical, long now, int statementCacheSize) {
+        this.pool = pool;
+        this.physical = physical;
+        this.createdAt = now;
+        this.lastReturnedAt = now;
+        this.statementCache = statementCacheSize > 0 ? new StatementCache(this, statementCacheSize) : null;
+    }
+
+    Connection physical() {
+        return physical;
+    }
+
+    StatementCache statementCache() {
+        return statementCache;
+    }
+
+    void recordStatementLookup(boolean hit) {
+        pool.recordStatementLookup(hit);
+    }
+
+    Connection borrow(long now, boolean traceBorrower) {
+        borrowedAt = now;
+        borrowTrace = traceBorrower ? new Throwable("Connection borrowed here") : null;
+        leakReported = false;
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConnectionHandle(this)
+        );
+    }
+
+    void giveBack() {
+        if (statementCache != null) statementCache.checkinAll();
+        pool.release(this);
+    }
+
+    void returned(long now) {
+        lastReturnedAt = now;
+        borrowTrace = null;
+    }
+
+    void markBroken() {
+        broken = true;
+    }
+
+    boolean isBroken() {
+        return broken;
+    }
+
+    long getCreatedAt() {
+        return createdAt;
+    }
+
+    long getLastReturnedAt() {
+        return lastReturnedAt;
+    }
+
+    long getBorrowedAt() {
+        return borrowedAt;
+    }
+
+    Throwable getBorrowTrace() {
+        return borrowTrace;
+    }
+
+    boolean isLeakReported() {
+        return leakReported;
+    }
+
+    void setLeakReported() {
+        leakReported = true;
+    }
+
+    void closePhysical() {
+        if (statementCache != null) statementCache.closeAll();
+        try {
+            physical.close();
+        } catch (SQLException ignored) {
+            // The connection is being thrown away anyway
+        }
+    }
+
+}
@@ -0,0 +1,314 @@
+package persistence.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class PooledDataSource implements DataSource, AutoCloseable {
+
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final DataSource target;
+    private final PoolConfig config;
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicLong createdConnections = new AtomicLong();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+    private final ScheduledExecutorService housekeeper;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private volatile boolean closed;
+
+    public PooledDataSource(DataSource target, PoolConfig config) {
+        config.validate();
+        this.target = target;
+        this.config = config;
+        this.permits = new Semaphore(config.getMaximumPoolSize(), true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var thread = new Thread(runnable, config.getPoolName() + "-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long period = config.getHousekeepingPeriod().toMillis();
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, period, TimeUnit.MILLISECONDS);
+        logger.info("Started pool {} with {}", config.getPoolName(), config);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) throw new SQLException("Pool " + config.getPoolName() + " is closed");
+
+        final long deadline = System.nanoTime() + config.getConnectionTimeout().toNanos();
+        try {
+            if (!permits.tryAcquire(config.getConnectionTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                throw timeout();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection from pool " + config.getPoolName(), ex);
+        }
+
+        try {
+            final var pooled = acquire(deadline);
+            borrowed.add(pooled);
+            return pooled.borrow(System.nanoTime(), !config.getLeakDetectionThreshold().isZero());
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections always use the credentials of the target DataSource");
+    }
+
+    public int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    public int getActiveConnections() {
+        return borrowed.size();
+    }
+
+    public long getCreatedConnections() {
+        return createdConnections.get();
+    }
+
+    public int getThreadsAwaitingConnection() {
+        return permits.getQueueLength();
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) discard(pooled);
+        if (!borrowed.isEmpty()) {
+            logger.warn("Pool {} closed with {} connections still in use", config.getPoolName(), borrowed.size());
+        }
+    }
+
+    void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        try {
+            final long now = System.nanoTime();
+            if (closed || pooled.isBroken() || isExpired(pooled, now) || !reset(pooled)) {
+                discard(pooled);
+            } else {
+                pooled.returned(now);
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    void recordStatementLookup(boolean hit) {
+        if (hit) {
+            statementCacheHits.increment();
+        } else {
+            statementCacheMisses.increment();
+        }
+    }
+
+    private PooledConnection acquire(long deadline) throws SQLException {
+        while (true) {
+            final var candidate = idle.pollFirst();
+            if (candidate != null) {
+                if (isUsable(candidate)) return candidate;
+                discard(candidate);
+                continue;
+            }
+
+            if (reserveSlot()) return open();
+
+            // Every slot is taken by idle connections the housekeeper is currently inspecting
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) throw timeout();
+            try {
+                final var polled = idle.pollFirst(Math.min(remaining, IDLE_POLL_NANOS), TimeUnit.NANOSECONDS);
+                if (polled != null) idle.offerFirst(polled);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a connection from pool " + config.getPoolName(), ex);
+            }
+        }
+    }
+
+    private boolean reserveSlot() {
+        while (true) {
+            final int current = totalConnections.get();
+            if (current >= config.getMaximumPoolSize()) return false;
+            if (totalConnections.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        try {
+            final var physical = target.getConnection();
+            createdConnections.incrementAndGet();
+            return new PooledConnection(this, physical, System.nanoTime(), config.getStatementCacheSize());
+        } catch (SQLException | RuntimeException ex) {
+            totalConnections.decrementAndGet();
+            throw ex;
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        pooled.closePhysical();
+        totalConnections.decrementAndGet();
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        if (pooled.isBroken() || isExpired(pooled, System.nanoTime())) return false;
+        if (!config.isValidateOnBorrow()) return true;
+        try {
+            return pooled.physical().isValid((int) Math.max(1, config.getValidationTimeout().toSeconds()));
+        } catch (SQLException ex) {
+            logger.debug("Validation of pooled connection failed", ex);
+            return false;
+        }
+    }
+
+    private boolean isExpired(PooledConnection pooled, long now) {
+        final long maxLifetime = config.getMaxLifetime().toNanos();
+        return maxLifetime > 0 && now - pooled.getCreatedAt() >= maxLifetime;
+    }
+
+    private boolean reset(PooledConnection pooled) {
+        final var physical = pooled.physical();
+        try {
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            if (physical.isReadOnly()) physical.setReadOnly(false);
+            physical.clearWarnings();
+            return true;
+        } catch (SQLException ex) {
+            logger.debug("Could not reset pooled connection, discarding it", ex);
+            return false;
+        }
+    }
+
+    private void housekeep() {
+        try {
+            final long now = System.nanoTime();
+            detectLeaks(now);
+            evictIdle(now);
+            fillToMinimum();
+        } catch (RuntimeException ex) {
+            logger.warn("Housekeeping of pool {} failed", config.getPoolName(), ex);
+        }
+    }
+
+    private void detectLeaks(long now) {
+        final long threshold = config.getLeakDetectionThreshold().toNanos();
+        if (threshold <= 0) return;
+        for (PooledConnection pooled : borrowed) {
+            if (!pooled.isLeakReported() && now - pooled.getBorrowedAt() >= threshold) {
+                pooled.setLeakReported();
+                logger.warn("Connection leak detected in pool {}: borrowed for more than {}",
+                        config.getPoolName(), config.getLeakDetectionThreshold(), pooled.getBorrowTrace());
+            }
+        }
+    }
+
+    private void evictIdle(long now) {
+        final long idleTimeout = config.getIdleTimeout().toNanos();
+        for (PooledConnection pooled : idle) {
+            final boolean idleTooLong = idleTimeout > 0
+                    && now - pooled.getLastReturnedAt() >= idleTimeout
+                    && idle.size() > config.getMinimumIdle();
+            if ((idleTooLong || isExpired(pooled, now)) && idle.remove(pooled)) discard(pooled);
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!closed && idle.size() < config.getMinimumIdle() && reserveSlot()) {
+            try {
+                final var pooled = open();
+                idle.offerLast(pooled);
+            } catch (SQLException ex) {
+                logger.warn("Could not open connection for pool {}", config.getPoolName(), ex);
+                return;
+            }
+        }
+    }
+
+    private SQLException timeout() {
+        return new SQLTransientConnectionException("Timed out after " + config.getConnectionTimeout().toMillis() +
+                "ms waiting for a connection from pool " + config.getPoolName() + " (total=" + totalConnections.get() +
+                ", active=" + borrowed.size() + ", idle=" + idle.size() + ")", "08001");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return target.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        target.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        target.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return target.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return target.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) return iface.cast(this);
+        return target.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || target.isWrapperFor(iface);
+    }
+
+}
@@ -0,0 +1,365 @@
+package persistence.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Primary/replica pair of data sources. {@link #getConnection()} always returns a primary connection and is meant
+ * for writes; {@link #readOnly()} returns a view that spreads reads over the replicas, picking the one with the
+ * fewest connections currently open through it.
+ * <p>
+ * A replica is marked down when opening a connection to it fails or a connection reports a connection-class error
+ * (SQLState 08xxx), and is only brought back by the periodic health check. With no replica up, reads go to the
+ * primary. For read-your-writes, a thread that took a primary connection keeps reading from the primary for the
+ * {@code stickiness} window, which should cover the replication lag. Stickiness is per thread, so it does not
+ * follow work handed to other threads: code writing on behalf of a caller calls {@link #markWritten()} on the
+ * caller's thread.
+ * <p>
+ * Closing this data source closes the primary and the replicas that are {@link AutoCloseable}.
+ */
+public class ReplicaRoutingDataSource implements DataSource, AutoCloseable {
+
+    private static final String CONNECTION_EXCEPTION_CLASS = "08";
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long stickinessNanos;
+    private final LongSupplier ticker;
+    private final ThreadLocal<Long> lastWriteAt = new ThreadLocal<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final ScheduledExecutorService healthChecker;
+    private final DataSource readView = new ReadView();
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /**
+     * @param healthCheckPeriod how often replicas are validated; {@link Duration#ZERO} disables the checks
+     */
+    public ReplicaRoutingDataSource(
+            DataSource primary,
+            List<? extends DataSource> replicas,
+            Duration stickiness,
+            Duration healthCheckPeriod
+    ) {
+        this(primary, replicas, stickiness, healthCheckPeriod, System::nanoTime);
+    }
+
+    ReplicaRoutingDataSource(
+            DataSource primary,
+            List<? extends DataSource> replicas,
+            Duration stickiness,
+            Duration healthCheckPeriod,
+            LongSupplier ticker
+    ) {
+        this.primary = primary;
+        this.replicas = new ArrayList<>(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) this.replicas.add(new Replica(i, replicas.get(i)));
+        this.stickinessNanos = stickiness.toNanos();
+        this.ticker = ticker;
+        if (healthCheckPeriod.isZero() || this.replicas.isEmpty()) {
+            this.healthChecker = null;
+        } else {
+            this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final var thread = new Thread(runnable, "replica-health-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+            final long period = healthCheckPeriod.toMillis();
+            healthChecker.scheduleWithFixedDelay(this::checkHealth, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Connection to the primary. Starts the read-your-writes window of the calling thread.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        markWritten();
+        return primary.getConnection();
+    }
+
+    /**
+     * Starts the read-your-writes window of the calling thread without taking a connection, for a write another
+     * thread makes on its behalf.
+     */
+    public void markWritten() {
+        lastWriteAt.set(ticker.getAsLong());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Routed connections always use the credentials of the targets");
+    }
+
+    /**
+     * Data source for read-only work, routed to a replica.
+     */
+    public DataSource readOnly() {
+        return readView;
+    }
+
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    public boolean isReplicaUp(int replica) {
+        return replicas.get(replica).up;
+    }
+
+    public int getReplicaInFlight(int replica) {
+        return replicas.get(replica).inFlight.get();
+    }
+
+    /**
+     * Validates every replica, marking it up or down. Runs periodically unless health checks are disabled.
+     */
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            try (final var conn = replica.target.getConnection()) {
+                if (conn.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    replica.markUp();
+                } else {
+                    replica.markDown("validation failed", null);
+                }
+            } catch (SQLException | RuntimeException ex) {
+                replica.markDown("health check failed", ex);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (healthChecker != null) healthChecker.shutdownNow();
+        for (Replica replica : replicas) closeTarget(replica.target);
+        closeTarget(primary);
+    }
+
+    private Connection getReadConnection() throws SQLException {
+        final var wroteAt = lastWriteAt.get();
+        if (wroteAt != null) {
+            if (ticker.getAsLong() - wroteAt < stickinessNanos) return primary.getConnection();
+            lastWriteAt.remove();
+        }
+
+        final Set<Replica> failed = new HashSet<>();
+        Replica replica;
+        while ((replica = leastInFlight(failed)) != null) {
+            try {
+                return replica.borrow();
+            } catch (SQLException ex) {
+                replica.markDown("could not open a connection", ex);
+                failed.add(replica);
+            }
+        }
+        return primary.getConnection();
+    }
+
+    // Starts from a rotating index so replicas with the same load take turns
+    private Replica leastInFlight(Set<Replica> excluded) {
+        final int size = replicas.size();
+        if (size == 0) return null;
+        final int start = Math.floorMod(nextReplica.getAndIncrement(), size);
+        Replica best = null;
+        for (int i = 0; i < size; i++) {
+            final var candidate = replicas.get((start + i) % size);
+            if (!candidate.up || excluded.contains(candidate)) continue;
+            if (best == null || candidate.inFlight.get() < best.inFlight.get()) best = candidate;
+        }
+        return best;
+    }
+
+    private void closeTarget(DataSource target) {
+        if (!(target instanceof AutoCloseable)) return;
+        try {
+            ((AutoCloseable) target).close();
+        } catch (Exception ex) {
+            logger.warn("Error closing {}", target, ex);
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return primary.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) return iface.cast(this);
+        return primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+
+    private class Replica {
+
+        private final int index;
+        private final DataSource target;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile boolean up = true;
+
+        private Replica(int index, DataSource target) {
+            this.index = index;
+            this.target = target;
+        }
+
+        private Connection borrow() throws SQLException {
+            inFlight.incrementAndGet();
+            try {
+                final var conn = target.getConnection();
+                return (Connection) Proxy.newProxyInstance(
+                        Connection.class.getClassLoader(),
+                        new Class<?>[]{Connection.class},
+                        new ReplicaConnectionHandle(this, conn)
+                );
+            } catch (SQLException | RuntimeException ex) {
+                inFlight.decrementAndGet();
+                throw ex;
+            }
+        }
+
+        private void markUp() {
+            if (up) return;
+            up = true;
+            logger.info("Replica {} is back up", index);
+        }
+
+        private void markDown(String reason, Throwable cause) {
+            if (!up) return;
+            up = false;
+            logger.warn("Replica {} marked down: {}", index, reason, cause);
+        }
+
+    }
+
+    // Releases the in-flight slot on close and takes the replica down on connection-class errors
+    private static class ReplicaConnectionHandle implements InvocationHandler {
+
+        private final Replica replica;
+        private final Connection target;
+        private boolean closed;
+
+        private ReplicaConnectionHandle(Replica replica, Connection target) {
+            this.replica = replica;
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("close".equals(method.getName())) {
+                if (!closed) {
+                    closed = true;
+                    replica.inFlight.decrementAndGet();
+                    target.close();
+                }
+                return null;
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                final var cause = ex.getCause();
+                if (cause instanceof SQLException) {
+                    final var sqlState = ((SQLException) cause).getSQLState();
+                    if (sqlState != null && sqlState.startsWith(CONNECTION_EXCEPTION_CLASS)) {
+                        replica.markDown("connection error " + sqlState, cause);
+                    }
+                }
+                throw cause;
+            }
+        }
+
+    }
+
+    private class ReadView implements DataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return getReadConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return ReplicaRoutingDataSource.this.getConnection(username, password);
+        }
+
+        @Override
+        public PrintWriter getLogWriter() throws SQLException {
+            return ReplicaRoutingDataSource.this.getLogWriter();
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) throws SQLException {
+            ReplicaRoutingDataSource.this.setLogWriter(out);
+        }
+
+        @Override
+        public void setLoginTimeout(int seconds) throws SQLException {
+            ReplicaRoutingDataSource.this.setLoginTimeout(seconds);
+        }
+
+        @Override
+        public int getLoginTimeout() throws SQLException {
+            return ReplicaRoutingDataSource.this.getLoginTimeout();
+        }
+
+        @Override
+        public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            return ReplicaRoutingDataSource.this.getParentLogger();
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            if (iface.isInstance(this)) return iface.cast(this);
+            return ReplicaRoutingDataSource.this.unwrap(iface);
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) throws SQLException {
+            return iface.isInstance(this) || ReplicaRoutingDataSource.this.isWrapperFor(iface);
+        }
+
+    }
+
+}
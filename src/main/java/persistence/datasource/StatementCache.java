@@ -0,0 +1,143 @@
+package persistence.datasource;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per physical connection LRU of prepared statements keyed by SQL. A connection is only used by one thread at a
+ * time and the pool hands it over through a concurrent queue, so no locking is needed here.
+ */
+class StatementCache {
+
+    private final PooledConnection owner;
+    private final int maximumSize;
+    private final LinkedHashMap<String, CachedStatement> statements;
+    // Second copies of a SQL already checked out, closed instead of cached when the borrower is done
+    private final Set<CachedStatement> uncached = new HashSet<>();
+
+    StatementCache(PooledConnection owner, int maximumSize) {
+        this.owner = owner;
+        this.maximumSize = maximumSize;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= StatementCache.this.maximumSize) return false;
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+    }
+
+    PreparedStatement prepare(Connection logical, String sql) throws SQLException {
+        var cached = statements.get(sql);
+        if (cached != null && !cached.inUse) {
+            owner.recordStatementLookup(true);
+            return cached.checkout(logical);
+        }
+        owner.recordStatementLookup(false);
+        final var statement = owner.physical().prepareStatement(sql);
+        // The same SQL open twice on one connection: the second one is not worth caching, but it still goes
+        // through a handle so it reports the logical connection and is closed with it
+        if (cached != null) {
+            final var extra = new CachedStatement(sql, statement, false);
+            uncached.add(extra);
+            return extra.checkout(logical);
+        }
+        cached = new CachedStatement(sql, statement, true);
+        statements.put(sql, cached);
+        return cached.checkout(logical);
+    }
+
+    /**
+     * Called when the logical connection is closed; statements the borrower left open go back to the cache.
+     */
+    void checkinAll() {
+        for (CachedStatement cached : new ArrayList<>(statements.values())) {
+            if (cached.handle != null) cached.handle.close();
+        }
+        for (CachedStatement extra : new ArrayList<>(uncached)) {
+            if (extra.handle != null) extra.handle.close();
+        }
+    }
+
+    void closeAll() {
+        for (CachedStatement cached : statements.values()) cached.closePhysical();
+        statements.clear();
+        for (CachedStatement extra : uncached) extra.closePhysical();
+        uncached.clear();
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    class CachedStatement {
+
+        private final String sql;
+        private final PreparedStatement statement;
+        private final boolean cacheable;
+        private StatementHandle handle;
+        private boolean inUse;
+        private boolean evicted;
+
+        private CachedStatement(String sql, PreparedStatement statement, boolean cacheable) {
+            this.sql = sql;
+            this.statement = statement;
+            this.cacheable = cacheable;
+        }
+
+        PreparedStatement physical() {
+            return statement;
+        }
+
+        void markBroken() {
+            owner.markBroken();
+        }
+
+        private PreparedStatement checkout(Connection logical) {
+            inUse = true;
+            handle = new StatementHandle(this, logical);
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    handle
+            );
+        }
+
+        void checkin(boolean reusable) {
+            inUse = false;
+            handle = null;
+            if (!cacheable) {
+                uncached.remove(this);
+                closePhysical();
+            } else if (evicted) {
+                closePhysical();
+            } else if (!reusable) {
+                statements.remove(sql, this);
+                closePhysical();
+            }
+        }
+
+        private void evict() {
+            evicted = true;
+            if (!inUse) closePhysical();
+        }
+
+        private void closePhysical() {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+                // The statement is being thrown away anyway
+            }
+        }
+
+    }
+
+}
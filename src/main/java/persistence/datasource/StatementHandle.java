@@ -0,0 +1,96 @@
+package persistence.datasource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Logical view of a cached statement. Closing it resets the physical statement and returns it to the cache.
+ */
+class StatementHandle implements InvocationHandler {
+
+    private static final String CONNECTION_EXCEPTION_CLASS = "08";
+
+    private final StatementCache.CachedStatement cached;
+    private final Connection logical;
+    private ResultSet lastResultSet;
+    private boolean configured;
+    private boolean failed;
+    private boolean closed;
+
+    StatementHandle(StatementCache.CachedStatement cached, Connection logical) {
+        this.cached = cached;
+        this.logical = logical;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "close":
+                close();
+                return null;
+            case "isClosed":
+                return closed;
+            case "getConnection":
+                return logical;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "CachedStatement{" + cached.physical() + ", closed=" + closed + '}';
+            case "setFetchSize":
+            case "setMaxRows":
+            case "setQueryTimeout":
+                configured = true;
+                break;
+            default:
+                break;
+        }
+
+        if (closed) throw new SQLException("Statement is closed");
+
+        try {
+            final var result = method.invoke(cached.physical(), args);
+            if (result instanceof ResultSet) lastResultSet = (ResultSet) result;
+            return result;
+        } catch (InvocationTargetException ex) {
+            final var cause = ex.getCause();
+            if (cause instanceof SQLException) {
+                // A failed statement may hold a stale plan (e.g. after DDL), so it is not reused
+                failed = true;
+                final var sqlState = ((SQLException) cause).getSQLState();
+                if (sqlState != null && sqlState.startsWith(CONNECTION_EXCEPTION_CLASS)) cached.markBroken();
+            }
+            throw cause;
+        }
+    }
+
+    void close() {
+        if (closed) return;
+        closed = true;
+        cached.checkin(!failed && reset());
+    }
+
+    private boolean reset() {
+        final var statement = cached.physical();
+        try {
+            if (lastResultSet != null) lastResultSet.close();
+            statement.clearParameters();
+            statement.clearBatch();
+            if (configured) {
+                statement.setFetchSize(0);
+                statement.setMaxRows(0);
+                statement.setQueryTimeout(0);
+            }
+            statement.clearWarnings();
+            return true;
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+package persistence.importer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Append-only record of the chunks already committed. The first line identifies the input (size and chunk size)
+ * so a checkpoint is never applied to a different file or split; every following line is a chunk index.
+ */
+class Checkpoint implements AutoCloseable {
+
+    private final Path path;
+    private final Set<Integer> completed;
+    private final BufferedWriter writer;
+
+    private Checkpoint(Path path, Set<Integer> completed, BufferedWriter writer) {
+        this.path = path;
+        this.completed = completed;
+        this.writer = writer;
+    }
+
+    static Checkpoint open(Path path, long fileSize, long chunkSize) throws IOException {
+        final var header = "customer-import " + fileSize + " " + chunkSize;
+        final var completed = new HashSet<Integer>();
+        if (Files.exists(path)) {
+            final var lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+            if (!lines.isEmpty()) {
+                if (!lines.get(0).equals(header)) {
+                    throw new IllegalStateException("Checkpoint " + path + " was written for a different file or " +
+                            "chunk size (" + lines.get(0) + ")");
+                }
+                // A partially written last line is a chunk that was not recorded, it will simply run again
+                for (String line : lines.subList(1, lines.size())) {
+                    if (line.matches("\\d+")) completed.add(Integer.parseInt(line));
+                }
+            }
+        }
+        final var writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+        if (Files.size(path) == 0) {
+            writer.write(header);
+            writer.newLine();
+            writer.flush();
+        }
+        return new Checkpoint(path, completed, writer);
+    }
+
+    synchronized boolean isCompleted(int chunk) {
+        return completed.contains(chunk);
+    }
+
+    synchronized int getCompletedCount() {
+        return completed.size();
+    }
+
+    synchronized void markCompleted(int chunk) throws IOException {
+        writer.write(Integer.toString(chunk));
+        writer.newLine();
+        writer.flush();
+        completed.add(chunk);
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Closing twice is allowed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+}
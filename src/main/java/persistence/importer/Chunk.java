@@ -0,0 +1,46 @@
+package persistence.importer;
+
+/**
+ * Byte range of the input file holding whole CSV records.
+ */
+final class Chunk {
+
+    private final int index;
+    private final long offset;
+    private final long length;
+    private final long firstLine;
+
+    Chunk(int index, long offset, long length, long firstLine) {
+        this.index = index;
+        this.offset = offset;
+        this.length = length;
+        this.firstLine = firstLine;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    long getOffset() {
+        return offset;
+    }
+
+    long getLength() {
+        return length;
+    }
+
+    long getFirstLine() {
+        return firstLine;
+    }
+
+    @Override
+    public String toString() {
+        return "Chunk{" +
+                "index=" + index +
+                ", offset=" + offset +
+                ", length=" + length +
+                ", firstLine=" + firstLine +
+                '}';
+    }
+
+}
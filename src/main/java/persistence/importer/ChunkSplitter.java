@@ -0,0 +1,50 @@
+package persistence.importer;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cuts a CSV file into chunks of roughly {@code chunkSize} bytes that end on a record boundary. Quoted fields may
+ * contain newlines, so this is a single sequential pass tracking quotes. It only looks at bytes ({@code "} and
+ * {@code \n} never occur inside a multi-byte UTF-8 sequence) and is cheap next to parsing.
+ */
+final class ChunkSplitter {
+
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private ChunkSplitter() {
+    }
+
+    static List<Chunk> split(FileChannel channel, long chunkSize) throws IOException {
+        final long size = channel.size();
+        final var chunks = new ArrayList<Chunk>();
+        long chunkStart = 0;
+        long chunkFirstLine = 1;
+        long line = 1;
+        boolean quoted = false;
+
+        for (long windowStart = 0; windowStart < size; windowStart += WINDOW_SIZE) {
+            final long windowLength = Math.min(WINDOW_SIZE, size - windowStart);
+            final var window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+            for (int i = 0; i < windowLength; i++) {
+                final byte b = window.get(i);
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if (b == '\n') {
+                    line++;
+                    final long end = windowStart + i + 1;
+                    if (!quoted && end - chunkStart >= chunkSize) {
+                        chunks.add(new Chunk(chunks.size(), chunkStart, end - chunkStart, chunkFirstLine));
+                        chunkStart = end;
+                        chunkFirstLine = line;
+                    }
+                }
+            }
+        }
+        if (chunkStart < size) chunks.add(new Chunk(chunks.size(), chunkStart, size - chunkStart, chunkFirstLine));
+        return chunks;
+    }
+
+}
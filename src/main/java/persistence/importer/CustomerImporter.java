@@ -0,0 +1,230 @@
+package persistence.importer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import persistence.csv.CsvParser;
+import persistence.csv.CustomerCsv;
+import persistence.dao.CustomerColumn;
+import persistence.dao.CustomerDAO;
+import persistence.dto.CustomerDTO;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Imports large customer CSV files (the format of {@link CustomerCsv}, no header) in parallel.
+ * <p>
+ * The file is cut into chunks on record boundaries. Each chunk is memory-mapped, parsed and validated against the
+ * column limits of the DDL, and written with {@link CustomerDAO#createAll}. That makes a chunk a single transaction
+ * on its own pooled connection, with up to {@code parallelism} chunks in flight. Committed chunks are appended to
+ * a checkpoint file, so an interrupted import run again with the same checkpoint skips them. Re-running a chunk
+ * that committed just before the crash is harmless, because its customers come back as duplicates.
+ */
+public class CustomerImporter {
+
+    private static final int MAX_REJECTIONS = 1_000;
+    private static final CustomerColumn[] COLUMNS = CustomerColumn.values();
+
+    private final CustomerDAO dao;
+    private final int parallelism;
+    private final long chunkSize;
+    private final int batchSize;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /**
+     * @param parallelism chunks processed at once, so also the number of pooled connections used
+     * @param chunkSize   target chunk size in bytes; a chunk is held in memory while it is written
+     * @param batchSize   JDBC batch size used inside a chunk
+     */
+    public CustomerImporter(CustomerDAO dao, int parallelism, long chunkSize, int batchSize) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be at least 1");
+        if (chunkSize < 1 || chunkSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("chunkSize must be between 1 and " + Integer.MAX_VALUE);
+        }
+        this.dao = dao;
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports {@code file}, resuming from {@code checkpoint} if it exists. The checkpoint is deleted once every
+     * chunk is committed. If a chunk fails the chunks not started yet are skipped and the error is rethrown after
+     * the running ones finish, leaving the checkpoint in place.
+     */
+    public ImportResult importFile(Path file, Path checkpoint, ImportProgressListener listener) throws IOException {
+        try (final var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long started = System.nanoTime();
+            final List<Chunk> chunks = ChunkSplitter.split(channel, chunkSize);
+            final var run = new Run(channel, Checkpoint.open(checkpoint, channel.size(), chunkSize), chunks, listener);
+            logger.info("Importing {} ({} bytes) in {} chunks, {} already done", file, channel.size(), chunks.size(),
+                    run.checkpoint.getCompletedCount());
+
+            final var pool = new ForkJoinPool(parallelism);
+            try {
+                final var tasks = new ArrayList<ForkJoinTask<?>>();
+                for (Chunk chunk : chunks) {
+                    if (!run.checkpoint.isCompleted(chunk.getIndex())) tasks.add(pool.submit(() -> run.process(chunk)));
+                }
+                Throwable failure = null;
+                for (ForkJoinTask<?> task : tasks) {
+                    try {
+                        task.get();
+                    } catch (ExecutionException ex) {
+                        if (failure == null) failure = ex.getCause();
+                    } catch (InterruptedException ex) {
+                        run.failed = true;
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while importing " + file, ex);
+                    }
+                }
+                if (failure instanceof RuntimeException && !(failure instanceof UncheckedIOException)) {
+                    throw (RuntimeException) failure;
+                }
+                if (failure != null) throw new IOException("Error importing " + file, failure);
+            } finally {
+                pool.shutdown();
+                run.checkpoint.close();
+            }
+
+            run.checkpoint.delete();
+            final var result = run.result();
+            logger.info("Imported {} in {} ms: {}", file, (System.nanoTime() - started) / 1_000_000, result);
+            return result;
+        }
+    }
+
+    /**
+     * Returns why the record cannot be inserted, or null if it is valid.
+     */
+    static String validate(String[] record) {
+        if (record.length != CustomerCsv.COLUMN_COUNT) {
+            return "expected " + CustomerCsv.COLUMN_COUNT + " columns but got " + record.length;
+        }
+        for (CustomerColumn column : COLUMNS) {
+            final var value = record[column.ordinal()];
+            if (value == null) {
+                if (!column.isNullable()) return column.getColumnName() + " is required";
+                continue;
+            }
+            final int length = value.codePointCount(0, value.length());
+            if (length > column.getMaxLength()) {
+                return column.getColumnName() + " is " + length + " characters long, the limit is " +
+                        column.getMaxLength();
+            }
+        }
+        return null;
+    }
+
+    private class Run {
+
+        private final FileChannel channel;
+        private final Checkpoint checkpoint;
+        private final int totalChunks;
+        private final long totalBytes;
+        private final ImportProgressListener listener;
+        private final int resumedChunks;
+        private final AtomicInteger completedChunks = new AtomicInteger();
+        private final AtomicLong completedBytes = new AtomicLong();
+        private final AtomicLong created = new AtomicLong();
+        private final AtomicLong duplicates = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final List<Rejection> rejections = new ArrayList<>();
+        private volatile boolean failed;
+
+        private Run(FileChannel channel, Checkpoint checkpoint, List<Chunk> chunks, ImportProgressListener listener)
+                throws IOException {
+            this.channel = channel;
+            this.checkpoint = checkpoint;
+            this.totalChunks = chunks.size();
+            this.totalBytes = channel.size();
+            this.listener = listener;
+            long doneBytes = 0;
+            for (Chunk chunk : chunks) {
+                if (checkpoint.isCompleted(chunk.getIndex())) doneBytes += chunk.getLength();
+            }
+            this.resumedChunks = checkpoint.getCompletedCount();
+            this.completedChunks.set(resumedChunks);
+            this.completedBytes.set(doneBytes);
+        }
+
+        private void process(Chunk chunk) {
+            if (failed) return;
+            try {
+                final var customers = parse(chunk);
+                if (!customers.isEmpty()) {
+                    final var result = dao.createAll(customers, batchSize);
+                    created.addAndGet(result.getCreatedCount());
+                    duplicates.addAndGet(customers.size() - result.getCreatedCount());
+                }
+                checkpoint.markCompleted(chunk.getIndex());
+                final var progress = new ImportProgress(completedChunks.incrementAndGet(), totalChunks,
+                        completedBytes.addAndGet(chunk.getLength()), totalBytes, created.get());
+                synchronized (listener) {
+                    listener.onProgress(progress);
+                }
+            } catch (IOException ex) {
+                failed = true;
+                throw new UncheckedIOException(ex);
+            } catch (RuntimeException ex) {
+                failed = true;
+                logger.error("Error importing {}", chunk, ex);
+                throw ex;
+            }
+        }
+
+        private List<CustomerDTO> parse(Chunk chunk) throws IOException {
+            final var bytes = channel.map(FileChannel.MapMode.READ_ONLY, chunk.getOffset(), chunk.getLength());
+            final var chars = StandardCharsets.UTF_8.decode(bytes);
+            final var parser = new CsvParser(new CharArrayReader(chars.array(), chars.arrayOffset(), chars.limit()));
+            final var customers = new ArrayList<CustomerDTO>();
+            while (true) {
+                final String[] record;
+                try {
+                    if (!parser.hasNext()) break;
+                    record = parser.next();
+                } catch (IllegalArgumentException ex) {
+                    // The parser has skipped the malformed record, the following ones are still read
+                    reject(chunk.getFirstLine() + parser.getRecordLineNumber() - 1, ex.getMessage());
+                    continue;
+                }
+                final var line = chunk.getFirstLine() + parser.getRecordLineNumber() - 1;
+                final var error = validate(record);
+                if (error != null) {
+                    reject(line, error);
+                } else {
+                    customers.add(CustomerCsv.toCustomer(record));
+                }
+            }
+            return customers;
+        }
+
+        private void reject(long line, String reason) {
+            rejected.incrementAndGet();
+            synchronized (rejections) {
+                if (rejections.size() < MAX_REJECTIONS) rejections.add(new Rejection(line, reason));
+            }
+        }
+
+        private ImportResult result() {
+            synchronized (rejections) {
+                return new ImportResult(totalChunks, resumedChunks, created.get(), duplicates.get(), rejected.get(),
+                        new ArrayList<>(rejections));
+            }
+        }
+
+    }
+
+}
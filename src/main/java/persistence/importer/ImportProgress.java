@@ -0,0 +1,52 @@
+package persistence.importer;
+
+public class ImportProgress {
+
+    private final int completedChunks;
+    private final int totalChunks;
+    private final long completedBytes;
+    private final long totalBytes;
+    private final long importedRows;
+
+    public ImportProgress(int completedChunks, int totalChunks, long completedBytes, long totalBytes, long importedRows) {
+        this.completedChunks = completedChunks;
+        this.totalChunks = totalChunks;
+        this.completedBytes = completedBytes;
+        this.totalBytes = totalBytes;
+        this.importedRows = importedRows;
+    }
+
+    public int getCompletedChunks() {
+        return completedChunks;
+    }
+
+    public int getTotalChunks() {
+        return totalChunks;
+    }
+
+    public long getCompletedBytes() {
+        return completedBytes;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Rows created by this run; chunks skipped thanks to a checkpoint are not counted.
+     */
+    public long getImportedRows() {
+        return importedRows;
+    }
+
+    public double getFraction() {
+        return totalBytes == 0 ? 1 : completedBytes / (double) totalBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d/%d chunks, %.1f%%, %d rows", completedChunks, totalChunks, getFraction() * 100,
+                importedRows);
+    }
+
+}
@@ -0,0 +1,14 @@
+package persistence.importer;
+
+/**
+ * Notified after every committed chunk. Called from the import worker threads, one call at a time.
+ */
+@FunctionalInterface
+public interface ImportProgressListener {
+
+    ImportProgressListener NONE = progress -> {
+    };
+
+    void onProgress(ImportProgress progress);
+
+}
@@ -0,0 +1,66 @@
+package persistence.importer;
+
+import java.util.Collections;
+import java.util.List;
+
+public class ImportResult {
+
+    private final int chunks;
+    private final int resumedChunks;
+    private final long created;
+    private final long duplicates;
+    private final long rejected;
+    private final List<Rejection> rejections;
+
+    public ImportResult(int chunks, int resumedChunks, long created, long duplicates, long rejected,
+                        List<Rejection> rejections) {
+        this.chunks = chunks;
+        this.resumedChunks = resumedChunks;
+        this.created = created;
+        this.duplicates = duplicates;
+        this.rejected = rejected;
+        this.rejections = Collections.unmodifiableList(rejections);
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    /**
+     * Chunks skipped because a previous run had already committed them.
+     */
+    public int getResumedChunks() {
+        return resumedChunks;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * The first rejected records, in no particular order; {@link #getRejected()} has the full count.
+     */
+    public List<Rejection> getRejections() {
+        return rejections;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportResult{" +
+                "chunks=" + chunks +
+                ", resumedChunks=" + resumedChunks +
+                ", created=" + created +
+                ", duplicates=" + duplicates +
+                ", rejected=" + rejected +
+                '}';
+    }
+
+}
@@ -0,0 +1,29 @@
+package persistence.importer;
+
+/**
+ * A record that was not imported, with the line of the input file it starts on.
+ */
+public class Rejection {
+
+    private final long line;
+    private final String reason;
+
+    public Rejection(long line, String reason) {
+        this.line = line;
+        this.reason = reason;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    @Override
+    public String toString() {
+        return "line " + line + ": " + reason;
+    }
+
+}
@@ -0,0 +1,271 @@
+package persistence.loadgen;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import persistence.dao.CustomerDAO;
+import persistence.datasource.PoolConfig;
+import persistence.datasource.PooledDataSource;
+import persistence.dto.CustomerDTO;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load against {@link CustomerDAO}: requests are started at the configured rate whether or not earlier
+ * ones have finished, and queue for a worker thread when the database cannot keep up.
+ * <p>
+ * Latency is measured from the time a request was scheduled to start, not from when a worker picked it up, so time
+ * spent waiting behind slow requests is counted; measuring from the actual start would hide it (coordinated
+ * omission). The service time, from the actual start, is reported next to it for comparison.
+ * <p>
+ * getById keys follow a Zipfian distribution over the seeded customers. createIfNotExists draws from twice as many
+ * keys, so about half of them already exist, and create always uses new ids.
+ */
+public class LoadGenerator {
+
+    private static final int HISTOGRAM_DIGITS = 3;
+    private static final int ID_LENGTH = 5;
+    private static final int SEED_BATCH_SIZE = 1_000;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private static final String CREATE_TABLE_SQL = "create table if not exists customer (" +
+            "customer_id character(5) not null primary key, company_name character varying(40) not null, " +
+            "contact_name character varying(30), contact_title character varying(30), " +
+            "address character varying(60), city character varying(15), region character varying(15), " +
+            "postal_code character varying(10), country character varying(15), phone character varying(24), " +
+            "fax character varying(24));";
+
+    private final LoadOptions options;
+    private final Map<Operation, Recorder> latency = new EnumMap<>(Operation.class);
+    private final Map<Operation, Recorder> serviceTime = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final ZipfianGenerator existingKeys;
+    private final ZipfianGenerator candidateKeys;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final AtomicLong nextNewKey;
+    private final Random random = new Random();
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    public LoadGenerator(LoadOptions options) {
+        this.options = options;
+        for (Operation operation : Operation.values()) {
+            latency.put(operation, new Recorder(HISTOGRAM_DIGITS));
+            serviceTime.put(operation, new Recorder(HISTOGRAM_DIGITS));
+            errors.put(operation, new LongAdder());
+        }
+        this.existingKeys = new ZipfianGenerator(options.getCustomers(), options.getSkew(), true);
+        this.candidateKeys = new ZipfianGenerator(2L * options.getCustomers(), options.getSkew(), true);
+        this.nextNewKey = new AtomicLong(2L * options.getCustomers());
+
+        final var weighted = new ArrayList<Operation>();
+        final var cumulative = new ArrayList<Integer>();
+        int total = 0;
+        for (var entry : options.getMix().entrySet()) {
+            if (entry.getValue() == 0) continue;
+            total += entry.getValue();
+            weighted.add(entry.getKey());
+            cumulative.add(total);
+        }
+        this.operations = weighted.toArray(new Operation[0]);
+        this.cumulativeWeights = cumulative.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    public static void main(String[] args) {
+        new LoadGenerator(LoadOptions.parse(args)).run();
+    }
+
+    public void run() {
+        logger.info("Running {}", options);
+        try (PooledDataSource dataSource = buildDataSource()) {
+            final var dao = new CustomerDAO(dataSource);
+            if (options.isSeed()) seed(dataSource, dao);
+
+            final var counter = new AtomicInteger();
+            final ExecutorService workers = Executors.newFixedThreadPool(options.getThreads(), runnable -> {
+                final var thread = new Thread(runnable, "loadgen-worker-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                if (!options.getWarmup().isZero()) {
+                    drive(dao, workers, options.getWarmup());
+                    // Requests still queued from the warmup finish during the measurement and are counted there
+                    for (Operation operation : Operation.values()) {
+                        latency.get(operation).reset();
+                        serviceTime.get(operation).reset();
+                        errors.get(operation).reset();
+                    }
+                }
+                final long started = System.nanoTime();
+                drive(dao, workers, options.getDuration());
+                workers.shutdown();
+                if (!workers.awaitTermination(10, TimeUnit.MINUTES)) {
+                    logger.warn("Requests still queued after 10 minutes, reporting what has finished");
+                }
+                report(System.nanoTime() - started);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                logger.warn("Interrupted, reporting what has finished");
+            } finally {
+                workers.shutdownNow();
+            }
+        }
+    }
+
+    private PooledDataSource buildDataSource() {
+        final var config = new PoolConfig();
+        config.setPoolName("loadgen");
+        config.setMinimumIdle(options.getThreads());
+        config.setMaximumPoolSize(options.getThreads());
+        config.setStatementCacheSize(8);
+        return new PooledDataSource(
+                new DriverManagerDataSource(options.getUrl(), options.getUser(), options.getPassword()), config);
+    }
+
+    private void seed(PooledDataSource dataSource, CustomerDAO dao) {
+        try (
+                final Connection conn = dataSource.getConnection();
+                final var stmt = conn.createStatement()
+        ) {
+            stmt.execute(CREATE_TABLE_SQL);
+        } catch (SQLException ex) {
+            logger.error("Error creating the customer table", ex);
+            throw new RuntimeException(ex);
+        }
+
+        final long started = System.nanoTime();
+        int created = 0;
+        final var batch = new ArrayList<CustomerDTO>(SEED_BATCH_SIZE);
+        for (long key = 0; key < options.getCustomers(); key++) {
+            batch.add(customer(key));
+            if (batch.size() == SEED_BATCH_SIZE || key == options.getCustomers() - 1) {
+                created += dao.createAll(batch, SEED_BATCH_SIZE).getCreatedCount();
+                batch.clear();
+            }
+        }
+        logger.info("Seeded {} customers ({} already there) in {} ms", created, options.getCustomers() - created,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // Runs on the calling thread, which only schedules; workers do the calls
+    private void drive(CustomerDAO dao, ExecutorService workers, Duration length) {
+        final double intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.getRate();
+        final long start = System.nanoTime();
+        final long end = start + length.toNanos();
+        double offset = 0;
+        while (true) {
+            final long intendedStart = start + (long) offset;
+            if (intendedStart - end >= 0) return;
+            final long wait = intendedStart - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+
+            final var operation = nextOperation();
+            final long key = nextKey(operation);
+            workers.execute(() -> execute(dao, operation, key, intendedStart));
+
+            offset += options.isPoisson() ? -Math.log(1 - random.nextDouble()) * intervalNanos : intervalNanos;
+        }
+    }
+
+    private void execute(CustomerDAO dao, Operation operation, long key, long intendedStart) {
+        final long started = System.nanoTime();
+        try {
+            switch (operation) {
+                case GET_BY_ID:
+                    dao.getById(customerId(key));
+                    break;
+                case CREATE:
+                    dao.create(customer(key));
+                    break;
+                default:
+                    dao.createIfAbsent(customer(key));
+            }
+        } catch (RuntimeException ex) {
+            errors.get(operation).increment();
+            logger.debug("{} failed", operation.getLabel(), ex);
+        }
+        final long finished = System.nanoTime();
+        latency.get(operation).recordValue(finished - intendedStart);
+        serviceTime.get(operation).recordValue(finished - started);
+    }
+
+    private Operation nextOperation() {
+        final int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) return operations[i];
+        }
+        return operations[operations.length - 1];
+    }
+
+    private long nextKey(Operation operation) {
+        switch (operation) {
+            case GET_BY_ID:
+                return existingKeys.next(random);
+            case CREATE:
+                return nextNewKey.getAndIncrement();
+            default:
+                return candidateKeys.next(random);
+        }
+    }
+
+    private void report(long elapsedNanos) {
+        final double seconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        final var total = new Histogram(HISTOGRAM_DIGITS);
+        final var totalService = new Histogram(HISTOGRAM_DIGITS);
+        long totalErrors = 0;
+        logger.info(String.format("%-18s %9s %7s %10s %9s %9s %9s %9s %12s",
+                "operation", "count", "errors", "ops/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "svc p99 ms"));
+        for (Operation operation : Operation.values()) {
+            final var histogram = latency.get(operation).getIntervalHistogram();
+            final var service = serviceTime.get(operation).getIntervalHistogram();
+            final long operationErrors = errors.get(operation).sum();
+            if (histogram.getTotalCount() == 0) continue;
+            logRow(operation.getLabel(), histogram, service, operationErrors, seconds);
+            total.add(histogram);
+            totalService.add(service);
+            totalErrors += operationErrors;
+        }
+        logRow("total", total, totalService, totalErrors, seconds);
+    }
+
+    private void logRow(String label, Histogram histogram, Histogram service, long errorCount, double seconds) {
+        logger.info(String.format("%-18s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f %12.2f",
+                label,
+                histogram.getTotalCount(),
+                errorCount,
+                histogram.getTotalCount() / seconds,
+                histogram.getValueAtPercentile(50) / NANOS_PER_MILLI,
+                histogram.getValueAtPercentile(99) / NANOS_PER_MILLI,
+                histogram.getValueAtPercentile(99.9) / NANOS_PER_MILLI,
+                histogram.getMaxValue() / NANOS_PER_MILLI,
+                service.getValueAtPercentile(99) / NANOS_PER_MILLI));
+    }
+
+    static String customerId(long key) {
+        final var id = Long.toString(key, 36).toUpperCase();
+        if (id.length() > ID_LENGTH) throw new IllegalStateException("Ran out of " + ID_LENGTH + " character ids");
+        return "0".repeat(ID_LENGTH - id.length()) + id;
+    }
+
+    private static CustomerDTO customer(long key) {
+        final var id = customerId(key);
+        return new CustomerDTO(id, "Company " + id, "Contact " + id, "Owner", "Street " + key, "Buenos Aires",
+                null, "C" + (key % 10_000), "Argentina", "+54 11 " + key, null);
+    }
+
+}
@@ -0,0 +1,189 @@
+package persistence.loadgen;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Load generator settings, parsed from {@code --name=value} arguments. Durations take a unit: {@code 500ms},
+ * {@code 30s} or {@code 2m}. The mix is a list of weights such as {@code getById=90,create=5,createIfNotExists=5}.
+ */
+public class LoadOptions {
+
+    public static final String H2_URL = "jdbc:h2:mem:loadgen;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private String url = H2_URL;
+    private String user = "";
+    private String password = "";
+    private double rate = 1_000;
+    private Duration duration = Duration.ofSeconds(30);
+    private Duration warmup = Duration.ofSeconds(5);
+    private int customers = 10_000;
+    private double skew = 0.99;
+    private Map<Operation, Integer> mix = parseMix("getById=90,create=5,createIfNotExists=5");
+    private int threads = 16;
+    private boolean poisson = true;
+    private boolean seed = true;
+
+    public static LoadOptions parse(String... args) {
+        final var options = new LoadOptions();
+        for (String arg : args) {
+            final int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) throw new IllegalArgumentException("Expected --name=value: " + arg);
+            final var value = arg.substring(equals + 1);
+            switch (arg.substring(2, equals)) {
+                case "url":
+                    options.url = value;
+                    break;
+                case "user":
+                    options.user = value;
+                    break;
+                case "password":
+                    options.password = value;
+                    break;
+                case "rate":
+                    options.rate = Double.parseDouble(value);
+                    break;
+                case "duration":
+                    options.duration = parseDuration(value);
+                    break;
+                case "warmup":
+                    options.warmup = parseDuration(value);
+                    break;
+                case "customers":
+                    options.customers = Integer.parseInt(value);
+                    break;
+                case "skew":
+                    options.skew = Double.parseDouble(value);
+                    break;
+                case "mix":
+                    options.mix = parseMix(value);
+                    break;
+                case "threads":
+                    options.threads = Integer.parseInt(value);
+                    break;
+                case "arrivals":
+                    if (!"poisson".equals(value) && !"uniform".equals(value)) {
+                        throw new IllegalArgumentException("arrivals must be poisson or uniform");
+                    }
+                    options.poisson = "poisson".equals(value);
+                    break;
+                case "seed":
+                    options.seed = Boolean.parseBoolean(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        options.validate();
+        return options;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * Requests started per second, whether or not earlier ones have finished.
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    /**
+     * Customers seeded before the run; getById keys are drawn from them.
+     */
+    public int getCustomers() {
+        return customers;
+    }
+
+    public double getSkew() {
+        return skew;
+    }
+
+    public Map<Operation, Integer> getMix() {
+        return mix;
+    }
+
+    /**
+     * Threads executing requests, which is also the connection pool size.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Whether the time between requests is exponentially distributed, like independent users, rather than fixed.
+     */
+    public boolean isPoisson() {
+        return poisson;
+    }
+
+    public boolean isSeed() {
+        return seed;
+    }
+
+    private void validate() {
+        if (rate <= 0) throw new IllegalArgumentException("rate must be positive");
+        if (duration.isZero() || duration.isNegative()) throw new IllegalArgumentException("duration must be positive");
+        if (warmup.isNegative()) throw new IllegalArgumentException("warmup must not be negative");
+        if (customers < 2) throw new IllegalArgumentException("customers must be at least 2");
+        if (threads < 1) throw new IllegalArgumentException("threads must be at least 1");
+    }
+
+    private static Duration parseDuration(String value) {
+        if (value.endsWith("ms")) return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        if (value.endsWith("s")) return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        if (value.endsWith("m")) return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        throw new IllegalArgumentException("Duration needs a unit (ms, s or m): " + value);
+    }
+
+    private static Map<Operation, Integer> parseMix(String value) {
+        final var mix = new EnumMap<Operation, Integer>(Operation.class);
+        for (String entry : value.split(",")) {
+            final var parts = entry.split("=");
+            if (parts.length != 2) throw new IllegalArgumentException("Expected operation=weight: " + entry);
+            final int weight = Integer.parseInt(parts[1].strip());
+            if (weight < 0) throw new IllegalArgumentException("Weights must not be negative: " + entry);
+            mix.put(Operation.of(parts[0].strip()), weight);
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("The mix needs at least one positive weight");
+        }
+        return mix;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadOptions{" +
+                "url='" + url + '\'' +
+                ", user='" + user + '\'' +
+                ", rate=" + rate +
+                ", duration=" + duration +
+                ", warmup=" + warmup +
+                ", customers=" + customers +
+                ", skew=" + skew +
+                ", mix=" + mix +
+                ", threads=" + threads +
+                ", arrivals=" + (poisson ? "poisson" : "uniform") +
+                ", seed=" + seed +
+                '}';
+    }
+
+}
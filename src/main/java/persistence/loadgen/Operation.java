@@ -0,0 +1,24 @@
+package persistence.loadgen;
+
+public enum Operation {
+    GET_BY_ID("getById"),
+    CREATE("create"),
+    CREATE_IF_NOT_EXISTS("createIfNotExists");
+
+    private final String label;
+
+    Operation(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public static Operation of(String label) {
+        for (Operation operation : values()) {
+            if (operation.label.equals(label)) return operation;
+        }
+        throw new IllegalArgumentException("Unknown operation " + label);
+    }
+}
@@ -0,0 +1,72 @@
+package persistence.loadgen;
+
+import java.util.Random;
+
+/**
+ * Zipfian ranks in {@code [0, items)}: rank k is drawn with probability proportional to {@code 1 / (k + 1)^skew},
+ * using the rejection-free method of Gray et al., "Quickly Generating Billion-Record Synthetic Databases" (as in
+ * YCSB). Setup is O(items), each draw O(1).
+ * <p>
+ * When scrambled, ranks are mapped to keys through a fixed permutation so the hot keys are spread over the key
+ * space instead of being the lowest ids.
+ */
+public class ZipfianGenerator {
+
+    // Prime larger than any supported item count, so multiplying by it modulo items is a bijection
+    private static final long SCRAMBLE_PRIME = 2_147_483_647L;
+
+    private final long items;
+    private final double skew;
+    private final boolean scrambled;
+    private final double zetaN;
+    private final double alpha;
+    private final double eta;
+    private final double secondRankThreshold;
+
+    public ZipfianGenerator(long items, double skew, boolean scrambled) {
+        if (items < 2 || items >= SCRAMBLE_PRIME) {
+            throw new IllegalArgumentException("items must be between 2 and " + (SCRAMBLE_PRIME - 1));
+        }
+        if (skew <= 0 || skew >= 1) throw new IllegalArgumentException("skew must be in (0, 1)");
+        this.items = items;
+        this.skew = skew;
+        this.scrambled = scrambled;
+        this.zetaN = zeta(items, skew);
+        this.alpha = 1 / (1 - skew);
+        this.eta = (1 - Math.pow(2.0 / items, 1 - skew)) / (1 - zeta(2, skew) / zetaN);
+        this.secondRankThreshold = 1 + Math.pow(0.5, skew);
+    }
+
+    public long next(Random random) {
+        return key(rank(random.nextDouble()));
+    }
+
+    /**
+     * Rank for a uniform sample {@code u} in {@code [0, 1)}; 0 is the most frequent.
+     */
+    long rank(double u) {
+        final double uz = u * zetaN;
+        if (uz < 1) return 0;
+        if (uz < secondRankThreshold) return 1;
+        return Math.min(items - 1, (long) (items * Math.pow(eta * u - eta + 1, alpha)));
+    }
+
+    long key(long rank) {
+        return scrambled ? Math.floorMod(rank * SCRAMBLE_PRIME, items) : rank;
+    }
+
+    public long getItems() {
+        return items;
+    }
+
+    public double getSkew() {
+        return skew;
+    }
+
+    private static double zeta(long n, double theta) {
+        double sum = 0;
+        for (long i = 1; i <= n; i++) sum += 1 / Math.pow(i, theta);
+        return sum;
+    }
+
+}
@@ -0,0 +1,13 @@
+package persistence.metrics;
+
+public interface Counter {
+
+    void increment(long amount);
+
+    long getCount();
+
+    default void increment() {
+        increment(1);
+    }
+
+}
@@ -0,0 +1,103 @@
+package persistence.metrics;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class InMemoryMetricsRegistry implements MetricsRegistry {
+
+    private final ConcurrentHashMap<String, InMemoryTimer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, InMemoryCounter> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public Timer timer(String name, String... tags) {
+        return timers.computeIfAbsent(key(name, tags), ignored -> new InMemoryTimer());
+    }
+
+    @Override
+    public Counter counter(String name, String... tags) {
+        return counters.computeIfAbsent(key(name, tags), ignored -> new InMemoryCounter());
+    }
+
+    /**
+     * Every timer recorded so far, keyed as {@code name{tag=value,...}} with tags sorted by key.
+     */
+    public Map<String, Timer> getTimers() {
+        return new TreeMap<>(timers);
+    }
+
+    public Map<String, Counter> getCounters() {
+        return new TreeMap<>(counters);
+    }
+
+    static String key(String name, String... tags) {
+        if (tags.length % 2 != 0) throw new IllegalArgumentException("Tags must be key/value pairs: " + Arrays.toString(tags));
+        if (tags.length == 0) return name;
+        final var sorted = new TreeMap<String, String>();
+        for (int i = 0; i < tags.length; i += 2) sorted.put(tags[i], tags[i + 1]);
+        final var key = new StringBuilder(name).append('{');
+        sorted.forEach((tag, value) -> key.append(tag).append('=').append(value).append(','));
+        key.setCharAt(key.length() - 1, '}');
+        return key.toString();
+    }
+
+    private static class InMemoryTimer implements Timer {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        @Override
+        public void record(long nanos) {
+            count.increment();
+            total.add(nanos);
+            max.accumulateAndGet(nanos, Math::max);
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public long getTotalNanos() {
+            return total.sum();
+        }
+
+        @Override
+        public long getMaxNanos() {
+            return max.get();
+        }
+
+        @Override
+        public String toString() {
+            return "Timer{count=" + getCount() + ", totalNanos=" + getTotalNanos() + ", maxNanos=" + getMaxNanos() + '}';
+        }
+
+    }
+
+    private static class InMemoryCounter implements Counter {
+
+        private final LongAdder count = new LongAdder();
+
+        @Override
+        public void increment(long amount) {
+            count.add(amount);
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "Counter{count=" + getCount() + '}';
+        }
+
+    }
+
+}
@@ -0,0 +1,21 @@
+package persistence.metrics;
+
+/**
+ * Source of named meters. Tags are given as alternating key/value pairs, e.g.
+ * {@code timer("customer.dao.phase", "operation", "getById", "phase", "execute")}.
+ */
+public interface MetricsRegistry {
+
+    Timer timer(String name, String... tags);
+
+    Counter counter(String name, String... tags);
+
+    default boolean isEnabled() {
+        return true;
+    }
+
+    static MetricsRegistry noop() {
+        return NoopMetricsRegistry.INSTANCE;
+    }
+
+}
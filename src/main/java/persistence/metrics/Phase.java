@@ -0,0 +1,18 @@
+package persistence.metrics;
+
+public enum Phase {
+    ACQUIRE("acquire"),
+    PREPARE("prepare"),
+    EXECUTE("execute"),
+    MAP("map");
+
+    private final String tag;
+
+    Phase(String tag) {
+        this.tag = tag;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+}
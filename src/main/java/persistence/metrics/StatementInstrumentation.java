@@ -0,0 +1,122 @@
+package persistence.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times DAO operations split into {@link Phase}s. Each phase is recorded as {@code <prefix>.phase} tagged with
+ * operation and phase, the whole call as {@code <prefix>.operation} tagged with operation and outcome, returned
+ * rows as {@code <prefix>.rows} and failures as {@code <prefix>.errors} tagged with the SQLState.
+ */
+public class StatementInstrumentation {
+
+    public static final StatementInstrumentation DISABLED =
+            new StatementInstrumentation("disabled", MetricsRegistry.noop(), Duration.ZERO);
+
+    private static final String UNKNOWN_SQL_STATE = "unknown";
+
+    private final String prefix;
+    private final MetricsRegistry registry;
+    private final long slowThresholdNanos;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /**
+     * @param slowThreshold operations taking at least this long are logged as slow; {@link Duration#ZERO} disables it
+     */
+    public StatementInstrumentation(String prefix, MetricsRegistry registry, Duration slowThreshold) {
+        this.prefix = prefix;
+        this.registry = registry;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+    }
+
+    public Operation start(String operation) {
+        if (!registry.isEnabled() && slowThresholdNanos <= 0) return Operation.NOOP;
+        return new Operation(this, operation);
+    }
+
+    private void record(Operation op, long totalNanos) {
+        if (registry.isEnabled()) {
+            for (Phase phase : Phase.values()) {
+                final long nanos = op.phaseNanos[phase.ordinal()];
+                if (nanos > 0) {
+                    registry.timer(prefix + ".phase", "operation", op.name, "phase", phase.getTag()).record(nanos);
+                }
+            }
+            registry.timer(prefix + ".operation", "operation", op.name, "outcome", op.sqlState == null ? "success" : "error")
+                    .record(totalNanos);
+            if (op.rows > 0) registry.counter(prefix + ".rows", "operation", op.name).increment(op.rows);
+            if (op.sqlState != null) {
+                registry.counter(prefix + ".errors", "operation", op.name, "sqlstate", op.sqlState).increment();
+            }
+        }
+
+        if (slowThresholdNanos > 0 && totalNanos >= slowThresholdNanos) {
+            logger.warn("Slow {}.{}: {} ms (acquire {} ms, prepare {} ms, execute {} ms, map {} ms), {} rows",
+                    prefix, op.name, millis(totalNanos),
+                    millis(op.phaseNanos[Phase.ACQUIRE.ordinal()]),
+                    millis(op.phaseNanos[Phase.PREPARE.ordinal()]),
+                    millis(op.phaseNanos[Phase.EXECUTE.ordinal()]),
+                    millis(op.phaseNanos[Phase.MAP.ordinal()]),
+                    op.rows);
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * A single timed call. {@link #lap(Phase)} charges the time since the previous lap (or the start) to a phase,
+     * so repeated execute/map cycles accumulate. Not thread-safe.
+     */
+    public static class Operation {
+
+        static final Operation NOOP = new Operation(null, null);
+
+        private final StatementInstrumentation instrumentation;
+        private final String name;
+        private final long[] phaseNanos;
+        private final long startedAt;
+        private long lastLap;
+        private long rows;
+        private String sqlState;
+        private boolean finished;
+
+        private Operation(StatementInstrumentation instrumentation, String name) {
+            this.instrumentation = instrumentation;
+            this.name = name;
+            this.phaseNanos = instrumentation == null ? null : new long[Phase.values().length];
+            this.startedAt = instrumentation == null ? 0 : System.nanoTime();
+            this.lastLap = startedAt;
+        }
+
+        public void lap(Phase phase) {
+            if (instrumentation == null) return;
+            final long now = System.nanoTime();
+            phaseNanos[phase.ordinal()] += now - lastLap;
+            lastLap = now;
+        }
+
+        public void rows(long count) {
+            if (instrumentation == null) return;
+            rows += count;
+        }
+
+        public void failed(SQLException ex) {
+            if (instrumentation == null) return;
+            sqlState = ex.getSQLState() == null ? UNKNOWN_SQL_STATE : ex.getSQLState();
+        }
+
+        public void finish() {
+            if (instrumentation == null || finished) return;
+            finished = true;
+            instrumentation.record(this, System.nanoTime() - startedAt);
+        }
+
+    }
+
+}
@@ -0,0 +1,13 @@
+package persistence.metrics;
+
+public interface Timer {
+
+    void record(long nanos);
+
+    long getCount();
+
+    long getTotalNanos();
+
+    long getMaxNanos();
+
+}
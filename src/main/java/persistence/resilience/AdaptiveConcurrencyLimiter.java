@@ -0,0 +1,80 @@
+package persistence.resilience;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the number of queries in flight with a limit that follows the observed latency, so callers are turned away
+ * instead of queueing on the pool while the database is struggling.
+ * <p>
+ * The limit grows additively (by 1/limit per call, about one per round of calls) while the limit is being used and
+ * latency stays within {@code latencyTolerance} times the lowest latency seen; it shrinks multiplicatively by
+ * {@code backoffRatio} when a call fails transiently or takes longer, which is the sign of requests queueing
+ * somewhere. The lowest latency is re-sampled now and then so a permanent shift in latency is picked up.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final int MIN_LATENCY_SAMPLES = 1_000;
+
+    private final ResilienceConfig config;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private long minLatencyNanos = Long.MAX_VALUE;
+    private int samples;
+
+    public AdaptiveConcurrencyLimiter(ResilienceConfig config) {
+        config.validate();
+        this.config = config;
+        this.limit = config.getInitialLimit();
+    }
+
+    /**
+     * Takes a slot if fewer than {@link #getLimit()} queries are in flight. A taken slot must be given back with
+     * {@link #release(long, boolean)} or {@link #cancel()}.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            final int current = inFlight.get();
+            if (current >= (int) limit) return false;
+            if (inFlight.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    /**
+     * Gives back a slot and adjusts the limit to the call's latency.
+     *
+     * @param dropped whether the call failed in a way that signals overload
+     */
+    public void release(long latencyNanos, boolean dropped) {
+        final int wasInFlight = inFlight.getAndDecrement();
+        synchronized (this) {
+            if (++samples >= MIN_LATENCY_SAMPLES) {
+                samples = 0;
+                minLatencyNanos = latencyNanos;
+            }
+            if (!dropped) minLatencyNanos = Math.min(minLatencyNanos, latencyNanos);
+
+            final double current = limit;
+            if (dropped || latencyNanos > minLatencyNanos * config.getLatencyTolerance()) {
+                limit = Math.max(config.getMinLimit(), current * config.getBackoffRatio());
+            } else if (wasInFlight * 2 >= current) {
+                limit = Math.min(config.getMaxLimit(), current + 1 / current);
+            }
+        }
+    }
+
+    /**
+     * Gives back a slot of a call that never ran.
+     */
+    public void cancel() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+}
@@ -0,0 +1,169 @@
+package persistence.resilience;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Stops calls to a failing database. While closed, the outcome of the last {@code slidingWindowSize} calls is kept;
+ * once there are at least {@code minimumCalls} and either the failure rate or the slow call rate reaches its
+ * threshold the circuit opens and calls are refused for {@code openDuration}. Then {@code halfOpenCalls} trial calls
+ * are let through: if all of them succeed in time the circuit closes, otherwise it opens again.
+ * <p>
+ * Only transient failures count as failures; an error the database answered quickly, like a constraint violation,
+ * is a success as far as the breaker is concerned. Each {@link Permit} remembers the state it was granted in, and
+ * its outcome is ignored once the circuit has moved on: a call let through while closed that ends during the
+ * trial calls is not taken for one of them.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final ResilienceConfig config;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final LongSupplier ticker;
+    private final boolean[] failed;
+    private final boolean[] slow;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private State state = State.CLOSED;
+    private int recorded;
+    private int next;
+    private int failures;
+    private int slowCalls;
+    private long openedAt;
+    private int trialPermits;
+    private int trialSuccesses;
+    // Bumped on every state change, so a permit can tell whether the state it was granted in still holds
+    private long generation;
+
+    public CircuitBreaker(ResilienceConfig config) {
+        this(config, System::nanoTime);
+    }
+
+    CircuitBreaker(ResilienceConfig config, LongSupplier ticker) {
+        config.validate();
+        this.config = config;
+        this.slowCallNanos = config.getSlowCallThreshold().toNanos();
+        this.openNanos = config.getOpenDuration().toNanos();
+        this.ticker = ticker;
+        this.failed = new boolean[config.getSlidingWindowSize()];
+        this.slow = new boolean[config.getSlidingWindowSize()];
+    }
+
+    /**
+     * A permit for a call that may go ahead, or null while calls are refused. Every permit must be finished with
+     * exactly one of {@link Permit#onSuccess(long)}, {@link Permit#onFailure(long)} or {@link Permit#release()}.
+     */
+    public synchronized Permit tryAcquire() {
+        if (state == State.OPEN) {
+            if (ticker.getAsLong() - openedAt < openNanos) return null;
+            state = State.HALF_OPEN;
+            generation++;
+            trialPermits = config.getHalfOpenCalls();
+            trialSuccesses = 0;
+            logger.info("Circuit half-open, letting {} trial calls through", trialPermits);
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialPermits == 0) return null;
+            trialPermits--;
+        }
+        return new Permit(generation);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private synchronized void finish(Permit permit, boolean failure, boolean slowCall) {
+        if (permit.generation != generation) return;
+        record(failure, slowCall);
+    }
+
+    private synchronized void release(Permit permit) {
+        if (permit.generation == generation && state == State.HALF_OPEN) trialPermits++;
+    }
+
+    private void record(boolean failure, boolean slowCall) {
+        if (state == State.HALF_OPEN) {
+            if (failure || slowCall) {
+                open("a trial call " + (failure ? "failed" : "was slow"));
+            } else if (++trialSuccesses == config.getHalfOpenCalls()) {
+                state = State.CLOSED;
+                generation++;
+                logger.info("Circuit closed after {} successful trial calls", trialSuccesses);
+            }
+            return;
+        }
+        if (state == State.OPEN) return;
+
+        if (recorded == failed.length) {
+            if (failed[next]) failures--;
+            if (slow[next]) slowCalls--;
+        } else {
+            recorded++;
+        }
+        failed[next] = failure;
+        slow[next] = slowCall;
+        if (failure) failures++;
+        if (slowCall) slowCalls++;
+        next = (next + 1) % failed.length;
+
+        if (recorded < config.getMinimumCalls()) return;
+        if (failures >= config.getFailureRateThreshold() * recorded) {
+            open(failures + " of the last " + recorded + " calls failed");
+        } else if (slowCalls >= config.getSlowCallRateThreshold() * recorded) {
+            open(slowCalls + " of the last " + recorded + " calls were slow");
+        }
+    }
+
+    private void open(String reason) {
+        state = State.OPEN;
+        generation++;
+        openedAt = ticker.getAsLong();
+        recorded = 0;
+        next = 0;
+        failures = 0;
+        slowCalls = 0;
+        logger.warn("Circuit opened for {} ms: {}", openNanos / 1_000_000, reason);
+    }
+
+    public final class Permit {
+
+        private final long generation;
+        private boolean finished;
+
+        private Permit(long generation) {
+            this.generation = generation;
+        }
+
+        public void onSuccess(long latencyNanos) {
+            if (markFinished()) finish(this, false, latencyNanos >= slowCallNanos);
+        }
+
+        public void onFailure(long latencyNanos) {
+            if (markFinished()) finish(this, true, latencyNanos >= slowCallNanos);
+        }
+
+        /**
+         * Gives the permit back without an outcome, e.g. when the call ended in an {@link Error}; a trial permit
+         * can then be granted to another call.
+         */
+        public void release() {
+            if (markFinished()) CircuitBreaker.this.release(this);
+        }
+
+        private synchronized boolean markFinished() {
+            if (finished) return false;
+            finished = true;
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,13 @@
+package persistence.resilience;
+
+import java.util.concurrent.RejectedExecutionException;
+
+public class CircuitOpenException extends RejectedExecutionException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+
+}
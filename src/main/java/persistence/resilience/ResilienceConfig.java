@@ -0,0 +1,201 @@
+package persistence.resilience;
+
+import java.time.Duration;
+
+public class ResilienceConfig {
+
+    private int maxAttempts = 3;
+    private Duration retryBaseDelay = Duration.ofMillis(50);
+    private Duration retryMaxDelay = Duration.ofSeconds(1);
+    private int slidingWindowSize = 50;
+    private int minimumCalls = 20;
+    private double failureRateThreshold = 0.5;
+    private Duration slowCallThreshold = Duration.ofSeconds(2);
+    private double slowCallRateThreshold = 0.8;
+    private Duration openDuration = Duration.ofSeconds(10);
+    private int halfOpenCalls = 5;
+    private int initialLimit = 10;
+    private int minLimit = 1;
+    private int maxLimit = 100;
+    private double latencyTolerance = 2.0;
+    private double backoffRatio = 0.9;
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Attempts per read, the first one included; writes are never retried.
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public Duration getRetryBaseDelay() {
+        return retryBaseDelay;
+    }
+
+    /**
+     * Retry n waits a random time between zero and {@code retryBaseDelay * 2^(n-1)}, capped at
+     * {@link #getRetryMaxDelay()}.
+     */
+    public void setRetryBaseDelay(Duration retryBaseDelay) {
+        this.retryBaseDelay = retryBaseDelay;
+    }
+
+    public Duration getRetryMaxDelay() {
+        return retryMaxDelay;
+    }
+
+    public void setRetryMaxDelay(Duration retryMaxDelay) {
+        this.retryMaxDelay = retryMaxDelay;
+    }
+
+    public int getSlidingWindowSize() {
+        return slidingWindowSize;
+    }
+
+    /**
+     * Number of most recent calls the circuit breaker computes its failure and slow call rates over.
+     */
+    public void setSlidingWindowSize(int slidingWindowSize) {
+        this.slidingWindowSize = slidingWindowSize;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public void setMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+    }
+
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(double failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public Duration getSlowCallThreshold() {
+        return slowCallThreshold;
+    }
+
+    public void setSlowCallThreshold(Duration slowCallThreshold) {
+        this.slowCallThreshold = slowCallThreshold;
+    }
+
+    public double getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    public void setSlowCallRateThreshold(double slowCallRateThreshold) {
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    public void setOpenDuration(Duration openDuration) {
+        this.openDuration = openDuration;
+    }
+
+    public int getHalfOpenCalls() {
+        return halfOpenCalls;
+    }
+
+    /**
+     * Trial calls let through once {@link #getOpenDuration()} has passed; all of them must succeed to close the
+     * circuit again.
+     */
+    public void setHalfOpenCalls(int halfOpenCalls) {
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * Upper bound of the concurrency limit; usually the connection pool size.
+     */
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    public double getLatencyTolerance() {
+        return latencyTolerance;
+    }
+
+    /**
+     * A call slower than this many times the lowest latency seen counts as queueing and lowers the limit.
+     */
+    public void setLatencyTolerance(double latencyTolerance) {
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    public void setBackoffRatio(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+    }
+
+    void validate() {
+        if (maxAttempts < 1) throw new IllegalArgumentException("maxAttempts must be at least 1");
+        if (retryBaseDelay.isNegative() || retryMaxDelay.isNegative()) {
+            throw new IllegalArgumentException("retry delays must not be negative");
+        }
+        if (slidingWindowSize < 1) throw new IllegalArgumentException("slidingWindowSize must be at least 1");
+        if (minimumCalls < 1 || minimumCalls > slidingWindowSize) {
+            throw new IllegalArgumentException("minimumCalls must be between 1 and slidingWindowSize");
+        }
+        if (halfOpenCalls < 1) throw new IllegalArgumentException("halfOpenCalls must be at least 1");
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("limits must satisfy 1 <= minLimit <= initialLimit <= maxLimit");
+        }
+        if (latencyTolerance < 1) throw new IllegalArgumentException("latencyTolerance must be at least 1");
+        if (backoffRatio <= 0 || backoffRatio >= 1) throw new IllegalArgumentException("backoffRatio must be in (0, 1)");
+    }
+
+    @Override
+    public String toString() {
+        return "ResilienceConfig{" +
+                "maxAttempts=" + maxAttempts +
+                ", retryBaseDelay=" + retryBaseDelay +
+                ", retryMaxDelay=" + retryMaxDelay +
+                ", slidingWindowSize=" + slidingWindowSize +
+                ", minimumCalls=" + minimumCalls +
+                ", failureRateThreshold=" + failureRateThreshold +
+                ", slowCallThreshold=" + slowCallThreshold +
+                ", slowCallRateThreshold=" + slowCallRateThreshold +
+                ", openDuration=" + openDuration +
+                ", halfOpenCalls=" + halfOpenCalls +
+                ", initialLimit=" + initialLimit +
+                ", minLimit=" + minLimit +
+                ", maxLimit=" + maxLimit +
+                ", latencyTolerance=" + latencyTolerance +
+                ", backoffRatio=" + backoffRatio +
+                '}';
+    }
+
+}
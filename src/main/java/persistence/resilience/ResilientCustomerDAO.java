@@ -0,0 +1,173 @@
+package persistence.resilience;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import persistence.dao.CustomerRepository;
+import persistence.dto.CustomerDTO;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Guards a {@link CustomerRepository} against a slow or failing database. Every attempt passes through an
+ * {@link AdaptiveConcurrencyLimiter}, which throws {@link RejectedExecutionException} when
+ * the limit is reached, and a {@link CircuitBreaker}, which throws {@link CircuitOpenException} while open.
+ * Reads failing with a transient SQLState (see {@link SqlStates}) are retried with jittered exponential backoff;
+ * writes are not, since a write that timed out may still have committed. Rejected calls are never retried.
+ */
+public class ResilientCustomerDAO implements CustomerRepository {
+
+    private final CustomerRepository delegate;
+    private final ResilienceConfig config;
+    private final CircuitBreaker circuitBreaker;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final LongSupplier ticker;
+    private final Sleeper sleeper;
+    private final DoubleSupplier jitter;
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    public ResilientCustomerDAO(CustomerRepository delegate, ResilienceConfig config) {
+        this(delegate, config, System::nanoTime, TimeUnit.NANOSECONDS::sleep,
+                () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    ResilientCustomerDAO(
+            CustomerRepository delegate,
+            ResilienceConfig config,
+            LongSupplier ticker,
+            Sleeper sleeper,
+            DoubleSupplier jitter
+    ) {
+        this.delegate = delegate;
+        this.config = config;
+        this.circuitBreaker = new CircuitBreaker(config, ticker);
+        this.limiter = new AdaptiveConcurrencyLimiter(config);
+        this.ticker = ticker;
+        this.sleeper = sleeper;
+        this.jitter = jitter;
+    }
+
+    @Override
+    public Optional<CustomerDTO> getById(String id) {
+        return call(() -> delegate.getById(id), true);
+    }
+
+    @Override
+    public Map<String, CustomerDTO> getByIds(Collection<String> ids) {
+        return call(() -> delegate.getByIds(ids), true);
+    }
+
+    @Override
+    public CustomerDTO create(CustomerDTO customer) {
+        return call(() -> delegate.create(customer), false);
+    }
+
+    @Override
+    public boolean createIfAbsent(CustomerDTO customer) {
+        return call(() -> delegate.createIfAbsent(customer), false);
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public AdaptiveConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    public long getRejectionCount() {
+        return rejections.sum();
+    }
+
+    private <T> T call(Supplier<T> action, boolean idempotent) {
+        final int maxAttempts = idempotent ? config.getMaxAttempts() : 1;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return attempt(action);
+            } catch (RuntimeException ex) {
+                if (attempt >= maxAttempts || !SqlStates.isTransient(ex)) throw ex;
+                final long delay = backoffNanos(attempt);
+                logger.debug("Attempt {} failed with a transient error, retrying in {} ms", attempt,
+                        delay / 1_000_000, ex);
+                retries.increment();
+                try {
+                    sleeper.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    private <T> T attempt(Supplier<T> action) {
+        if (!limiter.tryAcquire()) {
+            rejections.increment();
+            throw new RejectedExecutionException("Too many queries in flight, limit is " + limiter.getLimit());
+        }
+        final var permit = circuitBreaker.tryAcquire();
+        if (permit == null) {
+            limiter.cancel();
+            rejections.increment();
+            throw new CircuitOpenException("Circuit is " + circuitBreaker.getState());
+        }
+
+        final long startedAt = ticker.getAsLong();
+        boolean completed = false;
+        boolean transientFailure = false;
+        try {
+            final var result = action.get();
+            completed = true;
+            return result;
+        } catch (RuntimeException ex) {
+            completed = true;
+            transientFailure = SqlStates.isTransient(ex);
+            throw ex;
+        } finally {
+            if (completed) {
+                final long latency = ticker.getAsLong() - startedAt;
+                if (transientFailure) {
+                    permit.onFailure(latency);
+                } else {
+                    permit.onSuccess(latency);
+                }
+                limiter.release(latency, transientFailure);
+            } else {
+                // An Error says nothing about the database, but the slot and any trial permit must not leak
+                permit.release();
+                limiter.cancel();
+            }
+        }
+    }
+
+    // Full jitter: uniformly random between zero and the exponential backoff
+    private long backoffNanos(int attempt) {
+        final long base = config.getRetryBaseDelay().toNanos();
+        final long max = config.getRetryMaxDelay().toNanos();
+        long exponential = base;
+        for (int i = 1; i < attempt && exponential < max; i++) exponential *= 2;
+        return (long) (jitter.getAsDouble() * Math.min(max, exponential));
+    }
+
+    @FunctionalInterface
+    interface Sleeper {
+
+        void sleep(long nanos) throws InterruptedException;
+
+    }
+
+}
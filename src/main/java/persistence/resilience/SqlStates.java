@@ -0,0 +1,48 @@
+package persistence.resilience;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.Set;
+
+/**
+ * Tells failures worth retrying (the database or the connection was briefly unavailable, the transaction lost a
+ * race) from those that will fail again (bad SQL, constraint violations, missing tables).
+ */
+public final class SqlStates {
+
+    // 08 connection exception, 53 insufficient resources
+    private static final Set<String> TRANSIENT_CLASSES = Set.of("08", "53");
+
+    private static final Set<String> TRANSIENT_STATES = Set.of(
+            "40001", // serialization failure
+            "40P01", // deadlock detected
+            "57014", // query canceled, e.g. by statement_timeout
+            "57P01", // admin shutdown
+            "57P02", // crash shutdown
+            "57P03", // cannot connect now, e.g. during a failover
+            "HYT00", // timeout expired
+            "HYT01"  // connection timeout expired
+    );
+
+    private SqlStates() {
+    }
+
+    /**
+     * Looks for the SQLException in the cause chain, since DAOs wrap it in a RuntimeException.
+     */
+    public static boolean isTransient(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransientException || cause instanceof SQLRecoverableException) return true;
+            if (cause instanceof SQLException) return isTransient(((SQLException) cause).getSQLState());
+            if (cause.getCause() == cause) break;
+        }
+        return false;
+    }
+
+    public static boolean isTransient(String sqlState) {
+        if (sqlState == null || sqlState.length() < 2) return false;
+        return TRANSIENT_STATES.contains(sqlState) || TRANSIENT_CLASSES.contains(sqlState.substring(0, 2));
+    }
+
+}
@@ -2,15 +2,15 @@ package persistence.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import persistence.dao.CustomerDAO;
+import persistence.dao.CustomerRepository;
 import persistence.dto.CustomerDTO;
 
 public class CustomerService {
 
-    private final CustomerDAO customerDAO;
+    private final CustomerRepository customerDAO;
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    public CustomerService(CustomerDAO customerDAO) {
+    public CustomerService(CustomerRepository customerDAO) {
         this.customerDAO = customerDAO;
     }
 
@@ -29,14 +29,11 @@ public class CustomerService {
                 null
         );
 
-        final var oCustomer = customerDAO.getById(customerToCreate.getId());
-        if (oCustomer.isEmpty()) {
-            logger.info("Customer not found. Creating it...");
-            final var createdCustomer = customerDAO.create(customerToCreate);
-            logger.info("Customer created: {}", createdCustomer);
+        if (customerDAO.createIfAbsent(customerToCreate)) {
+            logger.info("Customer created: {}", customerToCreate);
             return;
         }
 
-        logger.info("Customer {} already exists: {}", customerToCreate.getId(), oCustomer.get());
+        logger.info("Customer {} already exists", customerToCreate.getId());
     }
 }
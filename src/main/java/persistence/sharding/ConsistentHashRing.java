@@ -0,0 +1,108 @@
+package persistence.sharding;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Maps customer ids to shard names. Each shard is placed at {@code virtualNodes} points of a 64-bit hash ring and
+ * owns the hashes from the previous point (exclusive) up to each of its points (inclusive), so adding a shard only
+ * takes over the ranges in front of its own points, about {@code 1 / shards} of the ring, and leaves the rest
+ * where it was.
+ * <p>
+ * Immutable: adding a shard returns a new ring.
+ */
+public final class ConsistentHashRing {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int virtualNodes;
+    private final Set<String> shards;
+    private final NavigableMap<Long, String> points = new TreeMap<>();
+
+    public ConsistentHashRing(Collection<String> shards, int virtualNodes) {
+        if (shards.isEmpty()) throw new IllegalArgumentException("At least one shard is needed");
+        if (virtualNodes < 1) throw new IllegalArgumentException("virtualNodes must be at least 1");
+        this.virtualNodes = virtualNodes;
+        this.shards = Collections.unmodifiableSet(new LinkedHashSet<>(shards));
+        for (String shard : this.shards) {
+            for (int i = 0; i < virtualNodes; i++) points.put(hash(shard + "#" + i), shard);
+        }
+    }
+
+    public ConsistentHashRing withShard(String shard) {
+        if (shards.contains(shard)) throw new IllegalArgumentException("Shard " + shard + " is already in the ring");
+        final var extended = new ArrayList<>(shards);
+        extended.add(shard);
+        return new ConsistentHashRing(extended, virtualNodes);
+    }
+
+    /**
+     * Shard owning the id. Trailing blanks are ignored, as PostgreSQL pads {@code customer_id}.
+     */
+    public String shardFor(String customerId) {
+        return ownerOf(hash(customerId.stripTrailing()));
+    }
+
+    /**
+     * Hash ranges whose owner in {@code target} is not their owner here, in ring order.
+     */
+    public List<HashRange> movedRanges(ConsistentHashRing target) {
+        final var boundaries = new TreeSet<>(points.keySet());
+        boundaries.addAll(target.points.keySet());
+        final var moved = new ArrayList<HashRange>();
+        long previous = boundaries.last();
+        for (long end : boundaries) {
+            final var from = ownerOf(end);
+            final var to = target.ownerOf(end);
+            if (!from.equals(to)) moved.add(new HashRange(from, to, previous, end));
+            previous = end;
+        }
+        return moved;
+    }
+
+    public Set<String> getShards() {
+        return shards;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    private String ownerOf(long hash) {
+        final var point = points.ceilingEntry(hash);
+        return point != null ? point.getValue() : points.firstEntry().getValue();
+    }
+
+    // FNV-1a followed by the MurmurHash3 finalizer, which spreads ids differing in one character over the ring.
+    // Must never change: rows are placed by it.
+    static long hash(CharSequence key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "ConsistentHashRing{" +
+                "shards=" + shards +
+                ", virtualNodes=" + virtualNodes +
+                '}';
+    }
+
+}
@@ -0,0 +1,64 @@
+package persistence.sharding;
+
+/**
+ * Hashes in {@code (start, end]} moving from one shard to another; wraps around the ring when {@code end} is not
+ * after {@code start}.
+ */
+public class HashRange {
+
+    private static final double RING_SIZE = 0x1p64;
+
+    private final String from;
+    private final String to;
+    private final long start;
+    private final long end;
+
+    public HashRange(String from, String to, long start, long end) {
+        this.from = from;
+        this.to = to;
+        this.start = start;
+        this.end = end;
+    }
+
+    public boolean contains(long hash) {
+        if (start < end) return hash > start && hash <= end;
+        return hash > start || hash <= end;
+    }
+
+    /**
+     * Share of the whole ring covered by the range, between 0 and 1.
+     */
+    public double getRingFraction() {
+        if (start == end) return 1;
+        final long width = end - start;
+        // Unsigned width: the top bit is part of the magnitude
+        return ((width >>> 1) * 2.0 + (width & 1)) / RING_SIZE;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    @Override
+    public String toString() {
+        return "HashRange{" +
+                "from='" + from + '\'' +
+                ", to='" + to + '\'' +
+                ", start=" + start +
+                ", end=" + end +
+                '}';
+    }
+
+}
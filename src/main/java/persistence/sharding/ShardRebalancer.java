@@ -0,0 +1,128 @@
+package persistence.sharding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import persistence.dao.CustomerDAO;
+import persistence.dao.InsertOutcome;
+import persistence.dto.CustomerDTO;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Adds a shard to a {@link ShardedCustomerDAO} while it keeps serving calls. Only the shards losing hash ranges to
+ * the new one are scanned, and only the customers in those ranges are copied to it, in batches, each batch deleted
+ * from its old shard once copied. A customer is always on at least one of the two shards, which is what the
+ * sharded DAO's reads during the migration rely on.
+ * <p>
+ * If moving fails the migration stays open and the DAO keeps reading both ways; calling {@link #addShard} again
+ * with the same shard resumes it. A customer the new shard already holds is only deleted from the old one when both
+ * rows carry the same data; otherwise moving fails with an {@link IllegalStateException}.
+ * <p>
+ * Moves are not invisible to {@link persistence.changefeed.CustomerChangeFeed} consumers: with the outbox trigger
+ * installed, each moved customer is a {@code D} change on the old shard's feed and an {@code I} change on the new
+ * one, and nothing orders the two feeds. A subscriber such as {@link persistence.cache.CachingCustomerDAO#apply}
+ * may see the delete last and take the customer as gone; such caches should be invalidated once the shard is
+ * added.
+ */
+public class ShardRebalancer {
+
+    private final ShardedCustomerDAO sharded;
+    private final int batchSize;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    public ShardRebalancer(ShardedCustomerDAO sharded, int batchSize) {
+        if (batchSize < 1) throw new IllegalArgumentException("batchSize must be at least 1");
+        this.sharded = sharded;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return the number of customers moved to the new shard
+     */
+    public long addShard(String name, CustomerDAO shard) {
+        final var previous = sharded.beginMigration(name, shard);
+        final var target = sharded.getRing();
+
+        final var fractions = new LinkedHashMap<String, Double>();
+        for (HashRange range : previous.movedRanges(target)) {
+            fractions.merge(range.getFrom(), range.getRingFraction(), Double::sum);
+        }
+        logger.info("Adding shard {}, taking over {} of the ring from {}", name,
+                String.format("%.1f%%", fractions.values().stream().mapToDouble(Double::doubleValue).sum() * 100),
+                fractions.keySet());
+
+        long moved = 0;
+        for (String source : fractions.keySet()) {
+            final long movedFromSource = move(sharded.shard(source), source, target, shard);
+            logger.info("Moved {} customers from shard {} to {}", movedFromSource, source, name);
+            moved += movedFromSource;
+        }
+        sharded.completeMigration();
+        return moved;
+    }
+
+    private long move(CustomerDAO from, String source, ConsistentHashRing target, CustomerDAO to) {
+        long moved = 0;
+        final var batch = new ArrayList<CustomerDTO>(batchSize);
+        try (final var customers = from.streamAll()) {
+            final var iterator = customers.iterator();
+            while (iterator.hasNext()) {
+                final var customer = iterator.next();
+                if (target.shardFor(customer.getId()).equals(source)) continue;
+                batch.add(customer);
+                if (batch.size() == batchSize) {
+                    moved += flush(batch, from, to);
+                }
+            }
+        }
+        return moved + flush(batch, from, to);
+    }
+
+    // Copy first, then delete: in between the customer is on both shards, never on neither
+    private int flush(List<CustomerDTO> batch, CustomerDAO from, CustomerDAO to) {
+        if (batch.isEmpty()) return 0;
+        final var outcomes = to.createAll(batch, batchSize).getOutcomes();
+        final var duplicates = new ArrayList<CustomerDTO>();
+        for (int i = 0; i < outcomes.size(); i++) {
+            if (outcomes.get(i) == InsertOutcome.DUPLICATE) duplicates.add(batch.get(i));
+        }
+        if (!duplicates.isEmpty()) verifyCopies(duplicates, to);
+        final var ids = new ArrayList<String>(batch.size());
+        for (CustomerDTO customer : batch) ids.add(customer.getId());
+        from.deleteAll(ids);
+        final int moved = batch.size();
+        batch.clear();
+        return moved;
+    }
+
+    // A duplicate is normally a copy left by an earlier, interrupted run; the original is only deleted if it is one
+    private static void verifyCopies(List<CustomerDTO> originals, CustomerDAO to) {
+        final var ids = new ArrayList<String>(originals.size());
+        for (CustomerDTO customer : originals) ids.add(customer.getId());
+        final var copies = to.getByIds(ids);
+        for (CustomerDTO original : originals) {
+            final var copy = copies.get(original.getId());
+            if (copy == null || !sameData(original, copy)) {
+                throw new IllegalStateException("Customer " + original.getId() +
+                        " already exists on the new shard with different data");
+            }
+        }
+    }
+
+    private static boolean sameData(CustomerDTO a, CustomerDTO b) {
+        return Objects.equals(a.getCompanyName(), b.getCompanyName())
+                && Objects.equals(a.getContactName(), b.getContactName())
+                && Objects.equals(a.getContactTitle(), b.getContactTitle())
+                && Objects.equals(a.getAddress(), b.getAddress())
+                && Objects.equals(a.getCity(), b.getCity())
+                && Objects.equals(a.getRegion(), b.getRegion())
+                && Objects.equals(a.getPostalCode(), b.getPostalCode())
+                && Objects.equals(a.getCountry(), b.getCountry())
+                && Objects.equals(a.getPhone(), b.getPhone())
+                && Objects.equals(a.getFax(), b.getFax());
+    }
+
+}
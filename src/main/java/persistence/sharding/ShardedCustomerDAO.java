@@ -0,0 +1,227 @@
+package persistence.sharding;
+
+import persistence.dao.CustomerDAO;
+import persistence.dao.CustomerRepository;
+import persistence.dao.DuplicateCustomerException;
+import persistence.dto.CustomerDTO;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Spreads customers over several databases, each with its own {@link CustomerDAO}, by consistent hashing of
+ * {@code customer_id} (see {@link ConsistentHashRing}). Single-id calls go to the owning shard; {@link #getByIds}
+ * queries every shard involved in parallel and merges the results.
+ * <p>
+ * While a {@link ShardRebalancer} moves customers to a new shard, an id whose owner changes is looked up on its old
+ * shard first and then on the new one, so it is found whether or not it has been moved yet. New customers are
+ * written to the new owner once the old one is checked for the id.
+ */
+public class ShardedCustomerDAO implements CustomerRepository, AutoCloseable {
+
+    private final Map<String, CustomerDAO> shards = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    // Held for reading by every call, so a migration only starts once the calls routed the old way are done
+    private final ReentrantReadWriteLock routingLock = new ReentrantReadWriteLock();
+    private volatile ConsistentHashRing ring;
+    private volatile ConsistentHashRing previousRing;
+
+    public ShardedCustomerDAO(Map<String, CustomerDAO> shards, int virtualNodes) {
+        this(shards, virtualNodes, newDefaultExecutor(), true);
+    }
+
+    public ShardedCustomerDAO(Map<String, CustomerDAO> shards, int virtualNodes, ExecutorService executor) {
+        this(shards, virtualNodes, executor, false);
+    }
+
+    private ShardedCustomerDAO(
+            Map<String, CustomerDAO> shards,
+            int virtualNodes,
+            ExecutorService executor,
+            boolean owned
+    ) {
+        this.ring = new ConsistentHashRing(shards.keySet(), virtualNodes);
+        this.shards.putAll(shards);
+        this.executor = executor;
+        this.ownsExecutor = owned;
+    }
+
+    @Override
+    public Optional<CustomerDTO> getById(String id) {
+        routingLock.readLock().lock();
+        try {
+            final var owner = ring.shardFor(id);
+            final var previous = previousOwner(id, owner);
+            if (previous != null) {
+                final var customer = shards.get(previous).getById(id);
+                if (customer.isPresent()) return customer;
+            }
+            return shards.get(owner).getById(id);
+        } finally {
+            routingLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, CustomerDTO> getByIds(Collection<String> ids) {
+        routingLock.readLock().lock();
+        try {
+            final var requested = new LinkedHashSet<>(ids);
+            final var found = new LinkedHashMap<String, CustomerDTO>();
+            if (requested.isEmpty()) return found;
+
+            final var byShard = new LinkedHashMap<String, List<String>>();
+            final var moving = new LinkedHashMap<String, List<String>>();
+            for (String id : requested) {
+                final var owner = ring.shardFor(id);
+                final var previous = previousOwner(id, owner);
+                if (previous == null) {
+                    byShard.computeIfAbsent(owner, shard -> new ArrayList<>()).add(id);
+                } else {
+                    byShard.computeIfAbsent(previous, shard -> new ArrayList<>()).add(id);
+                    moving.computeIfAbsent(owner, shard -> new ArrayList<>()).add(id);
+                }
+            }
+            final var gathered = scatter(byShard);
+            // Not on the old shard: already moved, or created after the migration started
+            moving.values().forEach(shardIds -> shardIds.removeIf(gathered::containsKey));
+            moving.values().removeIf(List::isEmpty);
+            if (!moving.isEmpty()) gathered.putAll(scatter(moving));
+
+            for (String id : requested) {
+                final var customer = gathered.get(id);
+                if (customer != null) found.put(id, customer);
+            }
+            return found;
+        } finally {
+            routingLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public CustomerDTO create(CustomerDTO customer) {
+        routingLock.readLock().lock();
+        try {
+            final var owner = ring.shardFor(customer.getId());
+            final var previous = previousOwner(customer.getId(), owner);
+            if (previous != null && shards.get(previous).getById(customer.getId()).isPresent()) {
+                throw new DuplicateCustomerException(customer.getId());
+            }
+            return shards.get(owner).create(customer);
+        } finally {
+            routingLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean createIfAbsent(CustomerDTO customer) {
+        routingLock.readLock().lock();
+        try {
+            final var owner = ring.shardFor(customer.getId());
+            final var previous = previousOwner(customer.getId(), owner);
+            if (previous != null && shards.get(previous).getById(customer.getId()).isPresent()) return false;
+            return shards.get(owner).createIfAbsent(customer);
+        } finally {
+            routingLock.readLock().unlock();
+        }
+    }
+
+    public ConsistentHashRing getRing() {
+        return ring;
+    }
+
+    public boolean isMigrating() {
+        return previousRing != null;
+    }
+
+    @Override
+    public void close() {
+        if (ownsExecutor) executor.shutdown();
+    }
+
+    /**
+     * Adds the shard to the ring and starts routing as described above; a migration to the same shard that did not
+     * complete is resumed.
+     *
+     * @return the ring before the shard was added
+     */
+    ConsistentHashRing beginMigration(String name, CustomerDAO shard) {
+        routingLock.writeLock().lock();
+        try {
+            if (previousRing != null) {
+                if (ring.getShards().contains(name) && !previousRing.getShards().contains(name)) return previousRing;
+                throw new IllegalStateException("Already moving customers to another shard");
+            }
+            final var extended = ring.withShard(name);
+            shards.put(name, shard);
+            previousRing = ring;
+            ring = extended;
+            return previousRing;
+        } finally {
+            routingLock.writeLock().unlock();
+        }
+    }
+
+    void completeMigration() {
+        routingLock.writeLock().lock();
+        try {
+            previousRing = null;
+        } finally {
+            routingLock.writeLock().unlock();
+        }
+    }
+
+    CustomerDAO shard(String name) {
+        return shards.get(name);
+    }
+
+    private String previousOwner(String id, String owner) {
+        final var previous = previousRing;
+        if (previous == null) return null;
+        final var previousOwner = previous.shardFor(id);
+        return previousOwner.equals(owner) ? null : previousOwner;
+    }
+
+    private Map<String, CustomerDTO> scatter(Map<String, List<String>> idsByShard) {
+        if (idsByShard.size() == 1) {
+            final var only = idsByShard.entrySet().iterator().next();
+            return new LinkedHashMap<>(shards.get(only.getKey()).getByIds(only.getValue()));
+        }
+        final var futures = new ArrayList<CompletableFuture<Map<String, CustomerDTO>>>();
+        for (var entry : idsByShard.entrySet()) {
+            final var shard = shards.get(entry.getKey());
+            futures.add(CompletableFuture.supplyAsync(() -> shard.getByIds(entry.getValue()), executor));
+        }
+        final var gathered = new LinkedHashMap<String, CustomerDTO>();
+        try {
+            for (var future : futures) gathered.putAll(future.join());
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) throw (RuntimeException) ex.getCause();
+            throw ex;
+        }
+        return gathered;
+    }
+
+    private static ExecutorService newDefaultExecutor() {
+        final var counter = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            final var thread = new Thread(runnable, "customer-shard-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+}
@@ -0,0 +1,363 @@
+package persistence.snapshot;
+
+import persistence.dao.CustomerColumn;
+import persistence.dto.CustomerDTO;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Immutable, off-heap copy of the customer table for read-only lookups.
+ * <p>
+ * Every column is dictionary-encoded: rows hold 1, 2 or 4 byte codes (the smallest that fits the column's distinct
+ * values, code 0 being null) and each distinct value is stored once, as Latin-1 when it fits and UTF-16 otherwise.
+ * Customers are found through an open-addressing hash index on {@code customer_id}. Rows, dictionaries and index live
+ * in a single direct buffer, so the heap only holds a few small arrays per snapshot.
+ * <p>
+ * {@link #find(CharSequence, Row)} and the {@link Row} accessors do not allocate; {@link #getById(String)} builds a
+ * {@link CustomerDTO}. The buffer is released when the snapshot is garbage collected.
+ */
+public final class CustomerSnapshot {
+
+    private static final CustomerColumn[] COLUMNS = CustomerColumn.values();
+    private static final int ID = CustomerColumn.CUSTOMER_ID.ordinal();
+    private static final byte LATIN1 = 0;
+    private static final byte UTF16 = 1;
+    private static final int EMPTY_SLOT = 0;
+
+    private final ByteBuffer buffer;
+    private final int rowCount;
+    private final int rowStride;
+    private final int[] columnOffsets;
+    private final int[] columnWidths;
+    private final int[] dictionaryOffsets;
+    private final int[] dictionarySizes;
+    private final int indexOffset;
+    private final int indexMask;
+
+    private CustomerSnapshot(Builder builder) {
+        final int columns = COLUMNS.length;
+        this.rowCount = builder.rowCount;
+        this.columnOffsets = new int[columns];
+        this.columnWidths = new int[columns];
+        this.dictionaryOffsets = new int[columns];
+        this.dictionarySizes = new int[columns];
+
+        int stride = 0;
+        for (int c = 0; c < columns; c++) {
+            dictionarySizes[c] = builder.values.get(c).size();
+            columnWidths[c] = codeWidth(dictionarySizes[c]);
+            columnOffsets[c] = stride;
+            stride += columnWidths[c];
+        }
+        this.rowStride = stride;
+
+        // Rows, then per column an offset table followed by the entries, then the index
+        long size = (long) rowCount * rowStride;
+        for (int c = 0; c < columns; c++) {
+            dictionaryOffsets[c] = Math.toIntExact(size);
+            size += 4L * (dictionarySizes[c] + 1);
+            for (String value : builder.values.get(c)) size += 1 + (long) value.length() * (isLatin1(value) ? 1 : 2);
+        }
+        final int slots = indexSlots(rowCount);
+        this.indexOffset = Math.toIntExact(size);
+        this.indexMask = slots - 1;
+        size += 4L * slots;
+
+        final var out = ByteBuffer.allocateDirect(Math.toIntExact(size));
+        for (int row = 0; row < rowCount; row++) {
+            for (int c = 0; c < columns; c++) {
+                putCode(out, row * rowStride + columnOffsets[c], columnWidths[c], builder.codes[row * columns + c]);
+            }
+        }
+        for (int c = 0; c < columns; c++) {
+            final var table = dictionaryOffsets[c];
+            int position = table + 4 * (dictionarySizes[c] + 1);
+            int entry = 0;
+            for (String value : builder.values.get(c)) {
+                out.putInt(table + 4 * entry++, position);
+                position = putString(out, position, value);
+            }
+            out.putInt(table + 4 * entry, position);
+        }
+        for (int row = 0; row < rowCount; row++) {
+            final var id = builder.values.get(ID).get(builder.codes[row * columns + ID] - 1);
+            int slot = hash(id, id.length()) & indexMask;
+            while (out.getInt(indexOffset + 4 * slot) != EMPTY_SLOT) slot = (slot + 1) & indexMask;
+            out.putInt(indexOffset + 4 * slot, row + 1);
+        }
+        this.buffer = out.asReadOnlyBuffer();
+    }
+
+    public static CustomerSnapshot of(Iterator<CustomerDTO> customers) {
+        final var builder = new Builder();
+        while (customers.hasNext()) builder.add(customers.next());
+        return new CustomerSnapshot(builder);
+    }
+
+    public int size() {
+        return rowCount;
+    }
+
+    public int getOffHeapBytes() {
+        return buffer.capacity();
+    }
+
+    public int getDistinctValues(CustomerColumn column) {
+        return dictionarySizes[column.ordinal()];
+    }
+
+    /**
+     * Points {@code row} at the customer with this id, ignoring trailing whitespace like the bpchar column does.
+     *
+     * @return false, leaving {@code row} untouched, if there is no such customer
+     */
+    public boolean find(CharSequence id, Row row) {
+        final int index = indexOf(id);
+        if (index < 0) return false;
+        row.snapshot = this;
+        row.index = index;
+        return true;
+    }
+
+    public Optional<CustomerDTO> getById(String id) {
+        final int index = indexOf(id);
+        return index < 0 ? Optional.empty() : Optional.of(toDTO(index));
+    }
+
+    private int indexOf(CharSequence id) {
+        if (id == null) return -1;
+        int length = id.length();
+        while (length > 0 && Character.isWhitespace(id.charAt(length - 1))) length--;
+        int slot = hash(id, length) & indexMask;
+        int entry;
+        while ((entry = buffer.getInt(indexOffset + 4 * slot)) != EMPTY_SLOT) {
+            if (matches(entry - 1, ID, id, length)) return entry - 1;
+            slot = (slot + 1) & indexMask;
+        }
+        return -1;
+    }
+
+    private boolean matches(int row, int column, CharSequence value, int length) {
+        final int entry = entryPosition(row, column);
+        if (entry < 0 || length(entry, row, column) != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (charAt(entry, i) != value.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private CustomerDTO toDTO(int row) {
+        final var fields = new String[COLUMNS.length];
+        for (int c = 0; c < fields.length; c++) fields[c] = string(row, c);
+        return new CustomerDTO(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5], fields[6],
+                fields[7], fields[8], fields[9], fields[10]);
+    }
+
+    private String string(int row, int column) {
+        final int entry = entryPosition(row, column);
+        if (entry < 0) return null;
+        final int length = length(entry, row, column);
+        final var chars = new char[length];
+        for (int i = 0; i < length; i++) chars[i] = charAt(entry, i);
+        return new String(chars);
+    }
+
+    // Position of the coder byte of the value, or -1 for null
+    private int entryPosition(int row, int column) {
+        final int code = getCode(row * rowStride + columnOffsets[column], columnWidths[column]);
+        if (code == 0) return -1;
+        return buffer.getInt(dictionaryOffsets[column] + 4 * (code - 1));
+    }
+
+    private int length(int entry, int row, int column) {
+        final int code = getCode(row * rowStride + columnOffsets[column], columnWidths[column]);
+        final int end = buffer.getInt(dictionaryOffsets[column] + 4 * code);
+        final int bytes = end - entry - 1;
+        return buffer.get(entry) == LATIN1 ? bytes : bytes / 2;
+    }
+
+    private char charAt(int entry, int i) {
+        return buffer.get(entry) == LATIN1
+                ? (char) (buffer.get(entry + 1 + i) & 0xFF)
+                : buffer.getChar(entry + 1 + 2 * i);
+    }
+
+    private int getCode(int position, int width) {
+        switch (width) {
+            case 1:
+                return buffer.get(position) & 0xFF;
+            case 2:
+                return buffer.getChar(position);
+            default:
+                return buffer.getInt(position);
+        }
+    }
+
+    private static void putCode(ByteBuffer out, int position, int width, int code) {
+        switch (width) {
+            case 1:
+                out.put(position, (byte) code);
+                break;
+            case 2:
+                out.putChar(position, (char) code);
+                break;
+            default:
+                out.putInt(position, code);
+        }
+    }
+
+    private static int putString(ByteBuffer out, int position, String value) {
+        final boolean latin1 = isLatin1(value);
+        out.put(position++, latin1 ? LATIN1 : UTF16);
+        for (int i = 0; i < value.length(); i++) {
+            if (latin1) {
+                out.put(position++, (byte) value.charAt(i));
+            } else {
+                out.putChar(position, value.charAt(i));
+                position += 2;
+            }
+        }
+        return position;
+    }
+
+    private static boolean isLatin1(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) return false;
+        }
+        return true;
+    }
+
+    // One code per distinct value plus 0 for null
+    private static int codeWidth(int distinctValues) {
+        if (distinctValues < 0xFF) return 1;
+        if (distinctValues < 0xFFFF) return 2;
+        return 4;
+    }
+
+    // Load factor of at most 0.5 keeps probe sequences short
+    private static int indexSlots(int rows) {
+        return Math.max(2, Integer.highestOneBit(Math.max(1, rows) * 2 - 1) << 1);
+    }
+
+    private static int hash(CharSequence value, int length) {
+        int h = 0;
+        for (int i = 0; i < length; i++) h = 31 * h + value.charAt(i);
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Reusable view of one customer of a snapshot, filled by {@link #find(CharSequence, Row)}. Stays valid after a
+     * newer snapshot is swapped in. Not thread-safe.
+     */
+    public static final class Row {
+
+        private CustomerSnapshot snapshot;
+        private int index = -1;
+
+        public boolean isNull(CustomerColumn column) {
+            return snapshot().entryPosition(index, column.ordinal()) < 0;
+        }
+
+        /**
+         * Length in chars, or -1 for null.
+         */
+        public int length(CustomerColumn column) {
+            final var s = snapshot();
+            final int entry = s.entryPosition(index, column.ordinal());
+            return entry < 0 ? -1 : s.length(entry, index, column.ordinal());
+        }
+
+        public char charAt(CustomerColumn column, int i) {
+            final var s = snapshot();
+            final int entry = s.entryPosition(index, column.ordinal());
+            if (entry < 0 || i < 0 || i >= s.length(entry, index, column.ordinal())) {
+                throw new IndexOutOfBoundsException(column + "[" + i + "]");
+            }
+            return s.charAt(entry, i);
+        }
+
+        public boolean contentEquals(CustomerColumn column, CharSequence value) {
+            if (value == null) return isNull(column);
+            return snapshot().matches(index, column.ordinal(), value, value.length());
+        }
+
+        /**
+         * Appends the value, or nothing for null, without creating a String.
+         */
+        public StringBuilder appendTo(CustomerColumn column, StringBuilder sb) {
+            final var s = snapshot();
+            final int entry = s.entryPosition(index, column.ordinal());
+            if (entry < 0) return sb;
+            final int length = s.length(entry, index, column.ordinal());
+            for (int i = 0; i < length; i++) sb.append(s.charAt(entry, i));
+            return sb;
+        }
+
+        public String get(CustomerColumn column) {
+            return snapshot().string(index, column.ordinal());
+        }
+
+        public CustomerDTO toDTO() {
+            return snapshot().toDTO(index);
+        }
+
+        private CustomerSnapshot snapshot() {
+            if (snapshot == null) throw new IllegalStateException("Row does not point to a customer yet");
+            return snapshot;
+        }
+
+    }
+
+    private static final class Builder {
+
+        private final List<Map<String, Integer>> dictionaries = new ArrayList<>(COLUMNS.length);
+        private final List<List<String>> values = new ArrayList<>(COLUMNS.length);
+        private int[] codes = new int[1024 * COLUMNS.length];
+        private int rowCount;
+
+        private Builder() {
+            for (int c = 0; c < COLUMNS.length; c++) {
+                dictionaries.add(new HashMap<>());
+                values.add(new ArrayList<>());
+            }
+        }
+
+        private void add(CustomerDTO customer) {
+            final var fields = new String[]{
+                    customer.getId(), customer.getCompanyName(), customer.getContactName(),
+                    customer.getContactTitle(), customer.getAddress(), customer.getCity(), customer.getRegion(),
+                    customer.getPostalCode(), customer.getCountry(), customer.getPhone(), customer.getFax()
+            };
+            if (fields[ID] == null) throw new IllegalArgumentException("Customer without id");
+            fields[ID] = fields[ID].stripTrailing();
+            if (dictionaries.get(ID).containsKey(fields[ID])) {
+                throw new IllegalArgumentException("Duplicate customer id " + fields[ID]);
+            }
+
+            final int base = rowCount * COLUMNS.length;
+            if (base + COLUMNS.length > codes.length) codes = Arrays.copyOf(codes, codes.length * 2);
+            for (int c = 0; c < COLUMNS.length; c++) {
+                codes[base + c] = fields[c] == null ? 0 : encode(c, fields[c]);
+            }
+            rowCount++;
+        }
+
+        private int encode(int column, String value) {
+            final var columnValues = values.get(column);
+            return dictionaries.get(column).computeIfAbsent(value, v -> {
+                columnValues.add(v);
+                return columnValues.size();
+            });
+        }
+
+    }
+
+}
@@ -0,0 +1,66 @@
+package persistence.snapshot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import persistence.dao.CustomerDAO;
+import persistence.dto.CustomerDTO;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link CustomerSnapshot} for read-only services. {@link #refresh()} builds a new snapshot from
+ * the database and swaps it in atomically, so readers see either the old table or the new one, never a mix.
+ * Callers doing several lookups that must agree should take {@link #current()} once and use it throughout.
+ */
+public class CustomerSnapshotStore {
+
+    private final CustomerDAO dao;
+    private final AtomicReference<CustomerSnapshot> current = new AtomicReference<>();
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    public CustomerSnapshotStore(CustomerDAO dao) {
+        this.dao = dao;
+    }
+
+    public CustomerSnapshot refresh() {
+        final long started = System.nanoTime();
+        final CustomerSnapshot snapshot;
+        try (final var customers = dao.streamAll()) {
+            snapshot = CustomerSnapshot.of(customers.iterator());
+        }
+        current.set(snapshot);
+        logger.info("Loaded customer snapshot: {} customers, {} bytes off-heap, in {} ms",
+                snapshot.size(), snapshot.getOffHeapBytes(), (System.nanoTime() - started) / 1_000_000);
+        return snapshot;
+    }
+
+    public CustomerSnapshot current() {
+        final var snapshot = current.get();
+        if (snapshot == null) throw new IllegalStateException("No customer snapshot loaded yet");
+        return snapshot;
+    }
+
+    public boolean find(CharSequence id, CustomerSnapshot.Row row) {
+        return current().find(id, row);
+    }
+
+    public Optional<CustomerDTO> getById(String id) {
+        return current().getById(id);
+    }
+
+    public Map<String, CustomerDTO> getByIds(Collection<String> ids) {
+        final var snapshot = current();
+        final var row = new CustomerSnapshot.Row();
+        final Map<String, CustomerDTO> result = new LinkedHashMap<>();
+        // Keyed by the ids as passed, like CustomerDAO.getByIds
+        for (String id : ids) {
+            if (!result.containsKey(id) && snapshot.find(id, row)) result.put(id, row.toDTO());
+        }
+        return result;
+    }
+
+}
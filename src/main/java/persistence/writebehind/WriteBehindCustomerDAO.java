@@ -0,0 +1,248 @@
+package persistence.writebehind;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import persistence.dao.CustomerDAO;
+import persistence.dao.CustomerRepository;
+import persistence.dao.DuplicateCustomerException;
+import persistence.dao.InsertOutcome;
+import persistence.dto.CustomerDTO;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Buffers created customers and inserts them with {@link CustomerDAO#createAll} in one transaction per batch, so
+ * many concurrent signups share a single commit. A batch is flushed once {@code maxBatchSize} customers are queued
+ * or the oldest one has waited {@code maxDelay}.
+ * <p>
+ * {@link #createAsync} completes when the customer is committed, or fails with a
+ * {@link DuplicateCustomerException}; {@link #create} and {@link #createIfAbsent} wait for it. When
+ * {@code capacity} customers are waiting, callers block until a flush frees room. Reads go straight to the
+ * delegate and do not see customers that are still queued. {@link #close()} flushes everything queued.
+ * <p>
+ * Customers are written on the flusher thread, so a caller reading through a
+ * {@link persistence.datasource.ReplicaRoutingDataSource} would not stick to the primary after its write. Pass
+ * {@code onWrite} to run something on the caller's thread instead, such as
+ * {@link persistence.datasource.ReplicaRoutingDataSource#markWritten()}: it runs when a customer is queued and
+ * again when {@link #create} or {@link #createIfAbsent} return.
+ */
+public class WriteBehindCustomerDAO implements CustomerRepository, AutoCloseable {
+
+    private final CustomerDAO delegate;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final Semaphore capacity;
+    private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder batches = new LongAdder();
+    private final Thread flusher;
+    private final Runnable onWrite;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private volatile boolean closed;
+    private volatile boolean terminated;
+
+    public WriteBehindCustomerDAO(CustomerDAO delegate, int capacity, int maxBatchSize, Duration maxDelay) {
+        this(delegate, capacity, maxBatchSize, maxDelay, () -> { });
+    }
+
+    public WriteBehindCustomerDAO(
+            CustomerDAO delegate,
+            int capacity,
+            int maxBatchSize,
+            Duration maxDelay,
+            Runnable onWrite
+    ) {
+        if (maxBatchSize < 1) throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        if (capacity < maxBatchSize) throw new IllegalArgumentException("capacity must be at least maxBatchSize");
+        if (maxDelay.isZero() || maxDelay.isNegative()) throw new IllegalArgumentException("maxDelay must be positive");
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.onWrite = onWrite;
+        this.capacity = new Semaphore(capacity);
+        this.flusher = new Thread(this::flushLoop, "customer-write-behind");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    @Override
+    public Optional<CustomerDTO> getById(String id) {
+        return delegate.getById(id);
+    }
+
+    @Override
+    public Map<String, CustomerDTO> getByIds(Collection<String> ids) {
+        return delegate.getByIds(ids);
+    }
+
+    @Override
+    public CustomerDTO create(CustomerDTO customer) {
+        try {
+            return createAsync(customer).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) throw (RuntimeException) ex.getCause();
+            throw ex;
+        } finally {
+            // The write is committed now, which may be well after it was queued
+            onWrite.run();
+        }
+    }
+
+    @Override
+    public boolean createIfAbsent(CustomerDTO customer) {
+        try {
+            create(customer);
+            return true;
+        } catch (DuplicateCustomerException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Queues the customer, blocking while the buffer is full.
+     *
+     * @throws RejectedExecutionException if this DAO is closed or the caller is interrupted while waiting
+     */
+    public CompletableFuture<CustomerDTO> createAsync(CustomerDTO customer) {
+        if (closed) throw new RejectedExecutionException("WriteBehindCustomerDAO is closed");
+        try {
+            capacity.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for room in the write-behind buffer", ex);
+        }
+        return enqueue(customer);
+    }
+
+    /**
+     * Like {@link #createAsync(CustomerDTO)} but gives up after {@code timeout} when the buffer stays full.
+     */
+    public CompletableFuture<CustomerDTO> createAsync(CustomerDTO customer, Duration timeout) {
+        if (closed) throw new RejectedExecutionException("WriteBehindCustomerDAO is closed");
+        try {
+            if (!capacity.tryAcquire(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new RejectedExecutionException("Write-behind buffer still full after " + timeout);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for room in the write-behind buffer", ex);
+        }
+        return enqueue(customer);
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public long getFlushedBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * Stops accepting customers and waits until every queued one has been written.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while draining {} queued customers", queued.get());
+        }
+    }
+
+    private CompletableFuture<CustomerDTO> enqueue(CustomerDTO customer) {
+        onWrite.run();
+        final var pending = new Pending(customer, System.nanoTime());
+        queue.add(pending);
+        final int size = queued.incrementAndGet();
+        // The first item after an idle period wakes the flusher so its maxDelay counts from now, not from whenever
+        // the flusher's idle park would have ended
+        if (size == 1 || size >= maxBatchSize) LockSupport.unpark(flusher);
+        // The flusher may have done its final drain between the closed check and the add
+        if (terminated && queue.remove(pending)) {
+            queued.decrementAndGet();
+            capacity.release();
+            pending.future.completeExceptionally(new RejectedExecutionException("WriteBehindCustomerDAO is closed"));
+        }
+        return pending.future;
+    }
+
+    private void flushLoop() {
+        while (!closed) {
+            final var head = queue.peek();
+            if (head == null) {
+                // Woken by enqueue; the timeout only bounds a missed wakeup
+                LockSupport.parkNanos(this, maxDelayNanos);
+                continue;
+            }
+            final long waited = System.nanoTime() - head.enqueuedAt;
+            if (queued.get() >= maxBatchSize || waited >= maxDelayNanos) {
+                flush();
+            } else {
+                LockSupport.parkNanos(this, maxDelayNanos - waited);
+            }
+        }
+        while (!queue.isEmpty()) flush();
+        terminated = true;
+        while (!queue.isEmpty()) flush();
+    }
+
+    private void flush() {
+        final var batch = new ArrayList<Pending>(maxBatchSize);
+        Pending pending;
+        while (batch.size() < maxBatchSize && (pending = queue.poll()) != null) batch.add(pending);
+        if (batch.isEmpty()) return;
+        queued.addAndGet(-batch.size());
+
+        final var customers = new ArrayList<CustomerDTO>(batch.size());
+        for (Pending p : batch) customers.add(p.customer);
+        try {
+            final List<InsertOutcome> outcomes = delegate.createAll(customers, maxBatchSize).getOutcomes();
+            batches.increment();
+            for (int i = 0; i < batch.size(); i++) {
+                final var item = batch.get(i);
+                if (outcomes.get(i) == InsertOutcome.CREATED) {
+                    item.future.complete(item.customer);
+                } else {
+                    item.future.completeExceptionally(new DuplicateCustomerException(item.customer.getId()));
+                }
+            }
+        } catch (RuntimeException ex) {
+            logger.error("Error writing batch of {} customers", batch.size(), ex);
+            for (Pending p : batch) p.future.completeExceptionally(ex);
+        } finally {
+            capacity.release(batch.size());
+        }
+    }
+
+    private static final class Pending {
+
+        private final CustomerDTO customer;
+        private final long enqueuedAt;
+        private final CompletableFuture<CustomerDTO> future = new CompletableFuture<>();
+
+        private Pending(CustomerDTO customer, long enqueuedAt) {
+            this.customer = customer;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+    }
+
+}
@@ -0,0 +1,124 @@
+package persistence.async;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import persistence.dao.CustomerRepository;
+import persistence.mock.CustomerMockFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@DisplayName("Unit tests for the asynchronous DAO facade using Mockito framework")
+public class AsyncCustomerDAOTest {
+
+    private static final String CUSTOMER_ID = "GUERR";
+
+    private CustomerRepository dao;
+    private AsyncCustomerDAO asyncDAO;
+
+    @BeforeEach
+    void setUp() {
+        dao = Mockito.mock(CustomerRepository.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (asyncDAO != null) asyncDAO.close();
+    }
+
+    @Test
+    @DisplayName("When getByIdAsync is called then the future should complete with the DAO result")
+    void testGetByIdAsync() throws Exception {
+        // Given
+        Mockito.when(dao.getById(Mockito.eq(CUSTOMER_ID)))
+                .thenReturn(Optional.of(CustomerMockFactory.customerDTO(CUSTOMER_ID)));
+        asyncDAO = new AsyncCustomerDAO(dao, 4);
+
+        // When
+        final var actual = asyncDAO.getByIdAsync(CUSTOMER_ID).get(5, TimeUnit.SECONDS);
+
+        // Then
+        Assertions.assertTrue(actual.isPresent());
+        Assertions.assertEquals(CUSTOMER_ID, actual.get().getId());
+    }
+
+    @Test
+    @DisplayName("When more calls than maxInFlight are submitted then no more than maxInFlight should run at once")
+    void testConcurrencyIsBounded() throws Exception {
+        // Given
+        final var running = new AtomicInteger();
+        final var maxRunning = new AtomicInteger();
+        Mockito.when(dao.getById(Mockito.any(String.class))).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            running.decrementAndGet();
+            return Optional.empty();
+        });
+        asyncDAO = new AsyncCustomerDAO(dao, 2);
+
+        // When
+        final var futures = new ArrayList<CompletableFuture<?>>();
+        for (int i = 0; i < 10; i++) futures.add(asyncDAO.getByIdAsync(CUSTOMER_ID));
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+
+        // Then
+        Assertions.assertTrue(maxRunning.get() <= 2);
+        Mockito.verify(dao, Mockito.times(10)).getById(Mockito.eq(CUSTOMER_ID));
+        Assertions.assertEquals(0, asyncDAO.getInFlight());
+    }
+
+    @Test
+    @DisplayName("When a call exceeds its deadline then the future should fail with a TimeoutException")
+    void testDeadlineExpires() {
+        // Given
+        final var release = new CountDownLatch(1);
+        Mockito.when(dao.getById(Mockito.eq(CUSTOMER_ID))).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.empty();
+        });
+        asyncDAO = new AsyncCustomerDAO(dao, 1);
+
+        // When
+        final var future = asyncDAO.getByIdAsync(CUSTOMER_ID, Duration.ofMillis(50));
+        final var actual = Assertions.assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+
+        // Then
+        Assertions.assertEquals(TimeoutException.class, actual.getCause().getClass());
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("When a queued call is cancelled then it should never reach the DAO")
+    void testCancelledQueuedCallIsSkipped() throws Exception {
+        // Given
+        final var release = new CountDownLatch(1);
+        Mockito.when(dao.getById(Mockito.eq(CUSTOMER_ID))).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.empty();
+        });
+        asyncDAO = new AsyncCustomerDAO(dao, 1);
+        final var first = asyncDAO.getByIdAsync(CUSTOMER_ID);
+        final var queued = asyncDAO.getByIdAsync(CustomerMockFactory.EXISTING_CUSTOMER_ID);
+
+        // When
+        queued.cancel(true);
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+
+        // Then
+        Assertions.assertTrue(queued.isCancelled());
+        Mockito.verify(dao, Mockito.never()).getById(Mockito.eq(CustomerMockFactory.EXISTING_CUSTOMER_ID));
+    }
+
+}
@@ -0,0 +1,207 @@
+package persistence.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import persistence.dao.CustomerRepository;
+import persistence.dto.CustomerDTO;
+import persistence.mock.CustomerMockFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@DisplayName("Unit tests for the read-through customer cache")
+public class CachingCustomerDAOTest {
+
+    private static final String CUSTOMER_ID = "GUERR";
+    private static final Duration TTL = Duration.ofMinutes(5);
+    private static final Duration NEGATIVE_TTL = Duration.ofSeconds(10);
+
+    private final AtomicLong ticker = new AtomicLong();
+    private CustomerRepository dao;
+
+    @BeforeEach
+    void setUp() {
+        dao = Mockito.mock(CustomerRepository.class);
+    }
+
+    private CachingCustomerDAO cache(int maximumSize) {
+        return new CachingCustomerDAO(dao, maximumSize, TTL, NEGATIVE_TTL, ticker::get);
+    }
+
+    @Test
+    @DisplayName("When getById is called twice for the same customer then the DAO should be queried only once")
+    void testHitAfterFirstLoad() {
+        // Given
+        Mockito.when(dao.getById(Mockito.eq(CUSTOMER_ID)))
+                .thenReturn(Optional.of(CustomerMockFactory.customerDTO(CUSTOMER_ID)));
+        final var cache = cache(10);
+
+        // When
+        cache.getById(CUSTOMER_ID);
+        final var actual = cache.getById(CUSTOMER_ID);
+
+        // Then
+        Assertions.assertTrue(actual.isPresent());
+        Mockito.verify(dao, Mockito.times(1)).getById(Mockito.eq(CUSTOMER_ID));
+        Assertions.assertEquals(1, cache.stats().getHitCount());
+        Assertions.assertEquals(1, cache.stats().getMissCount());
+    }
+
+    @Test
+    @DisplayName("When a customer does not exist then the empty result should be cached for the negative TTL only")
+    void testNegativeCachingUsesShorterTtl() {
+        // Given
+        Mockito.when(dao.getById(Mockito.eq(CUSTOMER_ID))).thenReturn(Optional.empty());
+        final var cache = cache(10);
+
+        // When
+        cache.getById(CUSTOMER_ID);
+        ticker.addAndGet(NEGATIVE_TTL.toNanos() - 1);
+        cache.getById(CUSTOMER_ID);
+        ticker.addAndGet(1);
+        final var actual = cache.getById(CUSTOMER_ID);
+
+        // Then
+        Assertions.assertTrue(actual.isEmpty());
+        Mockito.verify(dao, Mockito.times(2)).getById(Mockito.eq(CUSTOMER_ID));
+        Assertions.assertEquals(1, cache.stats().getExpirationCount());
+    }
+
+    @Test
+    @DisplayName("When the cache is full then the least recently used customer should be evicted")
+    void testLeastRecentlyUsedIsEvicted() {
+        // Given
+        Mockito.when(dao.getById(Mockito.any(String.class)))
+                .thenAnswer(invocation -> Optional.of(CustomerMockFactory.customerDTO(invocation.getArgument(0))));
+        final var cache = cache(2);
+        cache.getById("AAAAA");
+        cache.getById("BBBBB");
+        cache.getById("AAAAA");
+
+        // When
+        cache.getById("CCCCC");
+        cache.getById("AAAAA");
+        cache.getById("BBBBB");
+
+        // Then
+        Mockito.verify(dao, Mockito.times(1)).getById(Mockito.eq("AAAAA"));
+        Mockito.verify(dao, Mockito.times(2)).getById(Mockito.eq("BBBBB"));
+        Assertions.assertEquals(2, cache.stats().getEvictionCount());
+        Assertions.assertEquals(2, cache.size());
+    }
+
+    @Test
+    @DisplayName("When many threads miss the same customer at once then the DAO should be queried only once")
+    void testConcurrentMissesAreCoalesced() throws Exception {
+        // Given
+        final var release = new CountDownLatch(1);
+        Mockito.when(dao.getById(Mockito.eq(CUSTOMER_ID))).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(CustomerMockFactory.customerDTO(CUSTOMER_ID));
+        });
+        final var cache = cache(10);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            // When
+            final var futures = new ArrayList<Future<Optional<CustomerDTO>>>();
+            for (int i = 0; i < 8; i++) futures.add(executor.submit(() -> cache.getById(CUSTOMER_ID)));
+            Thread.sleep(100);
+            release.countDown();
+
+            // Then
+            for (Future<Optional<CustomerDTO>> future : futures) {
+                Assertions.assertTrue(future.get(5, TimeUnit.SECONDS).isPresent());
+            }
+            Mockito.verify(dao, Mockito.times(1)).getById(Mockito.eq(CUSTOMER_ID));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("When a customer is invalidated while its miss is being loaded then the empty result should not be cached")
+    void testInvalidationDropsLoadInFlight() throws Exception {
+        // Given
+        final var loading = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+        Mockito.when(dao.getById(Mockito.eq(CUSTOMER_ID))).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.empty();
+        });
+        Mockito.when(dao.createIfAbsent(Mockito.any(CustomerDTO.class))).thenReturn(false);
+        final var cache = cache(10);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            // When
+            final var load = executor.submit(() -> cache.getById(CUSTOMER_ID));
+            Assertions.assertTrue(loading.await(5, TimeUnit.SECONDS));
+            ticker.incrementAndGet();
+            cache.createIfAbsent(CustomerMockFactory.customerDTO(CUSTOMER_ID));
+            release.countDown();
+            load.get(5, TimeUnit.SECONDS);
+            cache.getById(CUSTOMER_ID);
+
+            // Then
+            Mockito.verify(dao, Mockito.times(2)).getById(Mockito.eq(CUSTOMER_ID));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("When a customer is created then following lookups should be served from the cache")
+    void testCreatePopulatesCache() {
+        // Given
+        final var customer = CustomerMockFactory.customerDTO(CUSTOMER_ID);
+        Mockito.when(dao.getById(Mockito.eq(CUSTOMER_ID))).thenReturn(Optional.empty());
+        Mockito.when(dao.create(Mockito.any(CustomerDTO.class))).thenReturn(customer);
+        final var cache = cache(10);
+        cache.getById(CUSTOMER_ID);
+
+        // When
+        cache.create(customer);
+        final var actual = cache.getById(CUSTOMER_ID);
+
+        // Then
+        Assertions.assertTrue(actual.isPresent());
+        Mockito.verify(dao, Mockito.times(1)).getById(Mockito.eq(CUSTOMER_ID));
+    }
+
+    @Test
+    @DisplayName("When getByIds is called then only the customers missing from the cache should be loaded")
+    void testGetByIdsLoadsOnlyMisses() {
+        // Given
+        Mockito.when(dao.getById(Mockito.eq(CUSTOMER_ID)))
+                .thenReturn(Optional.of(CustomerMockFactory.customerDTO(CUSTOMER_ID)));
+        Mockito.when(dao.getByIds(Mockito.eq(new LinkedHashSet<>(List.of(CustomerMockFactory.EXISTING_CUSTOMER_ID)))))
+                .thenReturn(Map.of(CustomerMockFactory.EXISTING_CUSTOMER_ID,
+                        CustomerMockFactory.customerDTO(CustomerMockFactory.EXISTING_CUSTOMER_ID)));
+        final var cache = cache(10);
+        cache.getById(CUSTOMER_ID);
+
+        // When
+        final var actual = cache.getByIds(List.of(CUSTOMER_ID, CustomerMockFactory.EXISTING_CUSTOMER_ID));
+
+        // Then
+        Assertions.assertEquals(2, actual.size());
+        Assertions.assertEquals(1, cache.stats().getHitCount());
+        Assertions.assertEquals(2, cache.stats().getMissCount());
+    }
+
+}
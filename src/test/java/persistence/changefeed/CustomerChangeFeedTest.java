@@ -0,0 +1,172 @@
+package persistence.changefeed;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import persistence.cache.CachingCustomerDAO;
+import persistence.dao.CustomerDAO;
+import persistence.helper.DBHelper;
+import persistence.helper.IsolatedDatabaseExtension;
+import persistence.helper.SQLReader;
+import persistence.mock.CustomerMockFactory;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+@DisplayName("Customer change feed tests using H2 in-memory Database")
+public class CustomerChangeFeedTest {
+
+    private static final Duration GAP_TIMEOUT = Duration.ofSeconds(1);
+
+    private static DataSource DS;
+    private static DBHelper DB_HELPER;
+
+    @RegisterExtension
+    static final IsolatedDatabaseExtension ISOLATED_DATABASE = IsolatedDatabaseExtension.h2();
+
+    private final AtomicLong ticker = new AtomicLong();
+
+    // Every test uses its own consumer, which starts at the newest change, and its own customer ids
+    @BeforeAll
+    static void setUp() {
+        DS = ISOLATED_DATABASE.getDataSource();
+        DB_HELPER = new DBHelper(DS, SQLReader.ofSemicolon());
+        DB_HELPER.executeScript("./src/test/resources/customer-table.sql");
+        DB_HELPER.executeScript("./src/test/resources/customer-outbox.sql");
+    }
+
+    private CustomerChangeFeed buildFeed(String consumer, ChangeOffsetStore offsets) {
+        return new CustomerChangeFeed(DS, offsets, consumer, 100, GAP_TIMEOUT, ticker::get);
+    }
+
+    @Test
+    @DisplayName("When customers are inserted, updated and deleted then subscribers get typed changes in order")
+    void testChangesArePublishedInOrder() {
+        // Given
+        final var feed = buildFeed("in-order", new InMemoryChangeOffsetStore());
+        final var received = new ArrayList<CustomerChange>();
+        feed.subscribe(received::add);
+        feed.poll();
+
+        // When
+        new CustomerDAO(DS).create(CustomerMockFactory.customerDTO("CDC01"));
+        DB_HELPER.execute("update customer set city = 'Hamburg' where customer_id = 'CDC01'");
+        DB_HELPER.execute("delete from customer where customer_id = 'CDC01'");
+        final int delivered = feed.poll();
+
+        // Then
+        Assertions.assertEquals(3, delivered);
+        Assertions.assertEquals(
+                List.of(ChangeOperation.INSERT, ChangeOperation.UPDATE, ChangeOperation.DELETE),
+                List.of(received.get(0).getOperation(), received.get(1).getOperation(), received.get(2).getOperation()));
+        Assertions.assertEquals("CDC01", received.get(0).getCustomerId());
+        Assertions.assertEquals("Hamburg", received.get(1).getCurrent().orElseThrow().getCity());
+        Assertions.assertEquals("Hamburg", received.get(2).getCustomer().getCity());
+        Assertions.assertTrue(received.get(2).getCurrent().isEmpty());
+        Assertions.assertEquals(received.get(2).getChangeId(), feed.getPosition());
+    }
+
+    @Test
+    @DisplayName("When a consumer restarts then it resumes after the last offset it saved")
+    void testResumesFromSavedOffset() {
+        // Given
+        final var offsets = new JdbcChangeOffsetStore(DS);
+        final var dao = new CustomerDAO(DS);
+        final var first = buildFeed("resuming", offsets);
+        first.poll();
+        dao.create(CustomerMockFactory.customerDTO("CDC02"));
+        Assertions.assertEquals(1, first.poll());
+        first.close();
+
+        // When
+        dao.create(CustomerMockFactory.customerDTO("CDC03"));
+        final var received = new ArrayList<CustomerChange>();
+        final var restarted = buildFeed("resuming", offsets);
+        restarted.subscribe(received::add);
+        restarted.poll();
+
+        // Then
+        Assertions.assertEquals(1, received.size());
+        Assertions.assertEquals("CDC03", received.get(0).getCustomerId());
+        Assertions.assertEquals(restarted.getPosition(), offsets.load("resuming").orElseThrow());
+    }
+
+    @Test
+    @DisplayName("When a change id is missing then later changes wait until the gap timeout before being delivered")
+    void testWaitsForGapBeforeSkipping() throws SQLException {
+        // Given
+        final var feed = buildFeed("gap", new InMemoryChangeOffsetStore());
+        feed.poll();
+        // A rolled back insert takes a change id that never becomes visible
+        try (final var conn = DS.getConnection()) {
+            conn.setAutoCommit(false);
+            try (final var stmt = conn.createStatement()) {
+                stmt.execute("insert into customer (customer_id, company_name) values ('CDC04', 'Rolled back')");
+            }
+            conn.rollback();
+        }
+        new CustomerDAO(DS).create(CustomerMockFactory.customerDTO("CDC05"));
+
+        // When
+        final int beforeTimeout = feed.poll();
+        ticker.addAndGet(GAP_TIMEOUT.toNanos());
+        final int afterTimeout = feed.poll();
+
+        // Then
+        Assertions.assertEquals(0, beforeTimeout);
+        Assertions.assertEquals(1, afterTimeout);
+    }
+
+    @Test
+    @DisplayName("When a subscriber fails then the change is delivered again on the next poll")
+    void testFailedDeliveryIsRetried() {
+        // Given
+        final var feed = buildFeed("retry", new InMemoryChangeOffsetStore());
+        final var received = new ArrayList<String>();
+        feed.subscribe(change -> {
+            if (received.isEmpty()) {
+                received.add("failed");
+                throw new IllegalStateException("Subscriber not ready");
+            }
+            received.add(change.getCustomerId());
+        });
+        feed.poll();
+        new CustomerDAO(DS).create(CustomerMockFactory.customerDTO("CDC06"));
+
+        // When
+        Assertions.assertThrows(IllegalStateException.class, feed::poll);
+        final int delivered = feed.poll();
+
+        // Then
+        Assertions.assertEquals(1, delivered);
+        Assertions.assertEquals(List.of("failed", "CDC06"), received);
+    }
+
+    @Test
+    @DisplayName("When a cached customer changes then the cache subscriber keeps it warm with the new value")
+    void testCacheIsUpdatedFromFeed() {
+        // Given
+        final var dao = new CustomerDAO(DS);
+        dao.create(CustomerMockFactory.customerDTO("CDC07"));
+        final var cache = new CachingCustomerDAO(dao, 100, Duration.ofHours(1), Duration.ofHours(1));
+        final var feed = buildFeed("cache", new InMemoryChangeOffsetStore());
+        feed.subscribe(change -> cache.apply(change.getCustomerId(), change.getCurrent()));
+        feed.poll();
+        cache.getById("CDC07");
+
+        // When
+        DB_HELPER.execute("update customer set city = 'Hamburg' where customer_id = 'CDC07'");
+        feed.poll();
+
+        // Then
+        Assertions.assertEquals("Hamburg", cache.getById("CDC07").orElseThrow().getCity());
+        Assertions.assertEquals(1, cache.stats().getLoadCount());
+    }
+
+}
@@ -0,0 +1,134 @@
+package persistence.codec;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import persistence.dto.CustomerDTO;
+import persistence.mock.CustomerMockFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+@DisplayName("Customer binary codec tests")
+public class CustomerCodecTest {
+
+    private static final String CUSTOMER_ID = "GUERR";
+
+    private static void putField(ByteBuffer out, String value) {
+        final var bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.put((byte) bytes.length).put(bytes);
+    }
+
+    @Test
+    @DisplayName("When a customer is encoded and decoded then every field should round-trip")
+    void testRoundTrip() {
+        // Given
+        final var expected = CustomerMockFactory.customerDTO(CUSTOMER_ID);
+
+        // When
+        final var bytes = CustomerCodec.encode(expected);
+        final var actual = CustomerCodec.decode(bytes);
+
+        // Then
+        Assertions.assertEquals(expected.toString(), actual.toString());
+        Assertions.assertEquals(CustomerCodec.encodedSize(expected), bytes.length);
+        Assertions.assertEquals(CustomerCodec.VERSION, bytes[0]);
+    }
+
+    @Test
+    @DisplayName("When fields are null or multi-byte then they should round-trip and nulls should take no space")
+    void testNullsAndUnicode() {
+        // Given
+        final var expected = new CustomerDTO(CUSTOMER_ID, "Tokio Traders", "María 😀", null, null, "東京", null,
+                null, null, null, null);
+
+        // When
+        final var bytes = CustomerCodec.encode(expected);
+        final var actual = CustomerCodec.decode(bytes);
+
+        // Then
+        Assertions.assertEquals(expected.toString(), actual.toString());
+        // version, field count, 2 byte bitmap and 4 length-prefixed fields
+        final int fields = CUSTOMER_ID.length() + "Tokio Traders".length()
+                + "María 😀".getBytes(StandardCharsets.UTF_8).length + "東京".getBytes(StandardCharsets.UTF_8).length;
+        Assertions.assertEquals(1 + 1 + 2 + 4 + fields, bytes.length);
+    }
+
+    @Test
+    @DisplayName("When several customers are written to a direct buffer then they should be read back in order")
+    void testSequentialDirectBuffer() {
+        // Given
+        final var buffer = ByteBuffer.allocateDirect(1024);
+        CustomerCodec.encode(CustomerMockFactory.customerDTO("AAAAA"), buffer);
+        CustomerCodec.encode(CustomerMockFactory.customerDTO("BBBBB"), buffer);
+        buffer.flip();
+
+        // When
+        final var first = CustomerCodec.decode(buffer);
+        final var second = CustomerCodec.decode(buffer);
+
+        // Then
+        Assertions.assertEquals("AAAAA", first.getId());
+        Assertions.assertEquals("BBBBB", second.getId());
+        Assertions.assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    @DisplayName("When the data has fields this reader does not know then they should be skipped")
+    void testSkipsUnknownFields() {
+        // Given
+        final var buffer = ByteBuffer.allocate(64);
+        buffer.put(CustomerCodec.VERSION).put((byte) 12).put((byte) 0b11).put((byte) 0b1000);
+        putField(buffer, CUSTOMER_ID);
+        putField(buffer, "Company");
+        putField(buffer, "added later");
+        buffer.put((byte) 0x7F).flip();
+
+        // When
+        final var actual = CustomerCodec.decode(buffer);
+
+        // Then
+        Assertions.assertEquals(CUSTOMER_ID, actual.getId());
+        Assertions.assertEquals("Company", actual.getCompanyName());
+        Assertions.assertNull(actual.getFax());
+        Assertions.assertEquals(1, buffer.remaining());
+    }
+
+    @Test
+    @DisplayName("When the data was written with fewer fields then the missing ones should be null")
+    void testMissingFieldsAreNull() {
+        // Given
+        final var buffer = ByteBuffer.allocate(64);
+        buffer.put(CustomerCodec.VERSION).put((byte) 2).put((byte) 0b11);
+        putField(buffer, CUSTOMER_ID);
+        putField(buffer, "Company");
+        buffer.flip();
+
+        // When
+        final var actual = CustomerCodec.decode(buffer);
+
+        // Then
+        Assertions.assertEquals("Company", actual.getCompanyName());
+        Assertions.assertNull(actual.getContactName());
+    }
+
+    @Test
+    @DisplayName("When the version is unknown or the data is truncated then decoding should fail")
+    void testRejectsInvalidData() {
+        // Given
+        final var bytes = CustomerCodec.encode(CustomerMockFactory.customerDTO(CUSTOMER_ID));
+        final var otherVersion = bytes.clone();
+        otherVersion[0] = (byte) (CustomerCodec.VERSION + 1);
+
+        // When
+        final var unknownVersion = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> CustomerCodec.decode(otherVersion));
+
+        // Then
+        Assertions.assertTrue(unknownVersion.getMessage().contains("version"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> CustomerCodec.decode(Arrays.copyOf(bytes, bytes.length - 1)));
+    }
+
+}
@@ -0,0 +1,49 @@
+package persistence.csv;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import persistence.dto.CustomerDTO;
+
+import java.io.StringReader;
+
+public class CustomerCsvTest {
+
+    @Test
+    @DisplayName("When a customer is written and parsed back then quotes, commas, line breaks and nulls should " +
+            "survive the round trip")
+    void testRoundTrip() {
+        // Given
+        final var expected = new CustomerDTO("GUERR", "Güerrín \"La Pizzería\"", "Batman, Juan Carlos", "",
+                "Avenida Corrientes 1368\nLocal 1", "Buenos Aires", null, "C1043", "Argentina", null, null);
+        final var sb = new StringBuilder();
+        CustomerCsv.appendRow(sb, expected);
+        CustomerCsv.appendRow(sb, expected);
+
+        // When
+        final var parser = new CsvParser(new StringReader(sb.toString()));
+        final var first = CustomerCsv.toCustomer(parser.next());
+        final var second = CustomerCsv.toCustomer(parser.next());
+
+        // Then
+        Assertions.assertFalse(parser.hasNext());
+        Assertions.assertEquals(3, parser.getRecordLineNumber());
+        Assertions.assertEquals(expected.toString(), first.toString());
+        Assertions.assertEquals(expected.toString(), second.toString());
+    }
+
+    @Test
+    @DisplayName("When a record does not have every customer column then it should be rejected")
+    void testWrongColumnCountIsRejected() {
+        // Given
+        final var parser = new CsvParser(new StringReader("GUERR,Güerrín\r\n"));
+
+        // When
+        final var actual = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> CustomerCsv.toCustomer(parser.next()));
+
+        // Then
+        Assertions.assertEquals("Expected 11 columns but got 2", actual.getMessage());
+    }
+
+}
@@ -4,16 +4,25 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.extension.RegisterExtension;
 import org.postgresql.ds.PGSimpleDataSource;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.containers.wait.strategy.Wait;
-import persistence.helper.DBHelper;
-import persistence.helper.SQLReader;
+import persistence.dto.CustomerDTO;
+import persistence.helper.DatabaseSnapshotExtension;
+import persistence.helper.IsolatedDatabaseExtension;
 import persistence.mock.CustomerMockFactory;
 
 import javax.sql.DataSource;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 @DisplayName("DAO tests using dockerized test-containers")
 public class CustomerDAOTestContainers {
@@ -32,27 +41,29 @@ public class CustomerDAOTestContainers {
                     );
 
     private static DataSource DS;
-    private static DBHelper DB_HELPER;
-    private static final String CUSTOMER_ID = "GUERR";
-
-    @BeforeAll
-    static void setUp() {
-        CONTAINER.start();
 
+    // Each class gets its own schema, so classes can share a PostgreSQL server while running concurrently
+    @RegisterExtension
+    static final IsolatedDatabaseExtension ISOLATED_DATABASE = IsolatedDatabaseExtension.postgres(() -> {
         final var pgDs = new PGSimpleDataSource();
         pgDs.setServerNames(new String[]{CONTAINER.getHost()});
         pgDs.setPortNumbers(new int[]{CONTAINER.getFirstMappedPort()});
         pgDs.setDatabaseName(DATABASE_NAME);
         pgDs.setUser(USERNAME);
         pgDs.setPassword(PASSWORD);
-        DS = pgDs;
+        return pgDs;
+    });
 
-        DB_HELPER = new DBHelper(DS, SQLReader.ofSemicolon());
-    }
+    @RegisterExtension
+    static final DatabaseSnapshotExtension DATABASE =
+            new DatabaseSnapshotExtension(() -> DS, "./src/test/resources/customer-table.sql", "customer");
+
+    private static final String CUSTOMER_ID = "GUERR";
 
-    @BeforeEach
-    void resetTable() {
-        DB_HELPER.executeScript("./src/test/resources/customer-table.sql");
+    @BeforeAll
+    static void setUp() {
+        CONTAINER.start();
+        DS = ISOLATED_DATABASE.getDataSource();
     }
 
     @AfterAll
@@ -89,6 +100,218 @@ public class CustomerDAOTestContainers {
         Assertions.assertEquals(org.postgresql.util.PSQLException.class, actual.getCause().getClass());
     }
 
+    @Test
+    @DisplayName("When createIfAbsent is called with a new customer then it should insert it and return true")
+    void testCreateIfAbsentWithNewCustomer() {
+        // Given
+        final var dao = new CustomerDAO(DS);
+
+        // When
+        final var actual = dao.createIfAbsent(CustomerMockFactory.customerDTO(CUSTOMER_ID));
+
+        // Then
+        Assertions.assertTrue(actual);
+        Assertions.assertTrue(dao.getById(CUSTOMER_ID).isPresent());
+    }
+
+    @Test
+    @DisplayName("When createIfAbsent is called with a customer that already exists then it should leave it " +
+            "untouched and return false")
+    void testCreateIfAbsentWithExistingCustomer() {
+        // Given
+        final var dao = new CustomerDAO(DS);
+        final var customer = new CustomerDTO(CustomerMockFactory.EXISTING_CUSTOMER_ID, "Another company", null,
+                null, null, null, null, null, null, null, null);
+
+        // When
+        final var actual = dao.createIfAbsent(customer);
+
+        // Then
+        Assertions.assertFalse(actual);
+        Assertions.assertEquals("Alfreds Futterkiste",
+                dao.getById(CustomerMockFactory.EXISTING_CUSTOMER_ID).orElseThrow().getCompanyName());
+    }
+
+    @Test
+    @DisplayName("When createAll is called it should insert every customer and report them as created")
+    void testSuccessfullyCreateAllCustomers() {
+        // Given
+        final var dao = new CustomerDAO(DS);
+        final var customers = List.of(
+                CustomerMockFactory.customerDTO("GUER1"),
+                CustomerMockFactory.customerDTO("GUER2"),
+                CustomerMockFactory.customerDTO("GUER3")
+        );
+
+        // When
+        final var actual = dao.createAll(customers, 2);
+
+        // Then
+        Assertions.assertEquals(3, actual.getCreatedCount());
+        Assertions.assertTrue(actual.getDuplicateIds().isEmpty());
+        Assertions.assertTrue(dao.getById("GUER1").isPresent());
+        Assertions.assertTrue(dao.getById("GUER2").isPresent());
+        Assertions.assertTrue(dao.getById("GUER3").isPresent());
+    }
+
+    @Test
+    @DisplayName("When createAll is called with customers that already exist then it should report them as " +
+            "duplicated and create the rest")
+    void testCreateAllReportsDuplicatedCustomers() {
+        // Given
+        final var dao = new CustomerDAO(DS);
+        final var customers = List.of(
+                CustomerMockFactory.customerDTO(CUSTOMER_ID),
+                CustomerMockFactory.customerDTO(CustomerMockFactory.EXISTING_CUSTOMER_ID),
+                CustomerMockFactory.customerDTO(CUSTOMER_ID)
+        );
+
+        // When
+        final var actual = dao.createAll(customers);
+
+        // Then
+        Assertions.assertEquals(
+                List.of(InsertOutcome.CREATED, InsertOutcome.DUPLICATE, InsertOutcome.DUPLICATE),
+                actual.getOutcomes()
+        );
+        Assertions.assertEquals(Set.of(CUSTOMER_ID, CustomerMockFactory.EXISTING_CUSTOMER_ID), actual.getDuplicateIds());
+        Assertions.assertTrue(dao.getById(CUSTOMER_ID).isPresent());
+    }
+
+    @Test
+    @DisplayName("When createAll is called on a data source that rewrites batched inserts then it should still " +
+            "report each customer as created or duplicated")
+    void testCreateAllWithReWriteBatchedInserts() {
+        // Given
+        final var rewriting = new PGSimpleDataSource();
+        rewriting.setUrl(((PGSimpleDataSource) DS).getUrl());
+        rewriting.setUser(USERNAME);
+        rewriting.setPassword(PASSWORD);
+        rewriting.setReWriteBatchedInserts(true);
+        final var dao = new CustomerDAO(rewriting);
+        final var customers = List.of(
+                CustomerMockFactory.customerDTO("GUER1"),
+                CustomerMockFactory.customerDTO(CustomerMockFactory.EXISTING_CUSTOMER_ID),
+                CustomerMockFactory.customerDTO("GUER2"),
+                CustomerMockFactory.customerDTO("GUER1"),
+                CustomerMockFactory.customerDTO("GUER3")
+        );
+
+        // When
+        final var actual = dao.createAll(customers, 2);
+
+        // Then
+        Assertions.assertEquals(
+                List.of(InsertOutcome.CREATED, InsertOutcome.DUPLICATE, InsertOutcome.CREATED,
+                        InsertOutcome.DUPLICATE, InsertOutcome.CREATED),
+                actual.getOutcomes()
+        );
+        Assertions.assertTrue(dao.getById("GUER3").isPresent());
+    }
+
+    @Test
+    @DisplayName("When getByIds is called then it should return only the existing customers keyed by their ID")
+    void testGetByIdsReturnsExistingCustomers() {
+        // Given
+        final var dao = new CustomerDAO(DS);
+        final var ids = List.of(CustomerMockFactory.EXISTING_CUSTOMER_ID, CUSTOMER_ID, CustomerMockFactory.EXISTING_CUSTOMER_ID);
+
+        // When
+        final var actual = dao.getByIds(ids);
+
+        // Then
+        Assertions.assertEquals(Set.of(CustomerMockFactory.EXISTING_CUSTOMER_ID), actual.keySet());
+        Assertions.assertEquals("Alfreds Futterkiste", actual.get(CustomerMockFactory.EXISTING_CUSTOMER_ID).getCompanyName());
+    }
+
+    @Test
+    @DisplayName("When getByIds is called with more IDs than fit in one query then it should return all of them")
+    void testGetByIdsWithManyIds() {
+        // Given
+        final var dao = new CustomerDAO(DS);
+        final var ids = IntStream.range(0, 250).mapToObj(i -> String.format("C%04d", i)).collect(Collectors.toList());
+        dao.createAll(ids.stream().map(CustomerMockFactory::customerDTO).collect(Collectors.toList()));
+
+        // When
+        final var actual = dao.getByIds(ids);
+
+        // Then
+        Assertions.assertEquals(Set.copyOf(ids), actual.keySet());
+    }
+
+    @Test
+    @DisplayName("When streamAll is called then it should lazily return every customer")
+    void testStreamAllReturnsEveryCustomer() {
+        // Given
+        final var dao = new CustomerDAO(DS);
+        final var ids = IntStream.range(0, 50).mapToObj(i -> String.format("C%04d", i)).collect(Collectors.toList());
+        dao.createAll(ids.stream().map(CustomerMockFactory::customerDTO).collect(Collectors.toList()));
+
+        // When
+        final Set<String> actual;
+        try (final var customers = dao.streamAll()) {
+            actual = customers.map(CustomerDTO::getId).collect(Collectors.toSet());
+        }
+
+        // Then
+        Assertions.assertEquals(51, actual.size());
+        Assertions.assertTrue(actual.contains(CustomerMockFactory.EXISTING_CUSTOMER_ID));
+    }
+
+    @Test
+    @DisplayName("When streamByCountry is called then it should only return customers from that country")
+    void testStreamByCountryFiltersCustomers() {
+        // Given
+        final var dao = new CustomerDAO(DS);
+        dao.create(new CustomerDTO(CUSTOMER_ID, "Güerrín", null, null, null, "Buenos Aires", null, null,
+                "Argentina", null, null));
+
+        // When
+        final List<CustomerDTO> actual;
+        try (final var customers = dao.streamByCountry("Argentina")) {
+            actual = customers.collect(Collectors.toList());
+        }
+
+        // Then
+        Assertions.assertEquals(1, actual.size());
+        Assertions.assertEquals(CUSTOMER_ID, actual.get(0).getId());
+    }
+
+    @Test
+    @DisplayName("When the bulk loader is given a stream of customers then it should insert all of them")
+    void testBulkLoadCustomers() {
+        // Given
+        final var loader = new CustomerBulkLoader(DS);
+        final var customers = Stream.of("GUER1", "GUER2", "GUER3").map(CustomerMockFactory::customerDTO);
+
+        // When
+        final var actual = loader.load(customers);
+
+        // Then
+        Assertions.assertEquals(3, actual);
+        Assertions.assertEquals(3, new CustomerDAO(DS).getByIds(List.of("GUER1", "GUER2", "GUER3")).size());
+    }
+
+    @Test
+    @DisplayName("When the bulk loader is given a CSV then empty unquoted fields should be loaded as NULL")
+    void testBulkLoadCsvKeepsNulls() {
+        // Given
+        final var loader = new CustomerBulkLoader(DS);
+        final var csv = "\"GUERR\",\"Güerrín\",\"Batman, Juan Carlos\",,,\"Buenos Aires\",,\"C1043\",\"Argentina\",\"\",\n";
+
+        // When
+        final var actual = loader.loadCsv(new StringReader(csv));
+
+        // Then
+        Assertions.assertEquals(1, actual);
+        final var customer = new CustomerDAO(DS).getById(CUSTOMER_ID).orElseThrow();
+        Assertions.assertEquals("Batman, Juan Carlos", customer.getContactName());
+        Assertions.assertNull(customer.getContactTitle());
+        Assertions.assertNull(customer.getRegion());
+        Assertions.assertEquals("", customer.getPhone());
+        Assertions.assertNull(customer.getFax());
+    }
+
     @Test
     @DisplayName("When getById is called with the ID of a user that does not exist then it should return an empty " +
             "Optional")
@@ -130,4 +353,75 @@ public class CustomerDAOTestContainers {
         Assertions.assertEquals("030-0076545", actual.getFax());
     }
 
+    private static List<CustomerDTO> pagingCustomers() {
+        final String[][] locations = {
+                {"Argentina", "Buenos Aires"}, {"Argentina", null}, {"Argentina", "Rosario"}, {null, "Berlin"},
+                {null, null}, {"Germany", "Berlin"}, {"Germany", "Aachen"}, {"Germany", null}
+        };
+        return IntStream.range(0, 24)
+                .mapToObj(i -> {
+                    final var location = locations[i % locations.length];
+                    return new CustomerDTO(String.format("PG%03d", i), "Company " + i, null, null, null,
+                            location[1], null, null, location[0], null, null);
+                })
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> readAllPages(CustomerDAO dao, CustomerFilter filter, int limit) {
+        final var ids = new ArrayList<String>();
+        String token = null;
+        do {
+            final var page = dao.page(filter, token, limit);
+            Assertions.assertTrue(page.getItems().size() <= limit);
+            page.getItems().forEach(customer -> ids.add(customer.getId().trim()));
+            token = page.getNextToken().orElse(null);
+        } while (token != null);
+        return ids;
+    }
+
+    private static List<String> expectedOrder(List<CustomerDTO> customers, CustomerFilter filter) {
+        final Comparator<String> nullsFirst = Comparator.nullsFirst(Comparator.naturalOrder());
+        return customers.stream()
+                .filter(c -> filter.getCountry() == null || filter.getCountry().equals(c.getCountry()))
+                .sorted(Comparator.comparing(CustomerDTO::getCountry, nullsFirst)
+                        .thenComparing(CustomerDTO::getCity, nullsFirst)
+                        .thenComparing(CustomerDTO::getId))
+                .map(CustomerDTO::getId)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("When page is called repeatedly with the returned token then it should read every customer once " +
+            "in country, city and id order")
+    void testPageThroughAllCustomers() {
+        // Given
+        final var dao = new CustomerDAO(DS);
+        final var customers = new ArrayList<>(pagingCustomers());
+        dao.createAll(customers);
+        // The customer already in the table is in Germany, Berlin like the mock
+        customers.add(CustomerMockFactory.customerDTO(CustomerMockFactory.EXISTING_CUSTOMER_ID));
+
+        // When
+        final var actual = readAllPages(dao, CustomerFilter.ALL, 5);
+
+        // Then
+        Assertions.assertEquals(expectedOrder(customers, CustomerFilter.ALL), actual);
+    }
+
+    @Test
+    @DisplayName("When page is called with a country filter then it should only read customers of that country")
+    void testPageByCountry() {
+        // Given
+        final var dao = new CustomerDAO(DS);
+        final var customers = pagingCustomers();
+        dao.createAll(customers);
+        final var filter = CustomerFilter.byCountry("Argentina");
+
+        // When
+        final var actual = readAllPages(dao, filter, 2);
+
+        // Then
+        Assertions.assertEquals(expectedOrder(customers, filter), actual);
+    }
+
 }
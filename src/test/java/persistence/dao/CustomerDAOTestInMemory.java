@@ -1,37 +1,49 @@
 package persistence.dao;
 
 import org.h2.jdbc.JdbcSQLIntegrityConstraintViolationException;
-import org.h2.jdbcx.JdbcDataSource;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Assertions;
-import persistence.helper.DBHelper;
-import persistence.helper.SQLReader;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import persistence.datasource.PoolConfig;
+import persistence.datasource.PooledDataSource;
+import persistence.dto.CustomerDTO;
+import persistence.helper.DatabaseSnapshotExtension;
+import persistence.helper.IsolatedDatabaseExtension;
 import persistence.mock.CustomerMockFactory;
 
 import javax.sql.DataSource;
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 @DisplayName("DAO tests using H2 in-memory Database")
 public class CustomerDAOTestInMemory {
 
-    private static final String DB_URL = "jdbc:h2:mem:public;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
     private static DataSource DS;
-    private static DBHelper DB_HELPER;
+
+    @RegisterExtension
+    static final IsolatedDatabaseExtension ISOLATED_DATABASE = IsolatedDatabaseExtension.h2();
+
+    @RegisterExtension
+    static final DatabaseSnapshotExtension DATABASE =
+            new DatabaseSnapshotExtension(() -> DS, "./src/test/resources/customer-table.sql", "customer");
+
     private static final String CUSTOMER_ID = "GUERR";
 
     @BeforeAll
     static void setUp() {
-        final var ds = new JdbcDataSource();
-        ds.setUrl(DB_URL);
-        DS = ds;
-        DB_HELPER = new DBHelper(DS, SQLReader.ofSemicolon());
-    }
-
-    @BeforeEach
-    void resetTable() {
-        DB_HELPER.executeScript("./src/test/resources/customer-table.sql");
+        DS = ISOLATED_DATABASE.getDataSource();
     }
 
     @Test
@@ -63,6 +75,229 @@ public class CustomerDAOTestInMemory {
         Assertions.assertEquals(JdbcSQLIntegrityConstraintViolationException.class, actual.getCause().getClass());
     }
 
+    @Test
+    @DisplayName("When createIfAbsent is called with a new customer then it should insert it and return true")
+    void testCreateIfAbsentWithNewCustomer() {
+        // Given
+        final var dao = new CustomerDAO(DS);
+
+        // When
+        final var actual = dao.createIfAbsent(CustomerMockFactory.customerDTO(CUSTOMER_ID));
+
+        // Then
+        Assertions.assertTrue(actual);
+        Assertions.assertTrue(dao.getById(CUSTOMER_ID).isPresent());
+    }
+
+    @Test
+    @DisplayName("When createIfAbsent is called with a customer that already exists then it should leave it " +
+            "untouched and return false")
+    void testCreateIfAbsentWithExistingCustomer() {
+        // Given
+        final var dao = new CustomerDAO(DS);
+        final var customer = new CustomerDTO(CustomerMockFactory.EXISTING_CUSTOMER_ID, "Another company", null,
+                null, null, null, null, null, null, null, null);
+
+        // When
+        final var actual = dao.createIfAbsent(customer);
+
+        // Then
+        Assertions.assertFalse(actual);
+        Assertions.assertEquals("Alfreds Futterkiste",
+                dao.getById(CustomerMockFactory.EXISTING_CUSTOMER_ID).orElseThrow().getCompanyName());
+    }
+
+    @Test
+    @DisplayName("When createAll is called it should insert every customer and report them as created")
+    void testSuccessfullyCreateAllCustomers() {
+        // Given
+        final var dao = new CustomerDAO(DS);
+        final var customers = List.of(
+                CustomerMockFactory.customerDTO("GUER1"),
+                CustomerMockFactory.customerDTO("GUER2"),
+                CustomerMockFactory.customerDTO("GUER3")
+        );
+
+        // When
+        final var actual = dao.createAll(customers, 2);
+
+        // Then
+        Assertions.assertEquals(3, actual.getCreatedCount());
+        Assertions.assertTrue(actual.getDuplicateIds().isEmpty());
+        Assertions.assertTrue(dao.getById("GUER1").isPresent());
+        Assertions.assertTrue(dao.getById("GUER2").isPresent());
+        Assertions.assertTrue(dao.getById("GUER3").isPresent());
+    }
+
+    @Test
+    @DisplayName("When createAll is called with customers that already exist then it should report them as " +
+            "duplicated and create the rest")
+    void testCreateAllReportsDuplicatedCustomers() {
+        // Given
+        final var dao = new CustomerDAO(DS);
+        final var customers = List.of(
+                CustomerMockFactory.customerDTO(CUSTOMER_ID),
+                CustomerMockFactory.customerDTO(CustomerMockFactory.EXISTING_CUSTOMER_ID),
+                CustomerMockFactory.customerDTO(CUSTOMER_ID)
+        );
+
+        // When
+        final var actual = dao.createAll(customers);
+
+        // Then
+        Assertions.assertEquals(
+                List.of(InsertOutcome.CREATED, InsertOutcome.DUPLICATE, InsertOutcome.DUPLICATE),
+                actual.getOutcomes()
+        );
+        Assertions.assertEquals(Set.of(CUSTOMER_ID, CustomerMockFactory.EXISTING_CUSTOMER_ID), actual.getDuplicateIds());
+        Assertions.assertTrue(dao.getById(CUSTOMER_ID).isPresent());
+    }
+
+    @Test
+    @DisplayName("When getByIds is called then it should return only the existing customers keyed by their ID")
+    void testGetByIdsReturnsExistingCustomers() {
+        // Given
+        final var dao = new CustomerDAO(DS);
+        final var ids = List.of(CustomerMockFactory.EXISTING_CUSTOMER_ID, CUSTOMER_ID, CustomerMockFactory.EXISTING_CUSTOMER_ID);
+
+        // When
+        final var actual = dao.getByIds(ids);
+
+        // Then
+        Assertions.assertEquals(Set.of(CustomerMockFactory.EXISTING_CUSTOMER_ID), actual.keySet());
+        Assertions.assertEquals("Alfreds Futterkiste", actual.get(CustomerMockFactory.EXISTING_CUSTOMER_ID).getCompanyName());
+    }
+
+    @Test
+    @DisplayName("When getByIds is called with more IDs than fit in one query then it should return all of them")
+    void testGetByIdsWithManyIds() {
+        // Given
+        final var dao = new CustomerDAO(DS);
+        final var ids = IntStream.range(0, 250).mapToObj(i -> String.format("C%04d", i)).collect(Collectors.toList());
+        dao.createAll(ids.stream().map(CustomerMockFactory::customerDTO).collect(Collectors.toList()));
+
+        // When
+        final var actual = dao.getByIds(ids);
+
+        // Then
+        Assertions.assertEquals(Set.copyOf(ids), actual.keySet());
+    }
+
+    @Test
+    @DisplayName("When streamAll is called then it should lazily return every customer")
+    void testStreamAllReturnsEveryCustomer() {
+        // Given
+        final var dao = new CustomerDAO(DS);
+        final var ids = IntStream.range(0, 50).mapToObj(i -> String.format("C%04d", i)).collect(Collectors.toList());
+        dao.createAll(ids.stream().map(CustomerMockFactory::customerDTO).collect(Collectors.toList()));
+
+        // When
+        final Set<String> actual;
+        try (final var customers = dao.streamAll()) {
+            actual = customers.map(CustomerDTO::getId).collect(Collectors.toSet());
+        }
+
+        // Then
+        Assertions.assertEquals(51, actual.size());
+        Assertions.assertTrue(actual.contains(CustomerMockFactory.EXISTING_CUSTOMER_ID));
+    }
+
+    @Test
+    @DisplayName("When streamByCountry is called then it should only return customers from that country")
+    void testStreamByCountryFiltersCustomers() {
+        // Given
+        final var dao = new CustomerDAO(DS);
+        dao.create(new CustomerDTO(CUSTOMER_ID, "Güerrín", null, null, null, "Buenos Aires", null, null,
+                "Argentina", null, null));
+
+        // When
+        final List<CustomerDTO> actual;
+        try (final var customers = dao.streamByCountry("Argentina")) {
+            actual = customers.collect(Collectors.toList());
+        }
+
+        // Then
+        Assertions.assertEquals(1, actual.size());
+        Assertions.assertEquals(CUSTOMER_ID, actual.get(0).getId());
+    }
+
+    @Test
+    @DisplayName("When streamAll is called with a projection then only the selected columns should be read")
+    void testStreamAllWithProjection() {
+        // Given
+        final var dao = new CustomerDAO(DS);
+
+        // When
+        final List<CustomerDTO> actual;
+        try (final var customers = dao.streamAll(EnumSet.of(CustomerColumn.COUNTRY))) {
+            actual = customers.collect(Collectors.toList());
+        }
+
+        // Then
+        Assertions.assertEquals(1, actual.size());
+        Assertions.assertEquals(CustomerMockFactory.EXISTING_CUSTOMER_ID, actual.get(0).getId());
+        Assertions.assertEquals("Germany", actual.get(0).getCountry());
+        Assertions.assertNull(actual.get(0).getCompanyName());
+    }
+
+    @Test
+    @DisplayName("When a customer stream is closed before being fully consumed then its connection should be released")
+    void testClosingStreamReleasesConnection() {
+        // Given
+        final var config = new PoolConfig();
+        config.setMinimumIdle(0);
+        config.setMaximumPoolSize(1);
+        config.setConnectionTimeout(Duration.ofMillis(200));
+
+        try (final var pool = new PooledDataSource(DS, config)) {
+            final var dao = new CustomerDAO(pool);
+
+            // When
+            try (final var customers = dao.streamAll()) {
+                Assertions.assertTrue(customers.findFirst().isPresent());
+            }
+
+            // Then
+            Assertions.assertTrue(dao.getById(CustomerMockFactory.EXISTING_CUSTOMER_ID).isPresent());
+            Assertions.assertEquals(0, pool.getActiveConnections());
+        }
+    }
+
+    @Test
+    @DisplayName("When the bulk loader is given a stream of customers then it should insert all of them")
+    void testBulkLoadCustomers() {
+        // Given
+        final var loader = new CustomerBulkLoader(DS);
+        final var customers = Stream.of("GUER1", "GUER2", "GUER3").map(CustomerMockFactory::customerDTO);
+
+        // When
+        final var actual = loader.load(customers);
+
+        // Then
+        Assertions.assertEquals(3, actual);
+        Assertions.assertEquals(3, new CustomerDAO(DS).getByIds(List.of("GUER1", "GUER2", "GUER3")).size());
+    }
+
+    @Test
+    @DisplayName("When the bulk loader is given a CSV then empty unquoted fields should be loaded as NULL")
+    void testBulkLoadCsvKeepsNulls() {
+        // Given
+        final var loader = new CustomerBulkLoader(DS);
+        final var csv = "\"GUERR\",\"Güerrín\",\"Batman, Juan Carlos\",,,\"Buenos Aires\",,\"C1043\",\"Argentina\",\"\",\n";
+
+        // When
+        final var actual = loader.loadCsv(new StringReader(csv));
+
+        // Then
+        Assertions.assertEquals(1, actual);
+        final var customer = new CustomerDAO(DS).getById(CUSTOMER_ID).orElseThrow();
+        Assertions.assertEquals("Batman, Juan Carlos", customer.getContactName());
+        Assertions.assertNull(customer.getContactTitle());
+        Assertions.assertNull(customer.getRegion());
+        Assertions.assertEquals("", customer.getPhone());
+        Assertions.assertNull(customer.getFax());
+    }
+
     @Test
     @DisplayName("When getById is called with the ID of a user that does not exist then it should return an empty " +
             "Optional")
@@ -104,4 +339,129 @@ public class CustomerDAOTestInMemory {
         Assertions.assertEquals("030-0076545", actual.getFax());
     }
 
+    private static List<CustomerDTO> pagingCustomers() {
+        final String[][] locations = {
+                {"Argentina", "Buenos Aires"}, {"Argentina", null}, {"Argentina", "Rosario"}, {null, "Berlin"},
+                {null, null}, {"Germany", "Berlin"}, {"Germany", "Aachen"}, {"Germany", null}
+        };
+        return IntStream.range(0, 24)
+                .mapToObj(i -> {
+                    final var location = locations[i % locations.length];
+                    return new CustomerDTO(String.format("PG%03d", i), "Company " + i, null, null, null,
+                            location[1], null, null, location[0], null, null);
+                })
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> readAllPages(CustomerDAO dao, CustomerFilter filter, int limit) {
+        final var ids = new ArrayList<String>();
+        String token = null;
+        do {
+            final var page = dao.page(filter, token, limit);
+            Assertions.assertTrue(page.getItems().size() <= limit);
+            page.getItems().forEach(customer -> ids.add(customer.getId().trim()));
+            token = page.getNextToken().orElse(null);
+        } while (token != null);
+        return ids;
+    }
+
+    private static List<String> expectedOrder(List<CustomerDTO> customers, CustomerFilter filter) {
+        final Comparator<String> nullsFirst = Comparator.nullsFirst(Comparator.naturalOrder());
+        return customers.stream()
+                .filter(c -> filter.getCountry() == null || filter.getCountry().equals(c.getCountry()))
+                .sorted(Comparator.comparing(CustomerDTO::getCountry, nullsFirst)
+                        .thenComparing(CustomerDTO::getCity, nullsFirst)
+                        .thenComparing(CustomerDTO::getId))
+                .map(CustomerDTO::getId)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("When page is called repeatedly with the returned token then it should read every customer once " +
+            "in country, city and id order")
+    void testPageThroughAllCustomers() {
+        // Given
+        final var dao = new CustomerDAO(DS);
+        final var customers = new ArrayList<>(pagingCustomers());
+        dao.createAll(customers);
+        // The customer already in the table is in Germany, Berlin like the mock
+        customers.add(CustomerMockFactory.customerDTO(CustomerMockFactory.EXISTING_CUSTOMER_ID));
+
+        // When
+        final var actual = readAllPages(dao, CustomerFilter.ALL, 5);
+
+        // Then
+        Assertions.assertEquals(expectedOrder(customers, CustomerFilter.ALL), actual);
+    }
+
+    @Test
+    @DisplayName("When page is called with a country filter then it should only read customers of that country")
+    void testPageByCountry() {
+        // Given
+        final var dao = new CustomerDAO(DS);
+        final var customers = pagingCustomers();
+        dao.createAll(customers);
+        final var filter = CustomerFilter.byCountry("Argentina");
+
+        // When
+        final var actual = readAllPages(dao, filter, 2);
+
+        // Then
+        Assertions.assertEquals(expectedOrder(customers, filter), actual);
+    }
+
+    // Rows H2 reads to run the page query after the token, from EXPLAIN ANALYZE
+    private static long pageScanCount(String token, int limit) throws SQLException {
+        final var binds = new ArrayList<Object>();
+        final var sql = CustomerDAO.pageSql(CustomerFilter.ALL, PageKey.decode(token), limit, Dialect.H2, binds);
+        try (final var conn = DS.getConnection(); final var stmt = conn.prepareStatement("explain analyze " + sql)) {
+            for (int i = 0; i < binds.size(); i++) stmt.setObject(i + 1, binds.get(i));
+            try (final var rs = stmt.executeQuery()) {
+                rs.next();
+                final var matcher = Pattern.compile("scanCount: (\\d+)").matcher(rs.getString(1));
+                long scanned = 0;
+                while (matcher.find()) scanned += Long.parseLong(matcher.group(1));
+                return scanned;
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("When page is called with tokens deeper and deeper in the listing then H2 should read about the " +
+            "same number of rows for each page")
+    void testPageScanCountDoesNotGrowWithDepth() throws SQLException {
+        // Given
+        final var dao = new CustomerDAO(DS);
+        dao.createAll(IntStream.range(0, 2_000)
+                .mapToObj(i -> new CustomerDTO(String.format("D%04d", i), "Company " + i, null, null, null,
+                        "City " + i % 5, null, null, "Country " + i % 4, null, null))
+                .collect(Collectors.toList()));
+        final var tokens = new ArrayList<String>();
+        String token = dao.page(CustomerFilter.ALL, null, 20).getNextToken().orElseThrow();
+        while (token != null) {
+            tokens.add(token);
+            token = dao.page(CustomerFilter.ALL, token, 20).getNextToken().orElse(null);
+        }
+
+        // When
+        final long first = pageScanCount(tokens.get(0), 21);
+        final long middle = pageScanCount(tokens.get(tokens.size() / 2), 21);
+        final long last = pageScanCount(tokens.get(tokens.size() - 2), 21);
+
+        // Then
+        Assertions.assertTrue(first < 200, "first page read " + first + " rows");
+        Assertions.assertTrue(middle < 200, "middle page read " + middle + " rows");
+        Assertions.assertTrue(last < 200, "last page read " + last + " rows");
+    }
+
+    @Test
+    @DisplayName("When page is called with a token that was not issued by the DAO then it should throw an error")
+    void testPageWithInvalidToken() {
+        // Given
+        final var dao = new CustomerDAO(DS);
+
+        // When - Then
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dao.page(CustomerFilter.ALL, "not-a-token", 10));
+    }
+
 }
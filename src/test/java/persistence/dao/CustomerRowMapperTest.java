@@ -0,0 +1,57 @@
+package persistence.dao;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.EnumSet;
+
+@DisplayName("Unit tests for the customer row mapper using Mockito framework")
+public class CustomerRowMapperTest {
+
+    @Test
+    @DisplayName("When a projection is used then the selected columns should be read by position and the rest " +
+            "should be null")
+    void testProjectionReadsOnlySelectedColumns() throws SQLException {
+        // Given
+        final var mapper = CustomerRowMapper.of(EnumSet.of(CustomerColumn.COUNTRY, CustomerColumn.CITY));
+        final var rs = Mockito.mock(ResultSet.class);
+        Mockito.when(rs.getString(Mockito.eq(1))).thenReturn("ALFKI");
+        Mockito.when(rs.getString(Mockito.eq(2))).thenReturn("Berlin");
+        Mockito.when(rs.getString(Mockito.eq(3))).thenReturn("Germany");
+
+        // When
+        final var actual = mapper.map(rs);
+
+        // Then
+        Assertions.assertEquals("customer_id, city, country", mapper.getSelectList());
+        Assertions.assertEquals("ALFKI", actual.getId());
+        Assertions.assertEquals("Berlin", actual.getCity());
+        Assertions.assertEquals("Germany", actual.getCountry());
+        Assertions.assertNull(actual.getCompanyName());
+        Mockito.verify(rs, Mockito.never()).getString(Mockito.eq(4));
+    }
+
+    @Test
+    @DisplayName("When a deduplicating mapper reads repeated low-cardinality values then it should share one instance")
+    void testDeduplicatingMapperSharesRepeatedValues() throws SQLException {
+        // Given
+        final var mapper = CustomerRowMapper.ALL.deduplicating();
+        final var rs = Mockito.mock(ResultSet.class);
+        Mockito.when(rs.getString(Mockito.eq(1))).thenReturn("ALFKI", "ANATR");
+        Mockito.when(rs.getString(Mockito.eq(9))).thenReturn(new String("Germany"), new String("Germany"));
+        Mockito.when(rs.getString(Mockito.eq(10))).thenReturn(new String("030-0074321"), new String("030-0074321"));
+
+        // When
+        final var first = mapper.map(rs);
+        final var second = mapper.map(rs);
+
+        // Then
+        Assertions.assertSame(first.getCountry(), second.getCountry());
+        Assertions.assertNotSame(first.getPhone(), second.getPhone());
+    }
+
+}
@@ -0,0 +1,254 @@
+package persistence.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import persistence.dao.CustomerDAO;
+import persistence.helper.CountingDataSource;
+import persistence.helper.DatabaseSnapshotExtension;
+import persistence.helper.IsolatedDatabaseExtension;
+import persistence.mock.CustomerMockFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+@DisplayName("Connection pool tests using H2 in-memory Database")
+public class PooledDataSourceTest {
+
+    private static final int LOOKUPS = 100;
+    private static DataSource DS;
+
+    @RegisterExtension
+    static final IsolatedDatabaseExtension ISOLATED_DATABASE = IsolatedDatabaseExtension.h2();
+
+    @RegisterExtension
+    static final DatabaseSnapshotExtension DATABASE =
+            new DatabaseSnapshotExtension(() -> DS, "./src/test/resources/customer-table.sql", "customer");
+
+    private CountingDataSource countingDS;
+    private PooledDataSource pool;
+
+    @BeforeAll
+    static void setUp() {
+        DS = ISOLATED_DATABASE.getDataSource();
+    }
+
+    @BeforeEach
+    void wrapDataSource() {
+        countingDS = new CountingDataSource(DS);
+    }
+
+    @AfterEach
+    void closePool() {
+        if (pool != null) pool.close();
+    }
+
+    private PooledDataSource buildPool(int maximumPoolSize) {
+        return buildPool(maximumPoolSize, 0);
+    }
+
+    private PooledDataSource buildPool(int maximumPoolSize, int statementCacheSize) {
+        final var config = new PoolConfig();
+        config.setPoolName("test-pool");
+        config.setMinimumIdle(0);
+        config.setMaximumPoolSize(maximumPoolSize);
+        config.setConnectionTimeout(Duration.ofMillis(200));
+        config.setStatementCacheSize(statementCacheSize);
+        return new PooledDataSource(countingDS, config);
+    }
+
+    @Test
+    @DisplayName("When the DAO runs through the pool then physical connections should be reused between calls")
+    void testPoolReusesConnections() {
+        // Given
+        final var unpooledDAO = new CustomerDAO(countingDS);
+        for (int i = 0; i < LOOKUPS; i++) unpooledDAO.getById(CustomerMockFactory.EXISTING_CUSTOMER_ID);
+        final int unpooledConnections = countingDS.getOpenedConnections();
+
+        pool = buildPool(4);
+        final var pooledDAO = new CustomerDAO(pool);
+        final int before = countingDS.getOpenedConnections();
+
+        // When
+        for (int i = 0; i < LOOKUPS; i++) pooledDAO.getById(CustomerMockFactory.EXISTING_CUSTOMER_ID);
+
+        // Then
+        Assertions.assertEquals(LOOKUPS, unpooledConnections);
+        Assertions.assertEquals(1, countingDS.getOpenedConnections() - before);
+        Assertions.assertEquals(1, pool.getTotalConnections());
+        Assertions.assertEquals(0, pool.getActiveConnections());
+    }
+
+    @Test
+    @DisplayName("When every connection is in use then getConnection should time out")
+    // The connections are only held open
+    @SuppressWarnings("try")
+    void testBorrowTimesOutWhenExhausted() throws SQLException {
+        // Given
+        pool = buildPool(1);
+
+        try (Connection ignored = pool.getConnection()) {
+            // When
+            final var actual = Assertions.assertThrows(SQLTransientConnectionException.class, pool::getConnection);
+
+            // Then
+            Assertions.assertEquals("08001", actual.getSQLState());
+            Assertions.assertEquals(1, pool.getActiveConnections());
+        }
+    }
+
+    @Test
+    @DisplayName("When an idle connection is no longer valid then it should be replaced on borrow")
+    void testInvalidConnectionIsReplaced() throws SQLException {
+        // Given
+        pool = buildPool(1);
+        try (Connection conn = pool.getConnection()) {
+            conn.unwrap(Connection.class).close();
+        }
+
+        // When
+        try (Connection conn = pool.getConnection()) {
+            // Then
+            Assertions.assertTrue(conn.isValid(1));
+        }
+        Assertions.assertEquals(2, countingDS.getOpenedConnections());
+        Assertions.assertEquals(1, pool.getTotalConnections());
+    }
+
+    @Test
+    @DisplayName("When a connection outlives maxLifetime then it should be retired instead of returned to the pool")
+    // The connections are only held open
+    @SuppressWarnings("try")
+    void testExpiredConnectionIsRetired() throws SQLException {
+        // Given
+        final var config = new PoolConfig();
+        config.setMinimumIdle(0);
+        config.setMaxLifetime(Duration.ofNanos(1));
+        pool = new PooledDataSource(countingDS, config);
+
+        // When
+        try (Connection ignored = pool.getConnection()) {
+            Assertions.assertEquals(1, pool.getTotalConnections());
+        }
+
+        // Then
+        Assertions.assertEquals(0, pool.getTotalConnections());
+        Assertions.assertEquals(0, pool.getIdleConnections());
+    }
+
+    @Test
+    @DisplayName("When a borrowed connection is closed then further use of it should fail")
+    void testClosedHandleCannotBeUsed() throws SQLException {
+        // Given
+        pool = buildPool(1);
+        final var conn = pool.getConnection();
+
+        // When
+        conn.close();
+        conn.close();
+
+        // Then
+        Assertions.assertTrue(conn.isClosed());
+        Assertions.assertThrows(SQLException.class, conn::createStatement);
+        Assertions.assertEquals(1, pool.getIdleConnections());
+    }
+
+    @Test
+    @DisplayName("When the statement cache is enabled then repeated DAO calls should reuse the prepared statement")
+    void testStatementCacheReusesStatements() {
+        // Given
+        pool = buildPool(1, 8);
+        final var dao = new CustomerDAO(pool);
+
+        // When
+        for (int i = 0; i < LOOKUPS; i++) {
+            Assertions.assertTrue(dao.getById(CustomerMockFactory.EXISTING_CUSTOMER_ID).isPresent());
+        }
+
+        // Then
+        Assertions.assertEquals(1, pool.getStatementCacheMisses());
+        Assertions.assertEquals(LOOKUPS - 1, pool.getStatementCacheHits());
+    }
+
+    @Test
+    @DisplayName("When a cached statement is left open then closing the connection should return it to the cache")
+    void testOpenStatementIsReturnedOnConnectionClose() throws SQLException {
+        // Given
+        pool = buildPool(1, 8);
+        final PreparedStatement leftOpen;
+        try (Connection conn = pool.getConnection()) {
+            leftOpen = conn.prepareStatement("select customer_id from customer where customer_id = ?");
+            leftOpen.setString(1, CustomerMockFactory.EXISTING_CUSTOMER_ID);
+        }
+
+        // When
+        try (
+                Connection conn = pool.getConnection();
+                PreparedStatement stmt = conn.prepareStatement("select customer_id from customer where customer_id = ?")
+        ) {
+            stmt.setString(1, CustomerMockFactory.EXISTING_CUSTOMER_ID);
+            try (ResultSet rs = stmt.executeQuery()) {
+                // Then
+                Assertions.assertTrue(rs.next());
+                Assertions.assertSame(conn, stmt.getConnection());
+            }
+        }
+        Assertions.assertTrue(leftOpen.isClosed());
+        Assertions.assertEquals(1, pool.getStatementCacheHits());
+    }
+
+    @Test
+    @DisplayName("When more statements than the cache size are prepared then the least recently used should be evicted")
+    void testStatementCacheEvictsLeastRecentlyUsed() throws SQLException {
+        // Given
+        pool = buildPool(1, 2);
+
+        // When
+        try (Connection conn = pool.getConnection()) {
+            for (String sql : new String[]{"select 1", "select 2", "select 1", "select 3", "select 2"}) {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.executeQuery().close();
+                }
+            }
+        }
+
+        // Then
+        Assertions.assertEquals(1, pool.getStatementCacheHits());
+        Assertions.assertEquals(4, pool.getStatementCacheMisses());
+    }
+
+    @Test
+    @DisplayName("When the same SQL is prepared twice on a connection then the second statement should be closed with it")
+    void testDuplicateStatementIsClosedWithConnection() throws SQLException {
+        // Given
+        pool = buildPool(1, 8);
+        final var sql = "select customer_id from customer where customer_id = ?";
+        final PreparedStatement second;
+
+        // When
+        try (Connection conn = pool.getConnection()) {
+            final var first = conn.prepareStatement(sql);
+            second = conn.prepareStatement(sql);
+            second.setString(1, CustomerMockFactory.EXISTING_CUSTOMER_ID);
+            try (ResultSet rs = second.executeQuery()) {
+                Assertions.assertTrue(rs.next());
+            }
+
+            // Then
+            Assertions.assertNotSame(first, second);
+            Assertions.assertSame(conn, second.getConnection());
+        }
+        Assertions.assertTrue(second.isClosed());
+        Assertions.assertEquals(2, pool.getStatementCacheMisses());
+    }
+
+}
@@ -0,0 +1,192 @@
+package persistence.datasource;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.Mockito;
+import persistence.dao.CustomerDAO;
+import persistence.helper.CountingDataSource;
+import persistence.helper.DBHelper;
+import persistence.helper.IsolatedDatabaseExtension;
+import persistence.helper.SQLReader;
+import persistence.metrics.StatementInstrumentation;
+import persistence.mock.CustomerMockFactory;
+import persistence.writebehind.WriteBehindCustomerDAO;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+@DisplayName("Replica routing tests using one H2 in-memory Database per node")
+public class ReplicaRoutingDataSourceTest {
+
+    private static final Duration STICKINESS = Duration.ofSeconds(1);
+
+    @RegisterExtension
+    static final IsolatedDatabaseExtension PRIMARY_DATABASE = IsolatedDatabaseExtension.h2();
+
+    @RegisterExtension
+    static final IsolatedDatabaseExtension FIRST_REPLICA_DATABASE = IsolatedDatabaseExtension.h2();
+
+    @RegisterExtension
+    static final IsolatedDatabaseExtension SECOND_REPLICA_DATABASE = IsolatedDatabaseExtension.h2();
+
+    private final AtomicLong ticker = new AtomicLong();
+    private CountingDataSource primary;
+    private CountingDataSource firstReplica;
+    private CountingDataSource secondReplica;
+
+    // Nodes are not replicated, so a row written to the primary is only visible when reading from the primary
+    @BeforeAll
+    static void setUp() {
+        for (IsolatedDatabaseExtension database : List.of(PRIMARY_DATABASE, FIRST_REPLICA_DATABASE, SECOND_REPLICA_DATABASE)) {
+            new DBHelper(database.getDataSource(), SQLReader.ofSemicolon())
+                    .executeScript("./src/test/resources/customer-table.sql");
+        }
+    }
+
+    @BeforeEach
+    void wrapDataSources() {
+        primary = new CountingDataSource(PRIMARY_DATABASE.getDataSource());
+        firstReplica = new CountingDataSource(FIRST_REPLICA_DATABASE.getDataSource());
+        secondReplica = new CountingDataSource(SECOND_REPLICA_DATABASE.getDataSource());
+    }
+
+    private ReplicaRoutingDataSource buildRouter(DataSource... replicas) {
+        return new ReplicaRoutingDataSource(primary, List.of(replicas), STICKINESS, Duration.ZERO, ticker::get);
+    }
+
+    private static CustomerDAO buildDAO(ReplicaRoutingDataSource router) {
+        return new CustomerDAO(router, router.readOnly(), StatementInstrumentation.DISABLED);
+    }
+
+    @Test
+    @DisplayName("When reading through the router then the replicas serve the queries and the primary is not used")
+    void testReadsGoToReplicas() {
+        // Given
+        final var dao = buildDAO(buildRouter(firstReplica, secondReplica));
+
+        // When
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertTrue(dao.getById(CustomerMockFactory.EXISTING_CUSTOMER_ID).isPresent());
+        }
+
+        // Then
+        Assertions.assertEquals(0, primary.getOpenedConnections());
+        Assertions.assertEquals(2, firstReplica.getOpenedConnections());
+        Assertions.assertEquals(2, secondReplica.getOpenedConnections());
+    }
+
+    @Test
+    @DisplayName("When a thread creates a customer then its reads stick to the primary until the stickiness window ends")
+    void testReadYourWritesStickiness() {
+        // Given
+        final var dao = buildDAO(buildRouter(firstReplica, secondReplica));
+        final var customerId = "STICK";
+        final var customer = CustomerMockFactory.customerDTO(customerId);
+
+        // When
+        dao.create(customer);
+        final var readWithinWindow = dao.getById(customerId);
+        ticker.addAndGet(STICKINESS.toNanos());
+        final var readAfterWindow = dao.getById(customerId);
+
+        // Then
+        Assertions.assertEquals(customerId, readWithinWindow.orElseThrow().getId());
+        Assertions.assertTrue(readAfterWindow.isEmpty());
+        Assertions.assertEquals(2, primary.getOpenedConnections());
+    }
+
+    @Test
+    @DisplayName("When a thread creates a customer through the write-behind buffer then it reads it back from the " +
+            "primary although the flusher thread wrote it")
+    void testReadYourWritesThroughWriteBehind() {
+        // Given
+        final var router = buildRouter(firstReplica, secondReplica);
+        final var customerId = "BEHND";
+
+        try (final var writeBehind = new WriteBehindCustomerDAO(
+                buildDAO(router), 10, 1, Duration.ofMillis(5), router::markWritten)) {
+            // When
+            writeBehind.create(CustomerMockFactory.customerDTO(customerId));
+            final var actual = writeBehind.getById(customerId);
+
+            // Then
+            Assertions.assertEquals(customerId, actual.orElseThrow().getId());
+            Assertions.assertEquals(0, firstReplica.getOpenedConnections() + secondReplica.getOpenedConnections());
+        }
+    }
+
+    @Test
+    @DisplayName("When a replica has a connection in flight then the next read goes to the least loaded replica")
+    // The connections are only held open
+    @SuppressWarnings("try")
+    void testLeastInFlightBalancing() throws SQLException {
+        // Given
+        final var router = buildRouter(firstReplica, secondReplica);
+
+        // When
+        try (final var held = router.readOnly().getConnection()) {
+            final int busy = router.getReplicaInFlight(0) == 1 ? 0 : 1;
+            for (int i = 0; i < 3; i++) {
+                try (final var conn = router.readOnly().getConnection()) {
+                    // Then
+                    Assertions.assertEquals(1, router.getReplicaInFlight(1 - busy));
+                    Assertions.assertEquals(1, router.getReplicaInFlight(busy));
+                }
+            }
+        }
+        Assertions.assertEquals(0, router.getReplicaInFlight(0));
+        Assertions.assertEquals(0, router.getReplicaInFlight(1));
+    }
+
+    @Test
+    @DisplayName("When a replica cannot be reached then it is marked down and reads fall back to the others until it recovers")
+    void testFailedReplicaIsMarkedDownAndRecovers() throws SQLException {
+        // Given
+        final var broken = Mockito.mock(DataSource.class);
+        Mockito.when(broken.getConnection())
+                .thenThrow(new SQLException("Connection refused", "08001"))
+                .thenAnswer(invocation -> firstReplica.getConnection());
+        final var router = buildRouter(broken, secondReplica);
+        final var dao = buildDAO(router);
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertTrue(dao.getById(CustomerMockFactory.EXISTING_CUSTOMER_ID).isPresent());
+        }
+
+        // Then
+        Assertions.assertFalse(router.isReplicaUp(0));
+        Assertions.assertEquals(3, secondReplica.getOpenedConnections());
+        Mockito.verify(broken, Mockito.times(1)).getConnection();
+
+        // When
+        router.checkHealth();
+
+        // Then
+        Assertions.assertTrue(router.isReplicaUp(0));
+    }
+
+    @Test
+    @DisplayName("When no replica is up then reads are served by the primary")
+    void testAllReplicasDownFallsBackToPrimary() throws SQLException {
+        // Given
+        final var broken = Mockito.mock(DataSource.class);
+        Mockito.when(broken.getConnection()).thenThrow(new SQLException("Connection refused", "08001"));
+        final var dao = buildDAO(buildRouter(broken));
+
+        // When
+        final var actual = dao.getById(CustomerMockFactory.EXISTING_CUSTOMER_ID);
+
+        // Then
+        Assertions.assertTrue(actual.isPresent());
+        Assertions.assertEquals(1, primary.getOpenedConnections());
+    }
+
+}
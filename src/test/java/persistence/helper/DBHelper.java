@@ -4,12 +4,19 @@ import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Iterator;
+import java.util.List;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 public class DBHelper {
 
+    private static final int SCRIPT_BATCH_SIZE = 1_000;
+    private static final String SNAPSHOT_SUFFIX = "_snapshot";
+
     private final DataSource dataSource;
     private final SQLReader sqlReader;
+    private List<String> snapshotTables = List.of();
 
     public DBHelper(DataSource dataSource, SQLReader sqlReader) {
         this.dataSource = dataSource;
@@ -26,14 +33,86 @@ public class DBHelper {
         });
     }
 
-    public boolean executeScript(String path) {
+    /**
+     * Runs every statement of the script in JDBC batches inside a single transaction, reading the file as it goes.
+     * Returns the number of statements executed.
+     */
+    public int executeScript(String path) {
         return doWithConnection(connection -> {
+            try (
+                    Stream<String> statements = sqlReader.statements(path);
+                    Statement stmt = connection.createStatement()
+            ) {
+                final boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                try {
+                    var executed = 0;
+                    var pending = 0;
+                    for (Iterator<String> it = statements.iterator(); it.hasNext(); ) {
+                        stmt.addBatch(it.next());
+                        if (++pending == SCRIPT_BATCH_SIZE) {
+                            stmt.executeBatch();
+                            executed += pending;
+                            pending = 0;
+                        }
+                    }
+                    if (pending > 0) stmt.executeBatch();
+                    connection.commit();
+                    return executed + pending;
+                } catch (SQLException | RuntimeException ex) {
+                    connection.rollback();
+                    throw ex;
+                } finally {
+                    connection.setAutoCommit(autoCommit);
+                }
+            } catch (SQLException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+    }
+
+    /**
+     * Copies the current rows of {@code tables} aside so {@link #restore()} can bring them back. Works on H2 and
+     * PostgreSQL alike; the schema itself is not captured, so tests must not alter it.
+     */
+    public void snapshot(String... tables) {
+        doWithConnection(connection -> {
+            try (Statement stmt = connection.createStatement()) {
+                for (String table : tables) {
+                    stmt.execute("drop table if exists " + table + SNAPSHOT_SUFFIX);
+                    stmt.execute("create table " + table + SNAPSHOT_SUFFIX + " as select * from " + table);
+                }
+                return null;
+            } catch (SQLException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+        snapshotTables = List.of(tables);
+    }
+
+    /**
+     * Replaces the rows of every table passed to {@link #snapshot(String...)} with the snapshotted ones.
+     */
+    public void restore() {
+        if (snapshotTables.isEmpty()) throw new IllegalStateException("No snapshot taken");
+        doWithConnection(connection -> {
             try (Statement stmt = connection.createStatement()) {
-                var result = true;
-                for (String s : sqlReader.readFile(path)) {
-                    result = result && stmt.execute(s);
+                final boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                try {
+                    for (String table : snapshotTables) {
+                        stmt.addBatch("truncate table " + table);
+                        stmt.addBatch("insert into " + table + " select * from " + table + SNAPSHOT_SUFFIX);
+                    }
+                    stmt.executeBatch();
+                    connection.commit();
+                } catch (SQLException ex) {
+                    connection.rollback();
+                    throw ex;
+                } finally {
+                    connection.setAutoCommit(autoCommit);
                 }
-                return result;
+                return null;
             } catch (SQLException ex) {
                 throw new RuntimeException(ex);
             }
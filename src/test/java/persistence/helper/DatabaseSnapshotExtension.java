@@ -0,0 +1,75 @@
+package persistence.helper;
+
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Seeds the database with a script before the first test of a class and snapshots the given tables, then restores
+ * that snapshot before every following test instead of re-running the script. Register it on a static field:
+ * <pre>
+ * &#64;RegisterExtension
+ * static final DatabaseSnapshotExtension DATABASE =
+ *         new DatabaseSnapshotExtension(() -&gt; DS, "./src/test/resources/customer-table.sql", "customer");
+ * </pre>
+ * The data source is only looked up before the first test, so it may be created in a {@code @BeforeAll} method.
+ * Seeding and restore times are logged after the class to compare both approaches.
+ */
+public class DatabaseSnapshotExtension implements BeforeEachCallback, AfterAllCallback {
+
+    private final Supplier<DataSource> dataSource;
+    private final String seedScript;
+    private final String[] tables;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private DBHelper helper;
+    private long seedNanos;
+    private long restoreNanos;
+    private int restores;
+
+    public DatabaseSnapshotExtension(Supplier<DataSource> dataSource, String seedScript, String... tables) {
+        this.dataSource = dataSource;
+        this.seedScript = seedScript;
+        this.tables = tables;
+    }
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        final long started = System.nanoTime();
+        if (helper == null) {
+            helper = new DBHelper(dataSource.get(), SQLReader.ofSemicolon());
+            helper.executeScript(seedScript);
+            helper.snapshot(tables);
+            seedNanos = System.nanoTime() - started;
+        } else {
+            helper.restore();
+            restoreNanos += System.nanoTime() - started;
+            restores++;
+        }
+    }
+
+    @Override
+    public void afterAll(ExtensionContext context) {
+        if (helper == null) return;
+        logger.info("{}: seeding with {} took {} ms, {} restores took {} ms on average",
+                context.getDisplayName(), seedScript, millis(seedNanos), restores,
+                restores == 0 ? 0 : millis(restoreNanos / restores));
+        helper = null;
+        restoreNanos = 0;
+        restores = 0;
+    }
+
+    public DBHelper getHelper() {
+        return helper;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+}
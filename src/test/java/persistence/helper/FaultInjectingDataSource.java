@@ -0,0 +1,87 @@
+package persistence.helper;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Makes the next {@code getConnection()} calls fail with a given SQLState, like a database that is restarting or
+ * failing over would.
+ */
+public class FaultInjectingDataSource implements DataSource {
+
+    private final DataSource dataSource;
+    private final AtomicInteger attempts = new AtomicInteger();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private volatile String sqlState;
+
+    public FaultInjectingDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public void failNext(int count, String sqlState) {
+        this.sqlState = sqlState;
+        failuresLeft.set(count);
+    }
+
+    /**
+     * Number of {@code getConnection()} calls, failed ones included.
+     */
+    public int getAttempts() {
+        return attempts.get();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        attempts.incrementAndGet();
+        if (failuresLeft.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+            throw new SQLException("Injected failure", sqlState);
+        }
+        return dataSource.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return dataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        dataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        dataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return dataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return dataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return dataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return dataSource.isWrapperFor(iface);
+    }
+
+}
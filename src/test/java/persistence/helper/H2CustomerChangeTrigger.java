@@ -0,0 +1,51 @@
+package persistence.helper;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * H2 stand-in for the PL/pgSQL {@code customer_change_capture} trigger of {@code docker/30_Outbox.sql}, installed
+ * by {@code customer-outbox.sql}.
+ */
+public class H2CustomerChangeTrigger implements Trigger {
+
+    private static final String INSERT_SQL = "insert into customer_change (customer_id, company_name, " +
+            "contact_name, contact_title, address, city, region, postal_code, country, phone, fax, operation) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?);";
+
+    private static final int COLUMNS = 11;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before,
+                     int type) {
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        final String operation;
+        final Object[] row;
+        if (newRow == null) {
+            operation = "D";
+            row = oldRow;
+        } else {
+            operation = oldRow == null ? "I" : "U";
+            row = newRow;
+        }
+        try (final var stmt = conn.prepareStatement(INSERT_SQL)) {
+            for (int i = 0; i < COLUMNS; i++) stmt.setObject(i + 1, row[i]);
+            stmt.setString(COLUMNS + 1, operation);
+            stmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void remove() {
+    }
+
+}
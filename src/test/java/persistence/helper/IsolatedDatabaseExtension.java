@@ -0,0 +1,79 @@
+package persistence.helper;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Gives a test class a database nobody else uses, so classes can run concurrently: a uniquely named H2 in-memory
+ * database, or a dedicated schema of a PostgreSQL database. Register it on a static field and read
+ * {@link #getDataSource()} from {@code @BeforeAll}; the database is created on that first call and dropped after
+ * the class.
+ */
+public class IsolatedDatabaseExtension implements AfterAllCallback {
+
+    private static final String H2_URL = "jdbc:h2:mem:%s;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private final Supplier<DataSource> factory;
+    private final String dropSql;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private DataSource dataSource;
+
+    private IsolatedDatabaseExtension(Supplier<DataSource> factory, String dropSql) {
+        this.factory = factory;
+        this.dropSql = dropSql;
+    }
+
+    public static IsolatedDatabaseExtension h2() {
+        final var name = "test_" + uniqueSuffix();
+        return new IsolatedDatabaseExtension(() -> {
+            final var ds = new JdbcDataSource();
+            ds.setUrl(String.format(H2_URL, name));
+            return ds;
+        }, "shutdown");
+    }
+
+    /**
+     * @param server creates a data source for the server; called once, after which the schema is created in it
+     *               and every connection of the returned data source uses it
+     */
+    public static IsolatedDatabaseExtension postgres(Supplier<PGSimpleDataSource> server) {
+        final var schema = "test_" + uniqueSuffix();
+        return new IsolatedDatabaseExtension(() -> {
+            final var ds = server.get();
+            new DBHelper(ds, SQLReader.ofSemicolon()).execute("create schema " + schema);
+            ds.setCurrentSchema(schema);
+            return ds;
+        }, "drop schema if exists " + schema + " cascade");
+    }
+
+    public synchronized DataSource getDataSource() {
+        if (dataSource == null) dataSource = factory.get();
+        return dataSource;
+    }
+
+    @Override
+    public synchronized void afterAll(ExtensionContext context) {
+        if (dataSource == null) return;
+        try (final var conn = dataSource.getConnection(); final var stmt = conn.createStatement()) {
+            stmt.execute(dropSql);
+        } catch (SQLException ex) {
+            // The server may already be gone, e.g. a container stopped in @AfterAll
+            logger.debug("Could not drop isolated database of {}", context.getDisplayName(), ex);
+        }
+        dataSource = null;
+    }
+
+    private static String uniqueSuffix() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+
+}
@@ -1,37 +1,53 @@
 package persistence.helper;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class SQLReader {
 
-    private static final String SEMICOLON = ";$";
+    private static final char SEMICOLON = ';';
 
     public static SQLReader ofSemicolon() {
         return new SQLReader(SEMICOLON);
     }
 
-    private final String stmtDelimiterRegex;
+    private final char delimiter;
 
-    public SQLReader(String stmtDelimiterRegex) {
-        this.stmtDelimiterRegex = stmtDelimiterRegex;
+    public SQLReader(char delimiter) {
+        this.delimiter = delimiter;
     }
 
     public List<String> readFile(String path) {
+        try (final var statements = statements(path)) {
+            return statements.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Statements of the script, read lazily as the stream is consumed. The stream must be closed to release the file.
+     */
+    public Stream<String> statements(String path) {
+        final FileChannel channel;
         try {
-            return List.of(
-                    Files.readAllLines(Path.of(path))
-                            .stream()
-                            .filter(line -> !line.isBlank() && !line.startsWith("--"))
-                            .collect(Collectors.joining("\n"))
-                            .split(stmtDelimiterRegex)
-            );
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+            channel = FileChannel.open(Path.of(path), StandardOpenOption.READ);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
         }
+        final var tokenizer = new SQLScriptTokenizer(
+                Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), -1), delimiter);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(tokenizer, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(tokenizer::close);
     }
 
 }
@@ -0,0 +1,98 @@
+package persistence.helper;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+@DisplayName("Unit tests for the streaming SQL script reader")
+public class SQLReaderTest {
+
+    private static List<String> tokenize(String script) {
+        final var statements = new ArrayList<String>();
+        try (final var tokenizer = new SQLScriptTokenizer(new StringReader(script), ';')) {
+            tokenizer.forEachRemaining(statements::add);
+        }
+        return statements;
+    }
+
+    @Test
+    @DisplayName("When the test schema is read then every statement should be returned without its delimiter")
+    void testReadFile() {
+        // Given
+        final var reader = SQLReader.ofSemicolon();
+
+        // When
+        final var actual = reader.readFile("./src/test/resources/customer-table.sql");
+
+        // Then
+        Assertions.assertEquals(4, actual.size());
+        Assertions.assertEquals("DROP TABLE IF EXISTS customer", actual.get(0));
+        Assertions.assertTrue(actual.get(3).startsWith("INSERT INTO customer VALUES ('ALFKI'"));
+    }
+
+    @Test
+    @DisplayName("When a delimiter is inside a string literal or quoted identifier then it should not split the statement")
+    void testDelimiterInsideQuotes() {
+        // Given
+        final var script = "insert into t values ('a;b', 'it''s; fine', E'back\\'; slash');\n" +
+                "select \"odd;name\" from t;";
+
+        // When
+        final var actual = tokenize(script);
+
+        // Then
+        Assertions.assertEquals(List.of(
+                "insert into t values ('a;b', 'it''s; fine', E'back\\'; slash')",
+                "select \"odd;name\" from t"
+        ), actual);
+    }
+
+    @Test
+    @DisplayName("When a statement has a dollar-quoted body then delimiters inside it should be kept")
+    void testDollarQuoting() {
+        // Given
+        final var script = "create function f() returns trigger as $body$ begin perform 1; return new; end; $body$ " +
+                "language plpgsql;\n" +
+                "do $$ begin raise notice '$1;'; end $$;\n" +
+                "prepare p as select $1;";
+
+        // When
+        final var actual = tokenize(script);
+
+        // Then
+        Assertions.assertEquals(3, actual.size());
+        Assertions.assertTrue(actual.get(0).endsWith("end; $body$ language plpgsql"));
+        Assertions.assertEquals("do $$ begin raise notice '$1;'; end $$", actual.get(1));
+        Assertions.assertEquals("prepare p as select $1", actual.get(2));
+    }
+
+    @Test
+    @DisplayName("When the script has comments then they should be dropped and blank statements skipped")
+    void testComments() {
+        // Given
+        final var script = "-- header; with a delimiter\n" +
+                "select 1 /* inline; /* nested; */ still comment */ + 2;\n" +
+                ";\n" +
+                "select 3 - 1; -- trailing\n";
+
+        // When
+        final var actual = tokenize(script);
+
+        // Then
+        Assertions.assertEquals(2, actual.size());
+        Assertions.assertEquals("select 1   + 2", actual.get(0));
+        Assertions.assertEquals("select 3 - 1", actual.get(1));
+    }
+
+    @Test
+    @DisplayName("When a string literal is never closed then reading should fail")
+    void testUnterminatedLiteral() {
+        // When - Then
+        Assertions.assertThrows(IllegalArgumentException.class, () -> tokenize("select 'oops;"));
+    }
+
+}
@@ -0,0 +1,227 @@
+package persistence.helper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Splits a SQL script into statements while reading it, without holding more than the current statement in
+ * memory. Delimiters inside 'string literals' (including E'...' backslash escapes), "quoted identifiers",
+ * $tag$ dollar-quoted bodies$tag$, -- line comments and nested block comments are ignored. Comments are
+ * dropped from the returned statements, and blank statements are skipped.
+ */
+public class SQLScriptTokenizer implements Iterator<String>, Closeable {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final Reader reader;
+    private final char delimiter;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder statement = new StringBuilder();
+    private int position;
+    private int limit;
+    private int pushedBack = -1;
+    private String next;
+    private boolean finished;
+
+    public SQLScriptTokenizer(Reader reader, char delimiter) {
+        this.reader = reader;
+        this.delimiter = delimiter;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && !finished) next = readStatement();
+        return next != null;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        final var result = next;
+        next = null;
+        return result;
+    }
+
+    @Override
+    public void close() {
+        try {
+            reader.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    // Returns null for a blank statement, which hasNext skips
+    private String readStatement() {
+        statement.setLength(0);
+        int c;
+        while ((c = read()) != -1) {
+            if (c == delimiter) return flush();
+            switch (c) {
+                case '\'':
+                    final boolean escapes = endsWithEscapePrefix();
+                    statement.append('\'');
+                    readQuoted('\'', escapes);
+                    break;
+                case '"':
+                    statement.append('"');
+                    readQuoted('"', false);
+                    break;
+                case '-':
+                    if (peek() == '-') {
+                        skipLineComment();
+                    } else {
+                        statement.append('-');
+                    }
+                    break;
+                case '/':
+                    if (peek() == '*') {
+                        read();
+                        skipBlockComment();
+                    } else {
+                        statement.append('/');
+                    }
+                    break;
+                case '$':
+                    statement.append('$');
+                    readDollarQuoted();
+                    break;
+                default:
+                    statement.append((char) c);
+            }
+        }
+        finished = true;
+        return flush();
+    }
+
+    private String flush() {
+        final var sql = statement.toString().strip();
+        return sql.isEmpty() ? null : sql;
+    }
+
+    // E'...' only when the E is a token of its own, not the end of an identifier like "name'"
+    private boolean endsWithEscapePrefix() {
+        final int length = statement.length();
+        if (length == 0) return false;
+        final char last = statement.charAt(length - 1);
+        if (last != 'E' && last != 'e') return false;
+        return length == 1 || !isIdentifierPart(statement.charAt(length - 2));
+    }
+
+    private void readQuoted(char quote, boolean backslashEscapes) {
+        int c;
+        while ((c = read()) != -1) {
+            statement.append((char) c);
+            if (backslashEscapes && c == '\\') {
+                c = read();
+                if (c == -1) break;
+                statement.append((char) c);
+            } else if (c == quote) {
+                // A doubled quote is an escaped quote, anything else ends the literal
+                if (peek() != quote) return;
+                statement.append((char) read());
+            }
+        }
+        throw new IllegalArgumentException("Unterminated " + quote + " quoted text in SQL script");
+    }
+
+    // Called after '$': either the opening $tag$ of a dollar-quoted body, or a positional parameter such as $1
+    private void readDollarQuoted() {
+        if (statement.length() > 1 && isIdentifierPart(statement.charAt(statement.length() - 2))) return;
+        final var tag = new StringBuilder("$");
+        int c = peek();
+        if (c != -1 && Character.isDigit(c)) return;
+        while ((c = read()) != -1 && c != '$') {
+            if (!isIdentifierPart((char) c)) {
+                statement.append(tag, 1, tag.length());
+                unread(c);
+                return;
+            }
+            tag.append((char) c);
+        }
+        if (c == -1) {
+            statement.append(tag, 1, tag.length());
+            return;
+        }
+        tag.append('$');
+        statement.append(tag, 1, tag.length());
+
+        final var closing = tag.toString();
+        int matched = 0;
+        while ((c = read()) != -1) {
+            statement.append((char) c);
+            if (c == closing.charAt(matched)) {
+                if (++matched == closing.length()) return;
+            } else {
+                matched = c == '$' ? 1 : 0;
+            }
+        }
+        throw new IllegalArgumentException("Unterminated " + closing + " dollar-quoted text in SQL script");
+    }
+
+    private void skipLineComment() {
+        int c;
+        while ((c = read()) != -1 && c != '\n') {
+            // skip
+        }
+        statement.append('\n');
+    }
+
+    private void skipBlockComment() {
+        int depth = 1;
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '*' && peek() == '/') {
+                read();
+                if (--depth == 0) {
+                    statement.append(' ');
+                    return;
+                }
+            } else if (c == '/' && peek() == '*') {
+                read();
+                depth++;
+            }
+        }
+        throw new IllegalArgumentException("Unterminated block comment in SQL script");
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private int peek() {
+        final int c = read();
+        if (c != -1) unread(c);
+        return c;
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+    }
+
+    private int read() {
+        if (pushedBack != -1) {
+            final int c = pushedBack;
+            pushedBack = -1;
+            return c;
+        }
+        if (position == limit) {
+            try {
+                limit = reader.read(buffer, 0, buffer.length);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+}
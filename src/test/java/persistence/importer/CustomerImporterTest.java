@@ -0,0 +1,155 @@
+package persistence.importer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import persistence.csv.CustomerCsv;
+import persistence.dao.CustomerDAO;
+import persistence.dto.CustomerDTO;
+import persistence.helper.DatabaseSnapshotExtension;
+import persistence.helper.IsolatedDatabaseExtension;
+import persistence.mock.CustomerMockFactory;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@DisplayName("Import pipeline tests using H2 in-memory Database")
+public class CustomerImporterTest {
+
+    private static final int VALID_ROWS = 300;
+    private static final long CHUNK_SIZE = 1024;
+    private static DataSource DS;
+
+    @RegisterExtension
+    static final IsolatedDatabaseExtension ISOLATED_DATABASE = IsolatedDatabaseExtension.h2();
+
+    @RegisterExtension
+    static final DatabaseSnapshotExtension DATABASE =
+            new DatabaseSnapshotExtension(() -> DS, "./src/test/resources/customer-table.sql", "customer");
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    static void setUp() {
+        DS = ISOLATED_DATABASE.getDataSource();
+    }
+
+    // VALID_ROWS new customers (one with a quoted line break), the existing ALFKI and two rows breaking the DDL
+    private Path writeFile() throws IOException {
+        final var sb = new StringBuilder();
+        for (int i = 0; i < VALID_ROWS; i++) {
+            final var address = i == 150 ? "Line one\nLine two" : "Street " + i;
+            CustomerCsv.appendRow(sb, new CustomerDTO(String.format("IM%03d", i), "Company " + i, null, null,
+                    address, "Buenos Aires", null, null, "Argentina", null, null));
+        }
+        CustomerCsv.appendRow(sb, CustomerMockFactory.customerDTO(CustomerMockFactory.EXISTING_CUSTOMER_ID));
+        CustomerCsv.appendRow(sb, new CustomerDTO("BAD01", "Company", null, null, null,
+                "A city name that is far too long", null, null, null, null, null));
+        CustomerCsv.appendRow(sb, new CustomerDTO("BAD02", null, null, null, null, null, null, null, null, null, null));
+        final var file = tempDir.resolve("customers.csv");
+        Files.writeString(file, sb, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    @Test
+    @DisplayName("When a file is imported then valid rows should be created, existing ones reported as duplicates " +
+            "and invalid ones rejected with their line")
+    void testImportFile() throws IOException {
+        // Given
+        final var dao = new CustomerDAO(DS);
+        final var importer = new CustomerImporter(dao, 4, CHUNK_SIZE, 50);
+        final var file = writeFile();
+        final var checkpoint = tempDir.resolve("customers.checkpoint");
+        final var progress = new ArrayList<ImportProgress>();
+
+        // When
+        final var actual = importer.importFile(file, checkpoint, progress::add);
+
+        // Then
+        Assertions.assertTrue(actual.getChunks() > 1);
+        Assertions.assertEquals(VALID_ROWS, actual.getCreated());
+        Assertions.assertEquals(1, actual.getDuplicates());
+        Assertions.assertEquals(2, actual.getRejected());
+        Assertions.assertEquals(List.of(303L, 304L), actual.getRejections().stream().map(Rejection::getLine).sorted()
+                .collect(Collectors.toList()));
+        Assertions.assertEquals("Line one\nLine two", dao.getById("IM150").orElseThrow().getAddress());
+        Assertions.assertEquals(actual.getChunks(), progress.size());
+        Assertions.assertEquals(1.0, progress.stream().mapToDouble(ImportProgress::getFraction).max().orElse(0));
+        Assertions.assertFalse(Files.exists(checkpoint));
+    }
+
+    @Test
+    @DisplayName("When a checkpoint lists a chunk as committed then the import should skip that chunk")
+    void testResumeFromCheckpoint() throws IOException {
+        // Given
+        final var dao = new CustomerDAO(DS);
+        final var importer = new CustomerImporter(dao, 2, CHUNK_SIZE, 50);
+        final var file = writeFile();
+        final var checkpoint = tempDir.resolve("customers.checkpoint");
+        try (final var previousRun = Checkpoint.open(checkpoint, Files.size(file), CHUNK_SIZE)) {
+            previousRun.markCompleted(0);
+        }
+
+        // When
+        final var actual = importer.importFile(file, checkpoint, ImportProgressListener.NONE);
+
+        // Then
+        Assertions.assertEquals(1, actual.getResumedChunks());
+        Assertions.assertTrue(actual.getCreated() < VALID_ROWS);
+        Assertions.assertTrue(dao.getById("IM000").isEmpty());
+        Assertions.assertTrue(dao.getById("IM299").isPresent());
+    }
+
+    @Test
+    @DisplayName("When the checkpoint was written for another file then the import should refuse to start")
+    void testCheckpointOfAnotherFile() throws IOException {
+        // Given
+        final var importer = new CustomerImporter(new CustomerDAO(DS), 2, CHUNK_SIZE, 50);
+        final var file = writeFile();
+        final var checkpoint = tempDir.resolve("customers.checkpoint");
+        Files.writeString(checkpoint, "customer-import 1 1\n0\n");
+
+        // When - Then
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> importer.importFile(file, checkpoint, ImportProgressListener.NONE));
+    }
+
+    @Test
+    @DisplayName("When a record in the middle of a chunk is malformed then only that record should be rejected")
+    void testMalformedRecordInsideChunk() throws IOException {
+        // Given
+        final var dao = new CustomerDAO(DS);
+        // One chunk for the whole file, so the malformed record is followed by others of the same chunk
+        final var importer = new CustomerImporter(dao, 2, 64 * 1024, 50);
+        final var sb = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            if (i == 10) sb.append("BAD03,\"Company\"Inc,,,\"Quoted, with a comma\",,,,,,\n");
+            CustomerCsv.appendRow(sb, new CustomerDTO(String.format("MF%03d", i), "Company " + i, null, null,
+                    "Street " + i, "Buenos Aires", null, null, "Argentina", null, null));
+        }
+        final var file = tempDir.resolve("malformed.csv");
+        Files.writeString(file, sb, StandardCharsets.UTF_8);
+
+        // When
+        final var actual = importer.importFile(file, tempDir.resolve("malformed.checkpoint"),
+                ImportProgressListener.NONE);
+
+        // Then
+        Assertions.assertEquals(1, actual.getChunks());
+        Assertions.assertEquals(20, actual.getCreated());
+        Assertions.assertEquals(1, actual.getRejected());
+        Assertions.assertEquals(11, actual.getRejections().get(0).getLine());
+        Assertions.assertTrue(dao.getById("MF019").isPresent());
+    }
+
+}
@@ -0,0 +1,84 @@
+package persistence.loadgen;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Random;
+
+@DisplayName("Load generator key distribution and options tests")
+public class ZipfianGeneratorTest {
+
+    private static final int SAMPLES = 200_000;
+
+    @Test
+    @DisplayName("When drawing many ranks then they are in range and each rank is drawn more often than the next")
+    void zipfianRanks() {
+        // Given
+        final var generator = new ZipfianGenerator(1_000, 0.99, false);
+        final var random = new Random(42);
+        final var counts = new int[1_000];
+
+        // When
+        for (int i = 0; i < SAMPLES; i++) counts[(int) generator.next(random)]++;
+
+        // Then
+        Assertions.assertTrue(counts[0] > counts[1]);
+        Assertions.assertTrue(counts[1] > counts[2]);
+        Assertions.assertTrue(counts[2] > counts[10]);
+        Assertions.assertTrue(counts[10] > counts[999]);
+        // P(0) / P(1) = 2^skew
+        Assertions.assertEquals(Math.pow(2, 0.99), counts[0] / (double) counts[1], 0.1);
+    }
+
+    @Test
+    @DisplayName("When scrambling then every rank maps to a different key in range")
+    void scrambledPermutation() {
+        // Given
+        final var generator = new ZipfianGenerator(10_007, 0.5, true);
+        final var keys = new HashSet<Long>();
+
+        // When
+        for (long rank = 0; rank < generator.getItems(); rank++) keys.add(generator.key(rank));
+
+        // Then
+        Assertions.assertEquals(generator.getItems(), keys.size());
+        Assertions.assertTrue(keys.stream().allMatch(key -> key >= 0 && key < generator.getItems()));
+        Assertions.assertNotEquals(1L, generator.key(1));
+    }
+
+    @Test
+    @DisplayName("When the skew is not between 0 and 1 then it is rejected")
+    void invalidSkew() {
+        // When - Then
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ZipfianGenerator(100, 1, false));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ZipfianGenerator(100, 0, false));
+    }
+
+    @Test
+    @DisplayName("When parsing options then the given ones override the defaults")
+    void parseOptions() {
+        // When
+        final var options = LoadOptions.parse("--rate=250", "--duration=2m", "--warmup=500ms",
+                "--mix=getById=80,create=20", "--arrivals=uniform");
+
+        // Then
+        Assertions.assertEquals(250, options.getRate());
+        Assertions.assertEquals(Duration.ofMinutes(2), options.getDuration());
+        Assertions.assertEquals(Duration.ofMillis(500), options.getWarmup());
+        Assertions.assertEquals(80, options.getMix().get(Operation.GET_BY_ID).intValue());
+        Assertions.assertEquals(20, options.getMix().get(Operation.CREATE).intValue());
+        Assertions.assertFalse(options.isPoisson());
+        Assertions.assertEquals(LoadOptions.H2_URL, options.getUrl());
+    }
+
+    @Test
+    @DisplayName("When an option is unknown then it is rejected")
+    void unknownOption() {
+        // When - Then
+        Assertions.assertThrows(IllegalArgumentException.class, () -> LoadOptions.parse("--rte=250"));
+    }
+
+}
@@ -0,0 +1,102 @@
+package persistence.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import persistence.dao.CustomerDAO;
+import persistence.helper.DatabaseSnapshotExtension;
+import persistence.helper.IsolatedDatabaseExtension;
+import persistence.mock.CustomerMockFactory;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@DisplayName("Statement instrumentation tests using H2 in-memory Database")
+public class StatementInstrumentationTest {
+
+    private static DataSource DS;
+
+    @RegisterExtension
+    static final IsolatedDatabaseExtension ISOLATED_DATABASE = IsolatedDatabaseExtension.h2();
+
+    @RegisterExtension
+    static final DatabaseSnapshotExtension DATABASE =
+            new DatabaseSnapshotExtension(() -> DS, "./src/test/resources/customer-table.sql", "customer");
+
+    @BeforeAll
+    static void setUp() {
+        DS = ISOLATED_DATABASE.getDataSource();
+    }
+
+    @Test
+    @DisplayName("When getById finds a customer then every phase, the operation and the rows should be recorded")
+    void testGetByIdRecordsPhases() {
+        // Given
+        final var registry = new InMemoryMetricsRegistry();
+        final var dao = new CustomerDAO(DS, new StatementInstrumentation("customer.dao", registry, Duration.ZERO));
+
+        // When
+        dao.getById(CustomerMockFactory.EXISTING_CUSTOMER_ID);
+
+        // Then
+        final var timers = registry.getTimers();
+        for (Phase phase : Phase.values()) {
+            final var key = "customer.dao.phase{operation=getById,phase=" + phase.getTag() + "}";
+            Assertions.assertEquals(1, timers.get(key).getCount(), key);
+        }
+        Assertions.assertEquals(1, timers.get("customer.dao.operation{operation=getById,outcome=success}").getCount());
+        Assertions.assertEquals(1, registry.getCounters().get("customer.dao.rows{operation=getById}").getCount());
+    }
+
+    @Test
+    @DisplayName("When a statement fails then the error should be counted by SQLState")
+    void testFailureCountedBySqlState() {
+        // Given
+        final var registry = new InMemoryMetricsRegistry();
+        final var dao = new CustomerDAO(DS, new StatementInstrumentation("customer.dao", registry, Duration.ZERO));
+        final var duplicate = CustomerMockFactory.customerDTO(CustomerMockFactory.EXISTING_CUSTOMER_ID);
+
+        // When
+        Assertions.assertThrows(RuntimeException.class, () -> dao.create(duplicate));
+
+        // Then
+        Assertions.assertEquals(1, registry.getCounters().get("customer.dao.errors{operation=create,sqlstate=23505}").getCount());
+        Assertions.assertEquals(1, registry.getTimers().get("customer.dao.operation{operation=create,outcome=error}").getCount());
+    }
+
+    @Test
+    @DisplayName("When a stream is consumed and closed then its rows should be recorded once")
+    void testStreamRecordedOnClose() {
+        // Given
+        final var registry = new InMemoryMetricsRegistry();
+        final var dao = new CustomerDAO(DS, new StatementInstrumentation("customer.dao", registry, Duration.ZERO));
+
+        // When
+        final List<String> ids;
+        try (final var customers = dao.streamAll()) {
+            ids = customers.map(c -> c.getId()).collect(Collectors.toList());
+        }
+
+        // Then
+        Assertions.assertEquals(ids.size(), registry.getCounters().get("customer.dao.rows{operation=stream}").getCount());
+        Assertions.assertEquals(1, registry.getTimers().get("customer.dao.operation{operation=stream,outcome=success}").getCount());
+    }
+
+    @Test
+    @DisplayName("When instrumentation is disabled then start should hand out the shared no-op operation")
+    void testDisabledIsNoop() {
+        // Given
+        final var instrumentation = new StatementInstrumentation("customer.dao", MetricsRegistry.noop(), Duration.ZERO);
+
+        // When
+        final var op = instrumentation.start("getById");
+
+        // Then
+        Assertions.assertSame(StatementInstrumentation.Operation.NOOP, op);
+    }
+
+}
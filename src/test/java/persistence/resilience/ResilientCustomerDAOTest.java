@@ -0,0 +1,292 @@
+package persistence.resilience;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.Mockito;
+import persistence.dao.CustomerDAO;
+import persistence.dao.CustomerRepository;
+import persistence.helper.DatabaseSnapshotExtension;
+import persistence.helper.FaultInjectingDataSource;
+import persistence.helper.IsolatedDatabaseExtension;
+import persistence.mock.CustomerMockFactory;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@DisplayName("Resilience tests using H2 in-memory Database with injected faults")
+public class ResilientCustomerDAOTest {
+
+    private static final Duration BASE_DELAY = Duration.ofMillis(10);
+    private static final Duration OPEN_DURATION = Duration.ofSeconds(10);
+
+    private static DataSource DS;
+
+    @RegisterExtension
+    static final IsolatedDatabaseExtension ISOLATED_DATABASE = IsolatedDatabaseExtension.h2();
+
+    @RegisterExtension
+    static final DatabaseSnapshotExtension DATABASE =
+            new DatabaseSnapshotExtension(() -> DS, "./src/test/resources/customer-table.sql", "customer");
+
+    private final AtomicLong ticker = new AtomicLong();
+    private final List<Long> sleeps = new ArrayList<>();
+    private FaultInjectingDataSource faultyDS;
+
+    @BeforeAll
+    static void setUp() {
+        DS = ISOLATED_DATABASE.getDataSource();
+    }
+
+    @BeforeEach
+    void wrapDataSource() {
+        faultyDS = new FaultInjectingDataSource(DS);
+    }
+
+    private static ResilienceConfig config() {
+        final var config = new ResilienceConfig();
+        config.setRetryBaseDelay(BASE_DELAY);
+        config.setRetryMaxDelay(Duration.ofMillis(15));
+        config.setSlidingWindowSize(4);
+        config.setMinimumCalls(4);
+        config.setOpenDuration(OPEN_DURATION);
+        config.setHalfOpenCalls(1);
+        return config;
+    }
+
+    private ResilientCustomerDAO buildDAO(CustomerRepository delegate, ResilienceConfig config) {
+        // Jitter of 1 always waits the whole backoff, so the delays can be asserted
+        return new ResilientCustomerDAO(delegate, config, ticker::get, sleeps::add, () -> 1.0);
+    }
+
+    @Test
+    @DisplayName("When a read fails with a transient error then it should be retried with capped exponential backoff")
+    void testTransientReadIsRetried() {
+        // Given
+        final var dao = buildDAO(new CustomerDAO(faultyDS), config());
+        faultyDS.failNext(2, "08006");
+
+        // When
+        final var actual = dao.getById(CustomerMockFactory.EXISTING_CUSTOMER_ID);
+
+        // Then
+        Assertions.assertTrue(actual.isPresent());
+        Assertions.assertEquals(3, faultyDS.getAttempts());
+        Assertions.assertEquals(List.of(BASE_DELAY.toNanos(), Duration.ofMillis(15).toNanos()), sleeps);
+        Assertions.assertEquals(2, dao.getRetryCount());
+    }
+
+    @Test
+    @DisplayName("When a read keeps failing then it should give up after the maximum attempts")
+    void testRetriesAreBounded() {
+        // Given
+        final var dao = buildDAO(new CustomerDAO(faultyDS), config());
+        faultyDS.failNext(10, "57P03");
+
+        // When
+        final var actual = Assertions.assertThrows(RuntimeException.class,
+                () -> dao.getById(CustomerMockFactory.EXISTING_CUSTOMER_ID));
+
+        // Then
+        Assertions.assertEquals("57P03", ((SQLException) actual.getCause()).getSQLState());
+        Assertions.assertEquals(3, faultyDS.getAttempts());
+    }
+
+    @Test
+    @DisplayName("When a read fails with a permanent error then it should not be retried")
+    void testPermanentErrorIsNotRetried() {
+        // Given
+        final var dao = buildDAO(new CustomerDAO(faultyDS), config());
+        faultyDS.failNext(1, "42501");
+
+        // When
+        Assertions.assertThrows(RuntimeException.class, () -> dao.getById(CustomerMockFactory.EXISTING_CUSTOMER_ID));
+
+        // Then
+        Assertions.assertEquals(1, faultyDS.getAttempts());
+        Assertions.assertTrue(sleeps.isEmpty());
+    }
+
+    @Test
+    @DisplayName("When a write fails with a transient error then it should not be retried")
+    void testWriteIsNotRetried() {
+        // Given
+        final var dao = buildDAO(new CustomerDAO(faultyDS), config());
+        faultyDS.failNext(1, "08006");
+
+        // When
+        Assertions.assertThrows(RuntimeException.class, () -> dao.create(CustomerMockFactory.customerDTO("GUERR")));
+
+        // Then
+        Assertions.assertEquals(1, faultyDS.getAttempts());
+        Assertions.assertTrue(dao.getById("GUERR").isEmpty());
+    }
+
+    @Test
+    @DisplayName("When most recent calls fail then the circuit opens, and closes again after a successful trial")
+    void testCircuitOpensOnFailureRate() {
+        // Given
+        final var config = config();
+        config.setMaxAttempts(1);
+        final var dao = buildDAO(new CustomerDAO(faultyDS), config);
+        faultyDS.failNext(4, "08006");
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertThrows(RuntimeException.class,
+                    () -> dao.getById(CustomerMockFactory.EXISTING_CUSTOMER_ID));
+        }
+
+        // When
+        Assertions.assertThrows(CircuitOpenException.class,
+                () -> dao.getById(CustomerMockFactory.EXISTING_CUSTOMER_ID));
+        final int attemptsWhileOpen = faultyDS.getAttempts();
+        ticker.addAndGet(OPEN_DURATION.toNanos());
+        final var afterOpenDuration = dao.getById(CustomerMockFactory.EXISTING_CUSTOMER_ID);
+
+        // Then
+        Assertions.assertEquals(4, attemptsWhileOpen);
+        Assertions.assertTrue(afterOpenDuration.isPresent());
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, dao.getCircuitBreaker().getState());
+        Assertions.assertEquals(1, dao.getRejectionCount());
+    }
+
+    @Test
+    @DisplayName("When most recent calls are slow then the circuit opens even though they succeed")
+    void testCircuitOpensOnSlowCalls() {
+        // Given
+        final var delegate = Mockito.mock(CustomerRepository.class);
+        Mockito.when(delegate.getById(Mockito.any(String.class))).thenAnswer(invocation -> {
+            ticker.addAndGet(Duration.ofSeconds(3).toNanos());
+            return Optional.empty();
+        });
+        final var dao = buildDAO(delegate, config());
+
+        // When
+        for (int i = 0; i < 4; i++) dao.getById(CustomerMockFactory.EXISTING_CUSTOMER_ID);
+
+        // Then
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, dao.getCircuitBreaker().getState());
+        Assertions.assertThrows(CircuitOpenException.class,
+                () -> dao.getById(CustomerMockFactory.EXISTING_CUSTOMER_ID));
+    }
+
+    @Test
+    @DisplayName("When the concurrency limit is reached then further calls should be shed right away")
+    void testLoadIsShed() throws Exception {
+        // Given
+        final var config = config();
+        config.setInitialLimit(1);
+        config.setMaxLimit(1);
+        final var entered = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+        final var delegate = Mockito.mock(CustomerRepository.class);
+        Mockito.when(delegate.getById(Mockito.any(String.class))).thenAnswer(invocation -> {
+            entered.countDown();
+            release.await();
+            return Optional.empty();
+        });
+        final var dao = buildDAO(delegate, config);
+        final var running = CompletableFuture.runAsync(() -> dao.getById(CustomerMockFactory.EXISTING_CUSTOMER_ID));
+        Assertions.assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        // When
+        final var actual = Assertions.assertThrows(RejectedExecutionException.class,
+                () -> dao.getById(CustomerMockFactory.EXISTING_CUSTOMER_ID));
+
+        // Then
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        Assertions.assertFalse(actual instanceof CircuitOpenException);
+        Assertions.assertEquals(1, dao.getRejectionCount());
+        Assertions.assertEquals(0, dao.getLimiter().getInFlight());
+        Mockito.verify(delegate, Mockito.times(1)).getById(Mockito.any(String.class));
+    }
+
+    @Test
+    @DisplayName("When the delegate throws an Error then the concurrency slot should still be given back")
+    void testErrorReleasesSlot() {
+        // Given
+        final var delegate = Mockito.mock(CustomerRepository.class);
+        Mockito.when(delegate.getById(Mockito.any(String.class))).thenThrow(new StackOverflowError());
+        final var dao = buildDAO(delegate, config());
+
+        // When
+        Assertions.assertThrows(StackOverflowError.class, () -> dao.getById(CustomerMockFactory.EXISTING_CUSTOMER_ID));
+
+        // Then
+        Assertions.assertEquals(0, dao.getLimiter().getInFlight());
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, dao.getCircuitBreaker().getState());
+    }
+
+    @Test
+    @DisplayName("When a call let through while closed ends during the trial calls then it should not count as a trial")
+    void testStalePermitIsNotATrialCall() {
+        // Given
+        final var breaker = new CircuitBreaker(config(), ticker::get);
+        final var failing = new ArrayList<CircuitBreaker.Permit>();
+        for (int i = 0; i < 4; i++) failing.add(breaker.tryAcquire());
+        final var longRunning = breaker.tryAcquire();
+        failing.forEach(permit -> permit.onFailure(0));
+        ticker.addAndGet(OPEN_DURATION.toNanos());
+        final var trial = breaker.tryAcquire();
+
+        // When
+        longRunning.onSuccess(0);
+        trial.release();
+
+        // Then
+        Assertions.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        Assertions.assertNotNull(breaker.tryAcquire());
+        Assertions.assertNull(breaker.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("When latency rises above the tolerance then the limit should shrink, and grow back when it recovers")
+    void testLimitFollowsLatency() {
+        // Given
+        final var config = config();
+        config.setInitialLimit(10);
+        final var limiter = new AdaptiveConcurrencyLimiter(config);
+        final long fast = Duration.ofMillis(1).toNanos();
+        for (int i = 0; i < 10; i++) Assertions.assertTrue(limiter.tryAcquire());
+        // Keeps the limit in use, which is when it is allowed to grow
+        for (int i = 0; i < 100; i++) {
+            limiter.release(fast, false);
+            Assertions.assertTrue(limiter.tryAcquire());
+        }
+        final int afterFastCalls = limiter.getLimit();
+
+        // When
+        limiter.release(fast * 5, false);
+        limiter.release(fast, true);
+
+        // Then
+        Assertions.assertTrue(afterFastCalls > 10);
+        Assertions.assertTrue(limiter.getLimit() < afterFastCalls);
+        Assertions.assertEquals(8, limiter.getInFlight());
+    }
+
+    @Test
+    @DisplayName("When classifying failures then connection and timeout errors should be transient, others permanent")
+    void testSqlStateClassification() {
+        Assertions.assertTrue(SqlStates.isTransient(new RuntimeException(new SQLException("down", "08001"))));
+        Assertions.assertTrue(SqlStates.isTransient(new SQLException("deadlock", "40P01")));
+        Assertions.assertTrue(SqlStates.isTransient(new SQLTransientConnectionException("pool timeout")));
+        Assertions.assertFalse(SqlStates.isTransient(new RuntimeException(new SQLException("duplicate", "23505"))));
+        Assertions.assertFalse(SqlStates.isTransient(new SQLException("no state")));
+        Assertions.assertFalse(SqlStates.isTransient(new IllegalStateException()));
+    }
+
+}
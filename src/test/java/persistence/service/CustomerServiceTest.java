@@ -5,9 +5,6 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import persistence.dao.CustomerDAO;
 import persistence.dto.CustomerDTO;
-import persistence.mock.CustomerMockFactory;
-
-import java.util.Optional;
 
 public class CustomerServiceTest {
 
@@ -18,8 +15,7 @@ public class CustomerServiceTest {
     void testDoNothingIfCustomerExists() {
         // Given
         final var dao = Mockito.mock(CustomerDAO.class);
-        Mockito.when(dao.getById(Mockito.eq(CUSTOMER_ID)))
-                .thenReturn(Optional.of(CustomerMockFactory.customerDTO(CUSTOMER_ID)));
+        Mockito.when(dao.createIfAbsent(Mockito.any(CustomerDTO.class))).thenReturn(false);
 
         final var service = new CustomerService(dao);
 
@@ -27,17 +23,16 @@ public class CustomerServiceTest {
         service.createIfNotExists();
 
         // Then
-        Mockito.verify(dao, Mockito.times(1)).getById(Mockito.eq(CUSTOMER_ID));
+        Mockito.verify(dao, Mockito.times(1)).createIfAbsent(Mockito.any(CustomerDTO.class));
+        Mockito.verify(dao, Mockito.never()).create(Mockito.any(CustomerDTO.class));
     }
 
     @Test
-    @DisplayName("When the customer does not exist then the service should have it created")
+    @DisplayName("When the customer does not exist then the service should have it created in a single call")
     void testCreateCustomerIfItDoesNotExists() {
         // Given
         final var dao = Mockito.mock(CustomerDAO.class);
-        Mockito.when(dao.getById(Mockito.eq(CustomerServiceTest.CUSTOMER_ID))).thenReturn(Optional.empty());
-        Mockito.when(dao.create(Mockito.any(CustomerDTO.class)))
-                .thenReturn(CustomerMockFactory.customerDTO(CustomerServiceTest.CUSTOMER_ID));
+        Mockito.when(dao.createIfAbsent(Mockito.any(CustomerDTO.class))).thenReturn(true);
 
         final var service = new CustomerService(dao);
 
@@ -45,8 +40,8 @@ public class CustomerServiceTest {
         service.createIfNotExists();
 
         // Then
-        Mockito.verify(dao, Mockito.times(1)).getById(Mockito.eq(CUSTOMER_ID));
-        Mockito.verify(dao, Mockito.times(1)).create(Mockito.any(CustomerDTO.class));
+        Mockito.verify(dao, Mockito.times(1)).createIfAbsent(Mockito.any(CustomerDTO.class));
+        Mockito.verify(dao, Mockito.never()).getById(Mockito.eq(CUSTOMER_ID));
     }
 
 }
@@ -0,0 +1,230 @@
+package persistence.sharding;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import persistence.dao.CustomerDAO;
+import persistence.dto.CustomerDTO;
+import persistence.helper.DBHelper;
+import persistence.helper.IsolatedDatabaseExtension;
+import persistence.helper.SQLReader;
+import persistence.mock.CustomerMockFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@DisplayName("Sharding tests using one H2 in-memory Database per shard")
+public class ShardedCustomerDAOTest {
+
+    private static final int VIRTUAL_NODES = 64;
+    private static final int CUSTOMERS = 300;
+
+    @RegisterExtension
+    static final IsolatedDatabaseExtension FIRST_DATABASE = IsolatedDatabaseExtension.h2();
+
+    @RegisterExtension
+    static final IsolatedDatabaseExtension SECOND_DATABASE = IsolatedDatabaseExtension.h2();
+
+    @RegisterExtension
+    static final IsolatedDatabaseExtension THIRD_DATABASE = IsolatedDatabaseExtension.h2();
+
+    private final Map<String, CustomerDAO> daos = new LinkedHashMap<>();
+    private ShardedCustomerDAO sharded;
+
+    @BeforeAll
+    static void setUp() {
+        for (IsolatedDatabaseExtension database : List.of(FIRST_DATABASE, SECOND_DATABASE, THIRD_DATABASE)) {
+            new DBHelper(database.getDataSource(), SQLReader.ofSemicolon())
+                    .executeScript("./src/test/resources/customer-table.sql");
+        }
+    }
+
+    // Shards start empty; the third one is only added by the rebalancing tests
+    @BeforeEach
+    void buildShards() {
+        for (IsolatedDatabaseExtension database : List.of(FIRST_DATABASE, SECOND_DATABASE, THIRD_DATABASE)) {
+            new DBHelper(database.getDataSource(), SQLReader.ofSemicolon()).execute("delete from customer");
+        }
+        daos.put("first", new CustomerDAO(FIRST_DATABASE.getDataSource()));
+        daos.put("second", new CustomerDAO(SECOND_DATABASE.getDataSource()));
+        daos.put("third", new CustomerDAO(THIRD_DATABASE.getDataSource()));
+        sharded = new ShardedCustomerDAO(Map.of("first", daos.get("first"), "second", daos.get("second")), VIRTUAL_NODES);
+    }
+
+    @AfterEach
+    void closeShards() {
+        sharded.close();
+    }
+
+    private static String customerId(int i) {
+        return String.format("S%04d", i);
+    }
+
+    private List<String> createCustomers() {
+        final var ids = new ArrayList<String>();
+        for (int i = 0; i < CUSTOMERS; i++) {
+            ids.add(customerId(i));
+            sharded.create(CustomerMockFactory.customerDTO(customerId(i)));
+        }
+        return ids;
+    }
+
+    private long count(String shard) {
+        try (final var customers = daos.get(shard).streamAll()) {
+            return customers.count();
+        }
+    }
+
+    @Test
+    @DisplayName("When adding a shard to the ring then only ranges moving to the new shard change owner")
+    void testRingMovesOnlyToNewShard() {
+        // Given
+        final var ring = new ConsistentHashRing(List.of("first", "second", "third"), VIRTUAL_NODES);
+
+        // When
+        final var extended = ring.withShard("fourth");
+        final var moved = ring.movedRanges(extended);
+
+        // Then
+        Assertions.assertTrue(moved.stream().allMatch(range -> range.getTo().equals("fourth")));
+        final var fraction = moved.stream().mapToDouble(HashRange::getRingFraction).sum();
+        Assertions.assertEquals(0.25, fraction, 0.1);
+        for (int i = 0; i < 1_000; i++) {
+            final var id = customerId(i);
+            final var hash = ConsistentHashRing.hash(id);
+            final var inMovedRange = moved.stream().anyMatch(range -> range.contains(hash));
+            Assertions.assertEquals(inMovedRange, !ring.shardFor(id).equals(extended.shardFor(id)));
+        }
+    }
+
+    @Test
+    @DisplayName("When creating customers then each one is stored only on its shard and read back from it")
+    void testCreateRoutesToOwner() {
+        // When
+        final var ids = createCustomers();
+
+        // Then
+        for (String id : ids) {
+            final var owner = sharded.getRing().shardFor(id);
+            Assertions.assertTrue(daos.get(owner).getById(id).isPresent());
+            Assertions.assertEquals(id, sharded.getById(id).orElseThrow().getId());
+        }
+        Assertions.assertEquals(CUSTOMERS, count("first") + count("second"));
+        Assertions.assertTrue(count("first") > 0);
+        Assertions.assertTrue(count("second") > 0);
+    }
+
+    @Test
+    @DisplayName("When getting customers of several shards by id then every shard is queried and results are merged")
+    void testGetByIdsScatterGather() {
+        // Given
+        final var ids = createCustomers();
+        final var requested = new ArrayList<>(ids.subList(0, 50));
+        requested.add("NONE1");
+
+        // When
+        final var found = sharded.getByIds(requested);
+
+        // Then
+        Assertions.assertEquals(50, found.size());
+        Assertions.assertEquals(ids.subList(0, 50), new ArrayList<>(found.keySet()));
+        Assertions.assertFalse(found.containsKey("NONE1"));
+    }
+
+    @Test
+    @DisplayName("When adding a shard then only the customers it now owns are moved and all remain readable")
+    void testRebalanceMovesOnlyAffectedCustomers() {
+        // Given
+        final var ids = createCustomers();
+        final var ownersBefore = new LinkedHashMap<String, String>();
+        for (String id : ids) ownersBefore.put(id, sharded.getRing().shardFor(id));
+
+        // When
+        final long moved = new ShardRebalancer(sharded, 40).addShard("third", daos.get("third"));
+
+        // Then
+        Assertions.assertFalse(sharded.isMigrating());
+        Assertions.assertEquals(count("third"), moved);
+        Assertions.assertTrue(moved > 0);
+        Assertions.assertEquals(CUSTOMERS, count("first") + count("second") + count("third"));
+        for (String id : ids) {
+            final var owner = sharded.getRing().shardFor(id);
+            if (!owner.equals("third")) Assertions.assertEquals(ownersBefore.get(id), owner);
+            Assertions.assertTrue(daos.get(owner).getById(id).isPresent());
+        }
+        Assertions.assertEquals(CUSTOMERS, sharded.getByIds(ids).size());
+    }
+
+    @Test
+    @DisplayName("When a shard is being added then customers not moved yet are still found and not created twice")
+    void testReadsDuringMigration() {
+        // Given
+        final var ids = createCustomers();
+        sharded.beginMigration("third", daos.get("third"));
+        final var notMoved = ids.stream()
+                .filter(id -> sharded.getRing().shardFor(id).equals("third"))
+                .findFirst()
+                .orElseThrow();
+
+        // When
+        final var customer = sharded.getById(notMoved);
+        final var created = sharded.createIfAbsent(CustomerMockFactory.customerDTO(notMoved));
+
+        // Then
+        Assertions.assertTrue(sharded.isMigrating());
+        Assertions.assertEquals(notMoved, customer.orElseThrow().getId());
+        Assertions.assertFalse(created);
+        Assertions.assertEquals(0, count("third"));
+        Assertions.assertEquals(CUSTOMERS, sharded.getByIds(ids).size());
+    }
+
+    private String firstMovingId(List<String> ids) {
+        final var extended = sharded.getRing().withShard("third");
+        return ids.stream().filter(id -> extended.shardFor(id).equals("third")).findFirst().orElseThrow();
+    }
+
+    @Test
+    @DisplayName("When the new shard already holds an identical copy of a customer then moving it completes")
+    void testRebalanceResumesOverIdenticalCopy() {
+        // Given
+        final var ids = createCustomers();
+        final var copied = firstMovingId(ids);
+        daos.get("third").create(CustomerMockFactory.customerDTO(copied));
+
+        // When
+        final long moved = new ShardRebalancer(sharded, 40).addShard("third", daos.get("third"));
+
+        // Then
+        Assertions.assertFalse(sharded.isMigrating());
+        Assertions.assertEquals(count("third"), moved);
+        Assertions.assertEquals(CUSTOMERS, count("first") + count("second") + count("third"));
+    }
+
+    @Test
+    @DisplayName("When the new shard holds a different customer with the id of one being moved then moving fails " +
+            "and the original is kept")
+    void testRebalanceKeepsOriginalOverConflictingCopy() {
+        // Given
+        final var ids = createCustomers();
+        final var conflicting = firstMovingId(ids);
+        final var owner = sharded.getRing().shardFor(conflicting);
+        daos.get("third").create(new CustomerDTO(conflicting, "Another company", null, null, null, null, null,
+                null, null, null, null));
+        final var rebalancer = new ShardRebalancer(sharded, 40);
+
+        // When
+        Assertions.assertThrows(IllegalStateException.class, () -> rebalancer.addShard("third", daos.get("third")));
+
+        // Then
+        Assertions.assertTrue(sharded.isMigrating());
+        Assertions.assertTrue(daos.get(owner).getById(conflicting).isPresent());
+        Assertions.assertEquals(CUSTOMERS, sharded.getByIds(ids).size());
+    }
+
+}
@@ -0,0 +1,174 @@
+package persistence.snapshot;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import persistence.dao.CustomerColumn;
+import persistence.dao.CustomerDAO;
+import persistence.dto.CustomerDTO;
+import persistence.mock.CustomerMockFactory;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+@DisplayName("Off-heap customer snapshot tests")
+public class CustomerSnapshotTest {
+
+    private static final String CUSTOMER_ID = "GUERR";
+
+    private static CustomerDTO customerWithNulls(String customerId) {
+        return new CustomerDTO(customerId, "Tokio Traders", "María", null, null, "東京", null,
+                null, "Japan", null, null);
+    }
+
+    @Test
+    @DisplayName("When looking up an existing id then it should return every column, nulls included")
+    void testGetByIdReturnsAllColumns() {
+        // Given
+        final var expected = customerWithNulls(CUSTOMER_ID);
+        final var snapshot = CustomerSnapshot.of(List.of(
+                CustomerMockFactory.customerDTO(CustomerMockFactory.EXISTING_CUSTOMER_ID), expected).iterator());
+
+        // When
+        final var actual = snapshot.getById(CUSTOMER_ID).orElseThrow();
+
+        // Then
+        Assertions.assertEquals(expected.toString(), actual.toString());
+        Assertions.assertEquals(2, snapshot.size());
+    }
+
+    @Test
+    @DisplayName("When looking up an unknown id then it should return empty and leave the row untouched")
+    void testUnknownIdIsNotFound() {
+        // Given
+        final var snapshot = CustomerSnapshot.of(List.of(CustomerMockFactory.customerDTO(CUSTOMER_ID)).iterator());
+        final var row = new CustomerSnapshot.Row();
+        snapshot.find(CUSTOMER_ID, row);
+
+        // When
+        final var found = snapshot.find("NOPE", row);
+
+        // Then
+        Assertions.assertFalse(found);
+        Assertions.assertTrue(snapshot.getById("NOPE").isEmpty());
+        Assertions.assertTrue(row.contentEquals(CustomerColumn.CUSTOMER_ID, CUSTOMER_ID));
+    }
+
+    @Test
+    @DisplayName("When looking up an id with trailing blanks then it should match like the bpchar column")
+    void testTrailingBlanksAreIgnored() {
+        // Given
+        final var snapshot = CustomerSnapshot.of(List.of(CustomerMockFactory.customerDTO("ABC  ")).iterator());
+        final var row = new CustomerSnapshot.Row();
+
+        // When
+        final var found = snapshot.find("ABC ", row);
+
+        // Then
+        Assertions.assertTrue(found);
+        Assertions.assertEquals("ABC", row.get(CustomerColumn.CUSTOMER_ID));
+    }
+
+    @Test
+    @DisplayName("When reading through a row then values are served without building strings")
+    void testRowAccessors() {
+        // Given
+        final var snapshot = CustomerSnapshot.of(List.of(customerWithNulls(CUSTOMER_ID)).iterator());
+        final var row = new CustomerSnapshot.Row();
+        final var sb = new StringBuilder();
+
+        // When
+        snapshot.find(CUSTOMER_ID, row);
+        row.appendTo(CustomerColumn.CONTACT_NAME, sb).append('/');
+        row.appendTo(CustomerColumn.CITY, sb).append('/');
+        row.appendTo(CustomerColumn.FAX, sb);
+
+        // Then
+        Assertions.assertEquals("María/東京/", sb.toString());
+        Assertions.assertEquals(2, row.length(CustomerColumn.CITY));
+        Assertions.assertEquals(-1, row.length(CustomerColumn.FAX));
+        Assertions.assertTrue(row.isNull(CustomerColumn.REGION));
+        Assertions.assertEquals('J', row.charAt(CustomerColumn.COUNTRY, 0));
+        Assertions.assertTrue(row.contentEquals(CustomerColumn.COUNTRY, "Japan"));
+        Assertions.assertFalse(row.contentEquals(CustomerColumn.COUNTRY, "Japa"));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> row.charAt(CustomerColumn.COUNTRY, 5));
+    }
+
+    @Test
+    @DisplayName("When many customers share column values then each distinct value is stored once")
+    void testDictionaryEncoding() {
+        // Given
+        final var customers = IntStream.range(0, 70_000)
+                .mapToObj(i -> CustomerMockFactory.customerDTO("C" + i))
+                .collect(Collectors.toList());
+
+        // When
+        final var snapshot = CustomerSnapshot.of(customers.iterator());
+
+        // Then
+        Assertions.assertEquals(70_000, snapshot.getDistinctValues(CustomerColumn.CUSTOMER_ID));
+        Assertions.assertEquals(1, snapshot.getDistinctValues(CustomerColumn.COMPANY_NAME));
+        Assertions.assertEquals(1, snapshot.getDistinctValues(CustomerColumn.COUNTRY));
+        final var row = new CustomerSnapshot.Row();
+        for (int i = 0; i < customers.size(); i++) {
+            Assertions.assertTrue(snapshot.find("C" + i, row));
+            Assertions.assertTrue(row.contentEquals(CustomerColumn.CUSTOMER_ID, "C" + i));
+        }
+    }
+
+    @Test
+    @DisplayName("When the same id is loaded twice then building the snapshot should fail")
+    void testDuplicateIdIsRejected() {
+        // Given
+        final var customers = List.of(
+                CustomerMockFactory.customerDTO(CUSTOMER_ID), CustomerMockFactory.customerDTO(CUSTOMER_ID + " "));
+
+        // When
+        final var actual = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> CustomerSnapshot.of(customers.iterator()));
+
+        // Then
+        Assertions.assertTrue(actual.getMessage().contains(CUSTOMER_ID));
+    }
+
+    @Test
+    @DisplayName("When the store is refreshed then the new snapshot is swapped in and old rows stay readable")
+    void testStoreRefreshSwapsSnapshot() {
+        // Given
+        final var dao = Mockito.mock(CustomerDAO.class);
+        Mockito.when(dao.streamAll())
+                .thenReturn(Stream.of(CustomerMockFactory.customerDTO(CUSTOMER_ID)))
+                .thenReturn(Stream.of(CustomerMockFactory.customerDTO(CustomerMockFactory.EXISTING_CUSTOMER_ID)));
+        final var store = new CustomerSnapshotStore(dao);
+        final var row = new CustomerSnapshot.Row();
+        store.refresh();
+        store.find(CUSTOMER_ID, row);
+
+        // When
+        store.refresh();
+
+        // Then
+        Assertions.assertTrue(store.getById(CUSTOMER_ID).isEmpty());
+        Assertions.assertTrue(store.getById(CustomerMockFactory.EXISTING_CUSTOMER_ID).isPresent());
+        Assertions.assertEquals(CUSTOMER_ID, row.get(CustomerColumn.CUSTOMER_ID));
+        Assertions.assertEquals(List.of(CustomerMockFactory.EXISTING_CUSTOMER_ID),
+                List.copyOf(store.getByIds(List.of("NOPE", CustomerMockFactory.EXISTING_CUSTOMER_ID)).keySet()));
+    }
+
+    @Test
+    @DisplayName("When nothing was loaded yet then lookups should fail")
+    void testStoreWithoutSnapshot() {
+        // Given
+        final var store = new CustomerSnapshotStore(Mockito.mock(CustomerDAO.class));
+
+        // When
+        final var actual = Assertions.assertThrows(IllegalStateException.class, () -> store.getById(CUSTOMER_ID));
+
+        // Then
+        Assertions.assertNotNull(actual.getMessage());
+    }
+
+}
@@ -0,0 +1,173 @@
+package persistence.writebehind;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import persistence.dao.BatchInsertResult;
+import persistence.dao.CustomerDAO;
+import persistence.dao.DuplicateCustomerException;
+import persistence.dao.InsertOutcome;
+import persistence.dto.CustomerDTO;
+import persistence.mock.CustomerMockFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@DisplayName("Unit tests for the write-behind DAO using Mockito framework")
+public class WriteBehindCustomerDAOTest {
+
+    private static final Duration NEVER = Duration.ofMinutes(5);
+
+    private CustomerDAO dao;
+    private WriteBehindCustomerDAO writeBehindDAO;
+    private final AtomicInteger batchCalls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        dao = Mockito.mock(CustomerDAO.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (writeBehindDAO != null) writeBehindDAO.close();
+    }
+
+    // Every customer is created except the ids in `duplicates`
+    private void stubCreateAll(Set<String> duplicates, CountDownLatch release) {
+        Mockito.when(dao.createAll(Mockito.any(), Mockito.anyInt())).thenAnswer(invocation -> {
+            batchCalls.incrementAndGet();
+            if (release != null) release.await(5, TimeUnit.SECONDS);
+            final Collection<CustomerDTO> customers = invocation.getArgument(0);
+            final var outcomes = new ArrayList<InsertOutcome>();
+            for (CustomerDTO customer : customers) {
+                outcomes.add(duplicates.contains(customer.getId()) ? InsertOutcome.DUPLICATE : InsertOutcome.CREATED);
+            }
+            return new BatchInsertResult(List.copyOf(customers), outcomes);
+        });
+    }
+
+    private static List<CompletableFuture<CustomerDTO>> createMany(WriteBehindCustomerDAO dao, int count) {
+        final var futures = new ArrayList<CompletableFuture<CustomerDTO>>();
+        for (int i = 0; i < count; i++) {
+            futures.add(dao.createAsync(CustomerMockFactory.customerDTO(String.format("WB%03d", i))));
+        }
+        return futures;
+    }
+
+    @Test
+    @DisplayName("When maxBatchSize customers are queued then they should be written in a single batch")
+    void testFlushOnBatchSize() throws Exception {
+        // Given
+        stubCreateAll(Set.of(), null);
+        writeBehindDAO = new WriteBehindCustomerDAO(dao, 100, 10, NEVER);
+
+        // When
+        final var futures = createMany(writeBehindDAO, 10);
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+
+        // Then
+        Assertions.assertEquals(1, batchCalls.get());
+        Assertions.assertEquals(1, writeBehindDAO.getFlushedBatches());
+        Assertions.assertEquals("WB009", futures.get(9).get().getId());
+    }
+
+    @Test
+    @DisplayName("When fewer than maxBatchSize customers are queued then they should be written after maxDelay")
+    void testFlushOnDelay() throws Exception {
+        // Given
+        stubCreateAll(Set.of(), null);
+        writeBehindDAO = new WriteBehindCustomerDAO(dao, 100, 10, Duration.ofMillis(20));
+
+        // When
+        final var futures = createMany(writeBehindDAO, 3);
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+
+        // Then
+        Assertions.assertEquals(1, batchCalls.get());
+        Assertions.assertEquals(0, writeBehindDAO.getQueued());
+    }
+
+    @Test
+    @DisplayName("When a queued customer already exists then its future should fail with a duplicate error")
+    void testDuplicateFailsOnlyThatCustomer() throws Exception {
+        // Given
+        stubCreateAll(Set.of("WB001"), null);
+        writeBehindDAO = new WriteBehindCustomerDAO(dao, 100, 3, NEVER);
+
+        // When
+        final var futures = createMany(writeBehindDAO, 3);
+
+        // Then
+        final var actual = Assertions.assertThrows(ExecutionException.class, () -> futures.get(1).get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(DuplicateCustomerException.class, actual.getCause().getClass());
+        Assertions.assertEquals("WB000", futures.get(0).get(5, TimeUnit.SECONDS).getId());
+        Assertions.assertEquals("WB002", futures.get(2).get(5, TimeUnit.SECONDS).getId());
+    }
+
+    @Test
+    @DisplayName("When createIfAbsent is called with an existing customer then it should return false")
+    void testCreateIfAbsentWithDuplicate() {
+        // Given
+        stubCreateAll(Set.of(CustomerMockFactory.EXISTING_CUSTOMER_ID), null);
+        writeBehindDAO = new WriteBehindCustomerDAO(dao, 100, 10, Duration.ofMillis(5));
+
+        // When
+        final var actual = writeBehindDAO.createIfAbsent(CustomerMockFactory.customerDTO(CustomerMockFactory.EXISTING_CUSTOMER_ID));
+
+        // Then
+        Assertions.assertFalse(actual);
+    }
+
+    @Test
+    @DisplayName("When the buffer is full then createAsync should wait and give up after its timeout")
+    void testBackpressureWhenFull() throws Exception {
+        // Given
+        final var release = new CountDownLatch(1);
+        stubCreateAll(Set.of(), release);
+        writeBehindDAO = new WriteBehindCustomerDAO(dao, 2, 2, NEVER);
+        final var inFlight = createMany(writeBehindDAO, 2);
+
+        // When
+        final var customer = CustomerMockFactory.customerDTO("WB999");
+
+        // Then
+        Assertions.assertThrows(RejectedExecutionException.class,
+                () -> writeBehindDAO.createAsync(customer, Duration.ofMillis(50)));
+        release.countDown();
+        CompletableFuture.allOf(inFlight.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+        final var queued = writeBehindDAO.createAsync(customer, Duration.ofSeconds(5));
+        // A single customer never fills the batch and maxDelay is NEVER, so closing is what flushes it
+        writeBehindDAO.close();
+        Assertions.assertEquals("WB999", queued.get(5, TimeUnit.SECONDS).getId());
+    }
+
+    @Test
+    @DisplayName("When the DAO is closed then queued customers should be written and new ones rejected")
+    void testCloseDrainsQueue() {
+        // Given
+        stubCreateAll(Set.of(), null);
+        writeBehindDAO = new WriteBehindCustomerDAO(dao, 100, 10, NEVER);
+        final var futures = createMany(writeBehindDAO, 3);
+
+        // When
+        writeBehindDAO.close();
+
+        // Then
+        futures.forEach(future -> Assertions.assertTrue(future.isDone() && !future.isCompletedExceptionally()));
+        Assertions.assertThrows(RejectedExecutionException.class,
+                () -> writeBehindDAO.createAsync(CustomerMockFactory.customerDTO("WB999")));
+    }
+
+}
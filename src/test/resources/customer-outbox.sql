@@ -0,0 +1,28 @@
+DROP TABLE IF EXISTS customer_change_offset;
+DROP TABLE IF EXISTS customer_change;
+
+CREATE TABLE customer_change (
+    change_id bigint AUTO_INCREMENT NOT NULL PRIMARY KEY,
+    customer_id character(5) NOT NULL,
+    company_name character varying(40),
+    contact_name character varying(30),
+    contact_title character varying(30),
+    address character varying(60),
+    city character varying(15),
+    region character varying(15),
+    postal_code character varying(10),
+    country character varying(15),
+    phone character varying(24),
+    fax character varying(24),
+    operation character(1) NOT NULL,
+    changed_at timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE customer_change_offset (
+    consumer character varying(64) NOT NULL PRIMARY KEY,
+    change_id bigint NOT NULL
+);
+
+CREATE TRIGGER customer_change_capture
+    AFTER INSERT, UPDATE, DELETE ON customer
+    FOR EACH ROW CALL "persistence.helper.H2CustomerChangeTrigger";
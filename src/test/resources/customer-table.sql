@@ -14,4 +14,6 @@ CREATE TABLE customer (
     fax character varying(24)
 );
 
+CREATE INDEX customer_country_city_idx ON customer (country NULLS FIRST, city NULLS FIRST, customer_id);
+
 INSERT INTO customer VALUES ('ALFKI', 'Alfreds Futterkiste', 'Maria Anders', 'Sales Representative', 'Obere Str. 57', 'Berlin', NULL, '12209', 'Germany', '030-0074321', '030-0076545');